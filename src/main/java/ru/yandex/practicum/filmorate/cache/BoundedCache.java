@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Read-through cache holding at most {@code capacity} entries.
+ *
+ * <p>Admission follows TinyLFU: every lookup is recorded in a {@link FrequencySketch}, and when the
+ * cache is full a loaded value only replaces the oldest entry if its key has been asked for more often
+ * recently. An oldest entry that wins goes back to the end of the queue, so a burst of one-off keys
+ * cannot flush the entries that are read over and over.
+ *
+ * <p>Hits are lock-free. Loads run outside the lock, and a load that overlaps an invalidation is
+ * returned to its caller but not cached, so the cache never keeps a value older than an invalidation.
+ */
+public class BoundedCache<K, V> {
+    private final int capacity;
+    private final ConcurrentMap<K, V> entries = new ConcurrentHashMap<>();
+    private final LinkedHashSet<K> queue = new LinkedHashSet<>();
+    private final FrequencySketch sketch;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity should be positive");
+        }
+
+        this.capacity = capacity;
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    /**
+     * Returns the cached value or the one produced by {@code loader}; a null from the loader is not cached.
+     */
+    public V get(K key, Function<K, V> loader) {
+        sketch.increment(key);
+
+        final V cached = entries.get(key);
+
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+
+        final long seenInvalidations = invalidations.get();
+        final V loaded = loader.apply(key);
+
+        if (loaded != null) {
+            admit(key, loaded, seenInvalidations);
+        }
+
+        return loaded;
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            invalidations.incrementAndGet();
+
+            if (entries.remove(key) != null) {
+                queue.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateIf(Predicate<V> predicate) {
+        lock.lock();
+        try {
+            invalidations.incrementAndGet();
+            entries.entrySet().removeIf(entry -> {
+                if (!predicate.test(entry.getValue())) {
+                    return false;
+                }
+
+                queue.remove(entry.getKey());
+
+                return true;
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            invalidations.incrementAndGet();
+            entries.clear();
+            queue.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private void admit(K key, V value, long seenInvalidations) {
+        lock.lock();
+        try {
+            if (invalidations.get() != seenInvalidations || entries.containsKey(key)) {
+                return;
+            }
+
+            if (entries.size() >= capacity) {
+                final Iterator<K> oldest = queue.iterator();
+                final K victim = oldest.next();
+
+                oldest.remove();
+
+                if (sketch.frequency(key) <= sketch.frequency(victim)) {
+                    queue.add(victim);
+                    return;
+                }
+
+                entries.remove(victim);
+                evictions.increment();
+            }
+
+            entries.put(key, value);
+            queue.add(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
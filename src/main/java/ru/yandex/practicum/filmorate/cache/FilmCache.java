@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.GenreSet;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+/**
+ * Read-through cache of hydrated films in front of {@link FilmStorage#findOneById(int)}.
+ *
+ * <p>Films are mutable, so the cache keeps its own copy and hands out a fresh copy on every read.
+ * Hits, misses, evictions and size are published as the {@code cache.*} meters tagged {@code cache=films}.
+ */
+@Component
+public class FilmCache {
+    private static final String NAME = "films";
+
+    private final FilmStorage filmStorage;
+    private final BoundedCache<Integer, Film> cache;
+
+    public FilmCache(FilmStorage filmStorage,
+                     MeterRegistry meterRegistry,
+                     @Value("${filmorate.cache.films.size:10000}") int size) {
+        this.filmStorage = filmStorage;
+        this.cache = new BoundedCache<>(size);
+
+        FunctionCounter.builder("cache.gets", cache, BoundedCache::hitCount)
+                .tags("cache", NAME, "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", cache, BoundedCache::missCount)
+                .tags("cache", NAME, "result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", cache, BoundedCache::evictionCount)
+                .tags("cache", NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", cache, BoundedCache::size)
+                .tags("cache", NAME)
+                .register(meterRegistry);
+    }
+
+    public Optional<Film> findOneById(int filmId) {
+        final Film cached = cache.get(filmId, id -> filmStorage.findOneById(id)
+                .map(FilmCache::copyOf)
+                .orElse(null));
+
+        return Optional.ofNullable(cached).map(FilmCache::copyOf);
+    }
+
+    public void invalidate(int filmId) {
+        cache.invalidate(filmId);
+    }
+
+    public void invalidateGenre(int genreId) {
+        cache.invalidateIf(film -> film.getGenres().containsId(genreId));
+    }
+
+    public void invalidateMpa(int mpaId) {
+        cache.invalidateIf(film -> film.getMpa() != null && Objects.equals(film.getMpa().getId(), mpaId));
+    }
+
+    public long hitCount() {
+        return cache.hitCount();
+    }
+
+    public long missCount() {
+        return cache.missCount();
+    }
+
+    public long evictionCount() {
+        return cache.evictionCount();
+    }
+
+    /**
+     * Genres and MPA are immutable, so only the film and its genre set need copying.
+     */
+    static Film copyOf(Film film) {
+        return film.toBuilder()
+                .genres(new GenreSet(film.getGenres()))
+                .build();
+    }
+}
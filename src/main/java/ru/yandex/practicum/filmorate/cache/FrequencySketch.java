@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Count-min sketch of recent access frequencies, saturating at {@value #MAX_COUNT}.
+ *
+ * <p>Once {@code 10 * capacity} accesses have been recorded every counter is halved, so keys that
+ * were hot a while ago lose their advantage over keys that are hot now.
+ */
+class FrequencySketch {
+    static final int MAX_COUNT = 15;
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final AtomicIntegerArray counters;
+    private final int mask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    FrequencySketch(int capacity) {
+        final int width = Integer.highestOneBit(Math.max(16, capacity * 4 - 1)) << 1;
+
+        this.counters = new AtomicIntegerArray(width * DEPTH);
+        this.mask = width - 1;
+        this.sampleSize = Math.max(10 * capacity, 16);
+    }
+
+    void increment(Object key) {
+        final int hash = spread(key.hashCode());
+        boolean added = false;
+
+        for (int row = 0; row < DEPTH; row++) {
+            final int index = indexOf(hash, row);
+
+            if (counters.get(index) < MAX_COUNT) {
+                counters.incrementAndGet(index);
+                added = true;
+            }
+        }
+
+        if (added && additions.incrementAndGet() == sampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(Object key) {
+        final int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counters.get(indexOf(hash, row)));
+        }
+
+        return frequency;
+    }
+
+    private void reset() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, counters.get(i) >>> 1);
+        }
+
+        additions.set(0);
+    }
+
+    private int indexOf(int hash, int row) {
+        final int mixed = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+
+        return row * (mask + 1) + ((mixed ^ (mixed >>> 16)) & mask);
+    }
+
+    private static int spread(int hash) {
+        final int mixed = hash * 0x45D9F3B;
+
+        return mixed ^ (mixed >>> 16);
+    }
+}
@@ -3,10 +3,15 @@ package ru.yandex.practicum.filmorate.controller;
 import java.util.List;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,9 +22,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.TrendingWindow;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportResult;
+import ru.yandex.practicum.filmorate.service.FilmImportService;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.util.PrefixIndex;
 
 @Validated
 @RestController
@@ -27,13 +38,43 @@ import ru.yandex.practicum.filmorate.service.FilmService;
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 public class FilmController {
     private final FilmService filmService;
+    private final FilmImportService filmImportService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public List<Film> findAll() {
-        return filmService.findAll();
+    public ResponseEntity<List<Film>> findAll(@Positive @Max(Pages.MAX_LIMIT) @RequestParam(required = false) Integer limit,
+                                              @PositiveOrZero @RequestParam(required = false) Integer after) {
+        if (limit == null && after == null) {
+            return ResponseEntity.ok(filmService.findAll());
+        }
+
+        final int pageSize = limit == null ? Pages.DEFAULT_LIMIT : limit;
+
+        return Pages.of(filmService.findAll(after == null ? 0 : after, pageSize), pageSize, Film::getId);
+    }
+
+    @GetMapping(value = {"", "/stream"}, produces = Ndjson.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> stream() {
+        return Ndjson.stream(objectMapper, filmService::forEachFilm);
+    }
+
+    @GetMapping("/search")
+    public List<Film> search(@NotBlank @RequestParam(required = false) String q,
+                             @RequestParam(required = false) Integer genreId,
+                             @RequestParam(required = false) Integer mpaId,
+                             @Positive @Max(FilmSearchIndex.MAX_RESULTS) @RequestParam(defaultValue = "10") int count) {
+        return filmService.search(q, genreId, mpaId, count);
+    }
+
+    @GetMapping("/autocomplete")
+    public List<Film> autocomplete(@NotBlank @RequestParam(required = false) String prefix,
+                                   @Positive @Max(PrefixIndex.MAX_COMPLETIONS)
+                                   @RequestParam(defaultValue = "10") int count) {
+        return filmService.autocomplete(prefix, count);
     }
 
-    @GetMapping("/{id}")
+    // Digits only, so /stream asked for as anything but NDJSON is refused rather than taken for an id.
+    @GetMapping("/{id:\\d+}")
     public Film findOneById(@PathVariable("id") int filmId) {
         return filmService.findOneById(filmId);
     }
@@ -43,6 +84,11 @@ public class FilmController {
         return filmService.add(film);
     }
 
+    @PostMapping("/batch")
+    public FilmImportResult importFilms(@RequestBody List<Film> films) {
+        return filmImportService.importFilms(films);
+    }
+
     @PutMapping
     public Film updateFilm(@Valid @RequestBody Film film) {
         return filmService.update(film);
@@ -53,13 +99,33 @@ public class FilmController {
         filmService.addLike(filmId, userId);
     }
 
+    @GetMapping("/{id}/likes/{userId}")
+    public boolean isLiked(@PathVariable("id") int filmId, @PathVariable int userId) {
+        return filmService.isLiked(filmId, userId);
+    }
+
     @DeleteMapping("/{id}/like/{userId}")
     public void removeLike(@PathVariable("id")  int filmId, @PathVariable int userId) {
         filmService.removeLike(filmId, userId);
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@Positive @RequestParam(defaultValue = "10") int count) {
-        return filmService.getPopularFilms(count);
+    public List<Film> getPopularFilms(@Positive @RequestParam(defaultValue = "10") int count,
+                                      @RequestParam(required = false) Integer genreId,
+                                      @RequestParam(required = false) Integer mpaId,
+                                      @RequestParam(required = false) Integer year) {
+        return filmService.getPopularFilms(count, genreId, mpaId, year);
+    }
+
+    @GetMapping("/{id}/similar")
+    public List<Film> getSimilarFilms(@PathVariable("id") int filmId,
+                                      @Positive @RequestParam(defaultValue = "10") int count) {
+        return filmService.getSimilarFilms(filmId, count);
+    }
+
+    @GetMapping("/trending")
+    public List<Film> getTrendingFilms(@RequestParam(defaultValue = "24h") String window,
+                                       @Positive @RequestParam(defaultValue = "10") int count) {
+        return filmService.getTrendingFilms(TrendingWindow.fromCode(window), count);
     }
 }
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Newline-delimited JSON export. Items are written to the response as the source produces them,
+ * so a slow client blocks the writer, and the writer blocks the source.
+ */
+final class Ndjson {
+    static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private Ndjson() {
+    }
+
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper, Consumer<Consumer<T>> source) {
+        final ObjectWriter writer = objectMapper.writer();
+        final StreamingResponseBody body = out -> {
+            source.accept(item -> {
+                try {
+                    out.write(writer.writeValueAsBytes(item));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(MEDIA_TYPE))
+                .body(body);
+    }
+}
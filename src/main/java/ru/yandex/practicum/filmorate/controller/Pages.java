@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Keyset pages: a full page carries a {@code Link: <...?limit=&after=>; rel="next"} header
+ * pointing past its last id, a short page is the last one.
+ */
+final class Pages {
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    private Pages() {
+    }
+
+    static <T> ResponseEntity<List<T>> of(List<T> page, int limit, ToIntFunction<T> idOf) {
+        if (page.size() < limit) {
+            return ResponseEntity.ok(page);
+        }
+
+        final String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("limit", limit)
+                .replaceQueryParam("after", idOf.applyAsInt(page.get(page.size() - 1)))
+                .toUriString();
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, String.format("<%s>; rel=\"next\"", next))
+                .body(page);
+    }
+}
@@ -3,9 +3,18 @@ package ru.yandex.practicum.filmorate.controller;
 import java.util.List;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -13,23 +22,61 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import ru.yandex.practicum.filmorate.index.FilmRecommender;
+import ru.yandex.practicum.filmorate.index.FriendRecommender;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.util.PrefixIndex;
 
+@Validated
 @RestController
 @RequestMapping("/users")
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 public class UserController {
+    private static final int MAX_GROUP_SIZE = 100;
+
     private final UserService userService;
+    private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public List<User> findAll() {
-        return userService.findAll();
+    public ResponseEntity<List<User>> findAll(@Positive @Max(Pages.MAX_LIMIT) @RequestParam(required = false) Integer limit,
+                                              @PositiveOrZero @RequestParam(required = false) Integer after) {
+        if (limit == null && after == null) {
+            return ResponseEntity.ok(userService.findAll());
+        }
+
+        final int pageSize = limit == null ? Pages.DEFAULT_LIMIT : limit;
+
+        return Pages.of(userService.findAll(after == null ? 0 : after, pageSize), pageSize, User::getId);
+    }
+
+    @GetMapping(value = {"", "/stream"}, produces = Ndjson.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> stream() {
+        return Ndjson.stream(objectMapper, userService::forEachUser);
+    }
+
+    @GetMapping("/common-friends")
+    public List<User> findCommonFriends(@NotNull @Size(min = 2, max = MAX_GROUP_SIZE)
+                                        @RequestParam(required = false) List<Integer> ids) {
+        return userService.findCommonFriends(ids);
     }
 
-    @GetMapping("/{id}")
+    @GetMapping("/autocomplete")
+    public List<User> autocomplete(@NotBlank @RequestParam(required = false) String prefix,
+                                   @Positive @Max(PrefixIndex.MAX_COMPLETIONS)
+                                   @RequestParam(defaultValue = "10") int limit) {
+        return userService.autocomplete(prefix, limit);
+    }
+
+    // Digits only, so /stream asked for as anything but NDJSON is refused rather than taken for an id.
+    @GetMapping("/{id:\\d+}")
     public User findOneById(@PathVariable("id") int userId) {
         return userService.findOneById(userId);
     }
@@ -55,8 +102,32 @@ public class UserController {
     }
 
     @GetMapping("/{id}/friends")
-    public List<User> findAllFriends(@PathVariable("id") int userId) {
-        return userService.findAllFriends(userId);
+    public ResponseEntity<List<User>> findAllFriends(@PathVariable("id") int userId,
+                                                     @Positive @Max(Pages.MAX_LIMIT) @RequestParam(required = false) Integer limit,
+                                                     @PositiveOrZero @RequestParam(required = false) Integer after,
+                                                     @RequestParam(defaultValue = "false") boolean mutual) {
+        if (limit == null && after == null) {
+            return ResponseEntity.ok(userService.findAllFriends(userId, mutual));
+        }
+
+        final int pageSize = limit == null ? Pages.DEFAULT_LIMIT : limit;
+
+        return Pages.of(userService.findAllFriends(userId, after == null ? 0 : after, pageSize, mutual), pageSize,
+                User::getId);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<User> findRecommendations(@PathVariable("id") int userId,
+                                          @Positive @Max(FriendRecommender.MAX_RECOMMENDATIONS)
+                                          @RequestParam(defaultValue = "10") int limit) {
+        return userService.findRecommendations(userId, limit);
+    }
+
+    @GetMapping("/{id}/recommendations/films")
+    public List<Film> findFilmRecommendations(@PathVariable("id") int userId,
+                                              @Positive @Max(FilmRecommender.MAX_RECOMMENDATIONS)
+                                              @RequestParam(defaultValue = "10") int limit) {
+        return filmService.getRecommendedFilms(userId, limit);
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
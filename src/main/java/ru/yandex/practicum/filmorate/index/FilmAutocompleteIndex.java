@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.index;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.util.PrefixIndex;
+
+/**
+ * Completes film names, most liked films first. Rebuilt from FILM on startup and kept current by
+ * {@link ru.yandex.practicum.filmorate.service.FilmService}; like counts come from the
+ * {@link LikeIndex}.
+ */
+@Slf4j
+@Component
+public class FilmAutocompleteIndex {
+    private final FilmStorage filmStorage;
+    private final LikeIndex likeIndex;
+    private final PrefixIndex index;
+
+    @Autowired
+    public FilmAutocompleteIndex(FilmStorage filmStorage,
+                                 LikeIndex likeIndex,
+                                 @Value("${filmorate.autocomplete.compact-after:10000}") int compactAfter) {
+        this.filmStorage = filmStorage;
+        this.likeIndex = likeIndex;
+        this.index = new PrefixIndex("film-autocomplete", compactAfter);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        index.rebuild(loader -> filmStorage.forEachFilm(film ->
+                loader.add(film.getId(), likeIndex.likes(film.getId()), film.getName())));
+
+        log.info("Film autocomplete index rebuilt with {} keys in {} KiB", index.size(), index.bytes() / 1024);
+    }
+
+    @PreDestroy
+    public void close() {
+        index.close();
+    }
+
+    public void index(Film film) {
+        index.put(film.getId(), film.getName());
+    }
+
+    /**
+     * Picks up a like or unlike of the film.
+     */
+    public void updateLikes(int filmId) {
+        index.setWeight(filmId, () -> likeIndex.likes(filmId));
+    }
+
+    /**
+     * Up to {@code limit} film ids, most liked first.
+     */
+    public int[] complete(String prefix, int limit) {
+        return index.complete(prefix, limit);
+    }
+}
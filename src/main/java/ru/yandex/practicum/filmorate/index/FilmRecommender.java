@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import ru.yandex.practicum.filmorate.util.IntCounter;
+
+/**
+ * User-based collaborative filtering over the {@link LikeIndex}: finds the users whose likes overlap
+ * most with the user's, then ranks the films those neighbours liked by the sum of their overlaps,
+ * leaving out films the user already liked.
+ *
+ * <p>Films liked by more than {@code maxLikers} users are not used to find neighbours: almost
+ * everyone shares them, and walking their likers would cost more than the rest of the pass. The
+ * overlap count is split across the common fork/join pool once it covers {@value #PARALLEL_LIKES}
+ * likes or more. Nothing is cached, so recommendations follow every like as soon as it lands.
+ */
+@Component
+public class FilmRecommender {
+    public static final int MAX_RECOMMENDATIONS = 100;
+
+    private static final int NEIGHBOURS = 50;
+    private static final int PARALLEL_LIKES = 1 << 16;
+
+    private final LikeIndex likeIndex;
+    private final int maxLikers;
+
+    @Autowired
+    public FilmRecommender(LikeIndex likeIndex,
+                           @Value("${filmorate.recommendations.max-film-likers:10000}") int maxLikers) {
+        this.likeIndex = likeIndex;
+        this.maxLikers = maxLikers;
+    }
+
+    /**
+     * Up to {@code limit} film ids, best first; equal scores go to the lower id.
+     */
+    public int[] recommend(int userId, int limit) {
+        final int[] liked = likeIndex.likedFilms(userId);
+
+        if (liked.length == 0) {
+            return new int[0];
+        }
+
+        final OverlapTask task = new OverlapTask(userId, liked, 0, liked.length);
+        final IntCounter overlaps = task.likes() >= PARALLEL_LIKES
+                ? ForkJoinPool.commonPool().invoke(task)
+                : task.count();
+        final IntCounter scores = new IntCounter();
+
+        for (int neighbourId : overlaps.top(NEIGHBOURS)) {
+            final int overlap = overlaps.get(neighbourId);
+
+            for (int filmId : likeIndex.likedFilms(neighbourId)) {
+                if (Arrays.binarySearch(liked, filmId) < 0) {
+                    scores.add(filmId, overlap);
+                }
+            }
+        }
+
+        return scores.top(Math.min(limit, MAX_RECOMMENDATIONS));
+    }
+
+    /**
+     * Counts, per other user, the films in {@code liked[from..to)} they liked too, halving the range
+     * while it covers {@value #PARALLEL_LIKES} likes or more.
+     */
+    private class OverlapTask extends RecursiveTask<IntCounter> {
+        private final int userId;
+        private final int[] liked;
+        private final int from;
+        private final int to;
+
+        private OverlapTask(int userId, int[] liked, int from, int to) {
+            this.userId = userId;
+            this.liked = liked;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntCounter compute() {
+            if (to - from < 2 || likes() < PARALLEL_LIKES) {
+                return count();
+            }
+
+            final int middle = (from + to) >>> 1;
+            final OverlapTask left = new OverlapTask(userId, liked, from, middle);
+            final OverlapTask right = new OverlapTask(userId, liked, middle, to);
+
+            left.fork();
+
+            final IntCounter rightOverlaps = right.compute();
+            final IntCounter leftOverlaps = left.join();
+
+            if (leftOverlaps.size() < rightOverlaps.size()) {
+                rightOverlaps.addAll(leftOverlaps);
+
+                return rightOverlaps;
+            }
+
+            leftOverlaps.addAll(rightOverlaps);
+
+            return leftOverlaps;
+        }
+
+        private long likes() {
+            long likes = 0;
+
+            for (int i = from; i < to; i++) {
+                final int filmLikes = likeIndex.likes(liked[i]);
+
+                if (filmLikes <= maxLikers) {
+                    likes += filmLikes;
+                }
+            }
+
+            return likes;
+        }
+
+        private IntCounter count() {
+            final IntCounter overlaps = new IntCounter();
+
+            for (int i = from; i < to; i++) {
+                if (likeIndex.likes(liked[i]) > maxLikers) {
+                    continue;
+                }
+
+                likeIndex.forEachLiker(liked[i], likerId -> {
+                    if (likerId != userId) {
+                        overlaps.add(likerId, 1);
+                    }
+                });
+            }
+
+            return overlaps;
+        }
+    }
+}
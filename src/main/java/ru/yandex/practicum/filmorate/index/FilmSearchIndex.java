@@ -0,0 +1,328 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.util.Tokenizer;
+import ru.yandex.practicum.filmorate.util.TopK;
+
+/**
+ * Inverted index over film names and descriptions, rebuilt from FILM on startup and kept current
+ * by {@link ru.yandex.practicum.filmorate.service.FilmService}.
+ *
+ * <p>Each term maps to a posting list of film ids and term frequencies held in two primitive
+ * arrays sorted by film id. A query matches the films containing every one of its terms: the
+ * shortest posting list is walked and each film is looked up in the others by galloping search.
+ * Matches are ranked by BM25 over the name and description together.
+ *
+ * <p>Each film keeps the ids of its distinct terms so a reindexed film can be taken out of exactly
+ * the lists it is in. Searches share a read lock; indexing a film takes the write lock.
+ */
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    public static final int MAX_RESULTS = 100;
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int[] NONE = new int[0];
+    private static final Comparator<Postings> BY_SIZE = Comparator.comparingInt(postings -> postings.size);
+
+    private final FilmStorage filmStorage;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<Postings> postings = new ArrayList<>();
+
+    private int[][] filmTerms = new int[0][];
+    private int[] lengths = new int[0];
+    private int[] mpaIds = new int[0];
+    private int[][] genreIds = new int[0][];
+    private int films;
+    private long totalLength;
+
+    public FilmSearchIndex(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            termIds.clear();
+            postings.clear();
+            filmTerms = new int[0][];
+            lengths = new int[0];
+            mpaIds = new int[0];
+            genreIds = new int[0][];
+            films = 0;
+            totalLength = 0;
+
+            filmStorage.forEachFilm(this::addUnlocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Film search index rebuilt for {} films and {} terms", films, termIds.size());
+    }
+
+    /**
+     * Indexes a new film or replaces what is indexed for an updated one.
+     */
+    public void index(Film film) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(film.getId());
+            addUnlocked(film);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} ids of films containing every term of the query, best match first.
+     * Null filters match any genre or MPA rating.
+     */
+    public int[] search(String query, Integer genreId, Integer mpaId, int limit) {
+        final List<String> terms = Tokenizer.tokens(query);
+
+        if (terms.isEmpty()) {
+            return NONE;
+        }
+
+        lock.readLock().lock();
+        try {
+            final Postings[] lists = postingsOf(terms);
+
+            if (lists == null) {
+                return NONE;
+            }
+
+            return rank(lists, genreId, mpaId, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Posting lists of the distinct terms, shortest first, or null if a term occurs nowhere.
+     */
+    private Postings[] postingsOf(List<String> terms) {
+        final List<Postings> lists = new ArrayList<>(terms.size());
+
+        for (String term : terms) {
+            final Integer termId = termIds.get(term);
+
+            if (termId == null || postings.get(termId).size == 0) {
+                return null;
+            }
+
+            final Postings list = postings.get(termId);
+
+            if (!lists.contains(list)) {
+                lists.add(list);
+            }
+        }
+
+        final Postings[] sorted = lists.toArray(new Postings[0]);
+
+        Arrays.sort(sorted, BY_SIZE);
+
+        return sorted;
+    }
+
+    private int[] rank(Postings[] lists, Integer genreId, Integer mpaId, int limit) {
+        final float averageLength = (float) totalLength / films;
+        final float[] idfs = new float[lists.length];
+        final int[] cursors = new int[lists.length];
+        final TopK top = new TopK(Math.min(limit, MAX_RESULTS));
+        final int requiredMpaId = mpaId == null ? 0 : mpaId;
+        final int requiredGenreId = genreId == null ? 0 : genreId;
+
+        for (int i = 0; i < lists.length; i++) {
+            idfs[i] = (float) Math.log(1 + (films - lists[i].size + 0.5) / (lists[i].size + 0.5));
+        }
+
+        final Postings shortest = lists[0];
+
+        candidates:
+        for (int i = 0; i < shortest.size; i++) {
+            final int filmId = shortest.films[i];
+
+            if (mpaId != null && mpaIds[filmId] != requiredMpaId
+                    || genreId != null && Arrays.binarySearch(genreIds[filmId], requiredGenreId) < 0) {
+                continue;
+            }
+
+            for (int j = 1; j < lists.length; j++) {
+                cursors[j] = lists[j].seek(filmId, cursors[j]);
+
+                if (cursors[j] == lists[j].size) {
+                    break candidates;
+                }
+
+                if (lists[j].films[cursors[j]] != filmId) {
+                    continue candidates;
+                }
+            }
+
+            final float norm = K1 * (1 - B + B * lengths[filmId] / averageLength);
+            float score = idfs[0] * bm25(shortest.frequencies[i], norm);
+
+            for (int j = 1; j < lists.length; j++) {
+                score += idfs[j] * bm25(lists[j].frequencies[cursors[j]], norm);
+            }
+
+            top.offer(filmId, Float.floatToIntBits(score));
+        }
+
+        return top.keys();
+    }
+
+    private static float bm25(int frequency, float norm) {
+        return frequency * (K1 + 1) / (frequency + norm);
+    }
+
+    private void addUnlocked(Film film) {
+        final int filmId = film.getId();
+        final List<String> tokens = Tokenizer.tokens(film.getName());
+
+        tokens.addAll(Tokenizer.tokens(film.getDescription()));
+
+        final Map<Integer, Integer> frequencies = new HashMap<>();
+
+        for (String token : tokens) {
+            frequencies.merge(termIdOf(token), 1, Integer::sum);
+        }
+
+        final int[] terms = frequencies.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+
+        for (int termId : terms) {
+            postings.get(termId).add(filmId, frequencies.get(termId));
+        }
+
+        ensureCapacity(filmId);
+        filmTerms[filmId] = terms;
+        lengths[filmId] = tokens.size();
+        mpaIds[filmId] = film.getMpa() == null ? 0 : film.getMpa().getId();
+        genreIds[filmId] = film.getGenres() == null ? NONE : sorted(film.getGenres().ids());
+        films++;
+        totalLength += tokens.size();
+    }
+
+    private void removeUnlocked(int filmId) {
+        if (filmId >= filmTerms.length || filmTerms[filmId] == null) {
+            return;
+        }
+
+        for (int termId : filmTerms[filmId]) {
+            postings.get(termId).remove(filmId);
+        }
+
+        filmTerms[filmId] = null;
+        films--;
+        totalLength -= lengths[filmId];
+    }
+
+    private int termIdOf(String term) {
+        return termIds.computeIfAbsent(term, key -> {
+            postings.add(new Postings());
+
+            return postings.size() - 1;
+        });
+    }
+
+    private void ensureCapacity(int filmId) {
+        if (filmId < filmTerms.length) {
+            return;
+        }
+
+        final int capacity = Math.max(filmId + 1, filmTerms.length * 2);
+
+        filmTerms = Arrays.copyOf(filmTerms, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        mpaIds = Arrays.copyOf(mpaIds, capacity);
+        genreIds = Arrays.copyOf(genreIds, capacity);
+    }
+
+    private static int[] sorted(int[] values) {
+        Arrays.sort(values);
+
+        return values;
+    }
+
+    /**
+     * Film ids ascending with their term frequencies. Films are usually indexed in id order, which
+     * makes adding an append.
+     */
+    private static final class Postings {
+        private int[] films = new int[2];
+        private int[] frequencies = new int[2];
+        private int size;
+
+        private void add(int filmId, int frequency) {
+            int index = size > 0 && films[size - 1] < filmId ? size : Arrays.binarySearch(films, 0, size, filmId);
+
+            if (index >= 0 && index < size) {
+                frequencies[index] = frequency;
+
+                return;
+            }
+
+            index = index < 0 ? -index - 1 : index;
+
+            if (size == films.length) {
+                films = Arrays.copyOf(films, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+
+            System.arraycopy(films, index, films, index + 1, size - index);
+            System.arraycopy(frequencies, index, frequencies, index + 1, size - index);
+            films[index] = filmId;
+            frequencies[index] = frequency;
+            size++;
+        }
+
+        private void remove(int filmId) {
+            final int index = Arrays.binarySearch(films, 0, size, filmId);
+
+            if (index < 0) {
+                return;
+            }
+
+            System.arraycopy(films, index + 1, films, index, size - index - 1);
+            System.arraycopy(frequencies, index + 1, frequencies, index, size - index - 1);
+            size--;
+        }
+
+        /**
+         * Index of the first film id at or after {@code filmId}, searching from {@code from} with
+         * doubling steps and then binary search, or {@code size} if there is none.
+         */
+        private int seek(int filmId, int from) {
+            int step = 1;
+            int high = from;
+
+            while (high < size && films[high] < filmId) {
+                from = high + 1;
+                high += step;
+                step *= 2;
+            }
+
+            final int index = Arrays.binarySearch(films, from, Math.min(high + 1, size), filmId);
+
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
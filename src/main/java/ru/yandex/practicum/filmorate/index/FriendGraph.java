@@ -0,0 +1,510 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.IntSortedSet;
+
+/**
+ * Friendships in compressed sparse row form: an offsets array indexed by user id into one array
+ * holding every user's friend ids, each row sorted. Rebuilt from FRIENDS on startup and kept current
+ * by {@link ru.yandex.practicum.filmorate.service.UserService}.
+ *
+ * <p>Writes never touch the packed arrays. A changed row is copied into a map of pending rows that
+ * reads consult first. Once {@code compactAfter} rows are pending, a background thread packs them
+ * into new arrays and swaps those in. Writers are serialized; readers never lock.
+ *
+ * <p>Rows are intersected by merging or galloping. Packed rows of users who befriend at least a
+ * 32nd of everyone (and no fewer than {@value #DENSE_DEGREE}) also carry a bitset, so two such users
+ * intersect by ANDing words and anyone else by probing bits.
+ *
+ * <p>A friendship is approved once both users list each other.
+ */
+@Slf4j
+@Component
+public class FriendGraph {
+    private static final int DENSE_DEGREE = 1024;
+    private static final int DENSE_RATIO = 32;
+    private static final Comparator<Row> BY_SIZE = Comparator.comparingInt(Row::size);
+
+    private final UserStorage userStorage;
+    private final int compactAfter;
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(task -> {
+        final Thread thread = new Thread(task, "friend-graph-compaction");
+
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    private volatile State state = new State(Csr.EMPTY, Map.of(), new ConcurrentHashMap<>());
+
+    @Autowired
+    public FriendGraph(UserStorage userStorage, @Value("${filmorate.friends.compact-after:10000}") int compactAfter) {
+        this.userStorage = userStorage;
+        this.compactAfter = compactAfter;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        compactionLock.lock();
+        try {
+            synchronized (this) {
+                final CsrBuilder builder = new CsrBuilder();
+
+                userStorage.forEachFriendship(builder::add);
+                state = new State(builder.build(), Map.of(), new ConcurrentHashMap<>());
+            }
+        } finally {
+            compactionLock.unlock();
+        }
+
+        log.info("Friend graph rebuilt with {} friendships", state.base.targets.length);
+    }
+
+    @PreDestroy
+    public void close() {
+        compactor.shutdownNow();
+    }
+
+    /**
+     * Returns false if the user already lists the friend.
+     */
+    public boolean add(int userId, int friendId) {
+        synchronized (this) {
+            final Row row = state.row(userId);
+            final int index = row.indexOf(friendId);
+
+            if (index >= 0) {
+                return false;
+            }
+
+            state.pending.put(userId, row.inserting(-index - 1, friendId));
+        }
+
+        scheduleCompaction();
+
+        return true;
+    }
+
+    /**
+     * Returns false if the user did not list the friend.
+     */
+    public boolean remove(int userId, int friendId) {
+        synchronized (this) {
+            final Row row = state.row(userId);
+            final int index = row.indexOf(friendId);
+
+            if (index < 0) {
+                return false;
+            }
+
+            state.pending.put(userId, row.removing(index));
+        }
+
+        scheduleCompaction();
+
+        return true;
+    }
+
+    public boolean contains(int userId, int friendId) {
+        return state.row(userId).indexOf(friendId) >= 0;
+    }
+
+    public boolean isApproved(int userId, int friendId) {
+        final State state = this.state;
+
+        return state.row(userId).indexOf(friendId) >= 0 && state.row(friendId).indexOf(userId) >= 0;
+    }
+
+    /**
+     * Friend ids of the user in ascending order.
+     */
+    public int[] friends(int userId) {
+        final Row row = state.row(userId);
+
+        return Arrays.copyOfRange(row.values, row.from, row.to);
+    }
+
+    /**
+     * Visits the user's friend ids in ascending order without copying the row.
+     */
+    public void forEachFriend(int userId, IntConsumer consumer) {
+        final Row row = state.row(userId);
+
+        for (int i = row.from; i < row.to; i++) {
+            consumer.accept(row.values[i]);
+        }
+    }
+
+    public int degree(int userId) {
+        return state.row(userId).size();
+    }
+
+    /**
+     * Up to {@code limit} friend ids of the user greater than {@code afterId}, ascending.
+     */
+    public int[] friendsAfter(int userId, int afterId, int limit) {
+        final Row row = state.row(userId);
+        int from = Arrays.binarySearch(row.values, row.from, row.to, afterId);
+
+        from = from >= 0 ? from + 1 : -from - 1;
+
+        return Arrays.copyOfRange(row.values, from, (int) Math.min(row.to, (long) from + limit));
+    }
+
+    /**
+     * Friends shared by all the given users in ascending order. Rows are intersected smallest first,
+     * so the candidates only shrink.
+     */
+    public int[] commonFriends(int... userIds) {
+        final State state = this.state;
+        final Row[] rows = new Row[userIds.length];
+
+        for (int i = 0; i < userIds.length; i++) {
+            rows[i] = state.row(userIds[i]);
+        }
+        Arrays.sort(rows, BY_SIZE);
+
+        if (rows.length == 0) {
+            return new int[0];
+        }
+
+        Row common = rows[0];
+
+        for (int i = 1; i < rows.length && common.size() > 0; i++) {
+            final int[] values = new int[common.size()];
+            final int[] size = {0};
+
+            intersect(common, rows[i], friendId -> values[size[0]++] = friendId);
+            common = new Row(values, 0, size[0], null);
+        }
+
+        return Arrays.copyOfRange(common.values, common.from, common.to);
+    }
+
+    public int mutualFriends(int userId, int otherId) {
+        final State state = this.state;
+        final Row row = state.row(userId);
+        final Row other = state.row(otherId);
+
+        if (row.bits != null && other.bits != null) {
+            int count = 0;
+
+            for (int i = Math.min(row.bits.length, other.bits.length) - 1; i >= 0; i--) {
+                count += Long.bitCount(row.bits[i] & other.bits[i]);
+            }
+
+            return count;
+        }
+
+        final int[] count = {0};
+
+        intersect(row, other, friendId -> count[0]++);
+
+        return count[0];
+    }
+
+    public int pendingRows() {
+        final State state = this.state;
+
+        return state.pending.size() + state.compacting.size();
+    }
+
+    /**
+     * Packs the pending rows into new arrays. Writes made meanwhile stay pending for the next round.
+     */
+    public void compact() {
+        compactionLock.lock();
+        try {
+            final State frozen;
+
+            synchronized (this) {
+                if (state.pending.isEmpty()) {
+                    return;
+                }
+
+                frozen = new State(state.base, state.pending, new ConcurrentHashMap<>());
+                state = frozen;
+            }
+
+            final Csr base = frozen.base.with(frozen.compacting);
+
+            synchronized (this) {
+                state = new State(base, Map.of(), state.pending);
+            }
+
+            log.debug("Friend graph compacted {} rows", frozen.compacting.size());
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (state.pending.size() < compactAfter || !compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        compactor.execute(() -> {
+            try {
+                compact();
+            } finally {
+                compactionScheduled.set(false);
+            }
+        });
+    }
+
+    private static void intersect(Row left, Row right, IntConsumer consumer) {
+        if (left.bits != null && right.bits != null) {
+            for (int i = 0, words = Math.min(left.bits.length, right.bits.length); i < words; i++) {
+                for (long word = left.bits[i] & right.bits[i]; word != 0; word &= word - 1) {
+                    consumer.accept(i * Long.SIZE + Long.numberOfTrailingZeros(word));
+                }
+            }
+        } else if (right.bits != null && left.size() <= right.size()) {
+            left.probe(right.bits, consumer);
+        } else if (left.bits != null && right.size() <= left.size()) {
+            right.probe(left.bits, consumer);
+        } else {
+            IntSortedSet.intersect(left.values, left.from, left.to, right.values, right.from, right.to, consumer);
+        }
+    }
+
+    /**
+     * Packed rows plus the rows changed since, which shadow them. {@code compacting} holds the rows
+     * being packed right now and {@code pending} the ones changed after that started.
+     */
+    private static final class State {
+        private final Csr base;
+        private final Map<Integer, int[]> compacting;
+        private final ConcurrentMap<Integer, int[]> pending;
+
+        private State(Csr base, Map<Integer, int[]> compacting, ConcurrentMap<Integer, int[]> pending) {
+            this.base = base;
+            this.compacting = compacting;
+            this.pending = pending;
+        }
+
+        private Row row(int userId) {
+            int[] changed = pending.get(userId);
+
+            if (changed == null) {
+                changed = compacting.get(userId);
+            }
+
+            return changed != null ? new Row(changed, 0, changed.length, null) : base.row(userId);
+        }
+    }
+
+    private static final class Row {
+        private final int[] values;
+        private final int from;
+        private final int to;
+        private final long[] bits;
+
+        private Row(int[] values, int from, int to, long[] bits) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.bits = bits;
+        }
+
+        private int size() {
+            return to - from;
+        }
+
+        /**
+         * Index within the row, or {@code -(insertion point) - 1}.
+         */
+        private int indexOf(int value) {
+            final int index = Arrays.binarySearch(values, from, to, value);
+
+            return index >= 0 ? index - from : index + from;
+        }
+
+        private void probe(long[] bits, IntConsumer consumer) {
+            for (int i = from; i < to; i++) {
+                final int word = values[i] >>> 6;
+
+                if (word < bits.length && (bits[word] & 1L << values[i]) != 0) {
+                    consumer.accept(values[i]);
+                }
+            }
+        }
+
+        private int[] inserting(int index, int value) {
+            final int[] row = new int[size() + 1];
+
+            System.arraycopy(values, from, row, 0, index);
+            row[index] = value;
+            System.arraycopy(values, from + index, row, index + 1, size() - index);
+
+            return row;
+        }
+
+        private int[] removing(int index) {
+            final int[] row = new int[size() - 1];
+
+            System.arraycopy(values, from, row, 0, index);
+            System.arraycopy(values, from + index + 1, row, index, size() - index - 1);
+
+            return row;
+        }
+    }
+
+    /**
+     * Row {@code u} is {@code targets[offsets[u]..offsets[u + 1])}; users past the last offset have
+     * no friends.
+     */
+    private static final class Csr {
+        private static final Csr EMPTY = new Csr(new int[]{0}, new int[0]);
+
+        private final int[] offsets;
+        private final int[] targets;
+        private final int[] denseUsers;
+        private final long[][] denseBits;
+
+        private Csr(int[] offsets, int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+
+            final int universe = Arrays.stream(targets).max().orElse(0) + 1;
+            final int denseDegree = Math.max(DENSE_DEGREE, universe / DENSE_RATIO);
+
+            this.denseUsers = IntStream.range(0, users())
+                    .filter(userId -> offsets[userId + 1] - offsets[userId] >= denseDegree)
+                    .toArray();
+            this.denseBits = new long[denseUsers.length][];
+
+            for (int i = 0; i < denseUsers.length; i++) {
+                final long[] bits = new long[(universe + Long.SIZE - 1) / Long.SIZE];
+
+                for (int edge = offsets[denseUsers[i]]; edge < offsets[denseUsers[i] + 1]; edge++) {
+                    bits[targets[edge] >>> 6] |= 1L << targets[edge];
+                }
+
+                denseBits[i] = bits;
+            }
+        }
+
+        private int users() {
+            return offsets.length - 1;
+        }
+
+        private int start(int userId) {
+            return offsets[Math.min(Math.max(userId, 0), users())];
+        }
+
+        private Row row(int userId) {
+            if (userId < 0 || userId >= users()) {
+                return new Row(targets, 0, 0, null);
+            }
+
+            final int from = offsets[userId];
+            final int to = offsets[userId + 1];
+            final int dense = to - from >= DENSE_DEGREE ? Arrays.binarySearch(denseUsers, userId) : -1;
+
+            return new Row(targets, from, to, dense >= 0 ? denseBits[dense] : null);
+        }
+
+        /**
+         * Copy with the given rows replaced. Unchanged runs of rows are copied in bulk.
+         */
+        private Csr with(Map<Integer, int[]> rows) {
+            final int[] changed = rows.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            final int users = Math.max(users(), changed[changed.length - 1] + 1);
+            long edges = targets.length;
+
+            for (int userId : changed) {
+                edges += rows.get(userId).length - (start(userId + 1) - start(userId));
+            }
+
+            final int[] newOffsets = new int[users + 1];
+            final int[] newTargets = new int[Math.toIntExact(edges)];
+            int user = 0;
+            int edge = 0;
+
+            for (int userId : changed) {
+                edge = copyRows(user, userId, newOffsets, newTargets, edge);
+
+                final int[] row = rows.get(userId);
+
+                newOffsets[userId] = edge;
+                System.arraycopy(row, 0, newTargets, edge, row.length);
+                edge += row.length;
+                user = userId + 1;
+            }
+
+            newOffsets[users] = copyRows(user, users, newOffsets, newTargets, edge);
+
+            return new Csr(newOffsets, newTargets);
+        }
+
+        private int copyRows(int fromUser, int toUser, int[] newOffsets, int[] newTargets, int edge) {
+            final int from = start(fromUser);
+            final int to = start(toUser);
+
+            for (int user = fromUser; user < toUser; user++) {
+                newOffsets[user] = edge + start(user) - from;
+            }
+
+            System.arraycopy(targets, from, newTargets, edge, to - from);
+
+            return edge + to - from;
+        }
+    }
+
+    /**
+     * Packs friendships streamed in ascending (user, friend) order.
+     */
+    private static final class CsrBuilder {
+        private int[] offsets = new int[16];
+        private int[] targets = new int[16];
+        private int users;
+        private int edges;
+
+        private void add(int userId, int friendId) {
+            while (users <= userId) {
+                if (users == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, users + (users >> 1));
+                }
+
+                offsets[users++] = edges;
+            }
+
+            if (edges == targets.length) {
+                targets = Arrays.copyOf(targets, edges + (edges >> 1));
+            }
+
+            targets[edges++] = friendId;
+        }
+
+        private Csr build() {
+            final int[] packed = Arrays.copyOf(offsets, users + 1);
+
+            packed[users] = edges;
+
+            return new Csr(packed, Arrays.copyOf(targets, edges));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.util.IntCounter;
+
+/**
+ * "People you may know": users two steps away in the {@link FriendGraph}, ranked by the friends
+ * they share with the user.
+ *
+ * <p>Each path user - friend - candidate scores 1, doubled for each of its two friendships that is
+ * approved, so a candidate reached through mutual friendships outranks one reached through
+ * unanswered requests. Friends with more than {@code maxFanOut} friends of their own are skipped:
+ * they say little about who the user knows and would dominate the counting pass. The pass is split
+ * across the common fork/join pool once the user's friends lead to {@value #PARALLEL_PATHS} paths
+ * or more, and a min-heap keeps the best {@value #MAX_RECOMMENDATIONS} candidates.
+ *
+ * <p>Rankings are cached per user. {@link #friendshipChanged(int, int)} drops every cached ranking
+ * the change can reach: those of the two users and of everyone either of them lists. A user whose
+ * request to one of them is still unanswered is not listed back, so their ranking is only refreshed
+ * by a change to their own friendships.
+ */
+@Component
+public class FriendRecommender {
+    public static final int MAX_RECOMMENDATIONS = 100;
+
+    private static final int APPROVED_WEIGHT = 2;
+    private static final int PARALLEL_PATHS = 1 << 16;
+
+    private final FriendGraph friendGraph;
+    private final int maxFanOut;
+    private final BoundedCache<Integer, int[]> cache;
+
+    @Autowired
+    public FriendRecommender(FriendGraph friendGraph,
+                             @Value("${filmorate.recommendations.cache-size:10000}") int cacheSize,
+                             @Value("${filmorate.recommendations.max-fan-out:10000}") int maxFanOut) {
+        this.friendGraph = friendGraph;
+        this.maxFanOut = maxFanOut;
+        this.cache = new BoundedCache<>(cacheSize);
+    }
+
+    /**
+     * Up to {@code limit} candidate ids, best first; equal scores go to the lower id.
+     */
+    public int[] recommend(int userId, int limit) {
+        final int[] ranked = cache.get(userId, this::rank);
+
+        return Arrays.copyOf(ranked, Math.min(limit, ranked.length));
+    }
+
+    public void invalidate(int userId) {
+        cache.invalidate(userId);
+    }
+
+    /**
+     * Call once the {@link FriendGraph} holds the change. Besides the two users' own rankings, a
+     * friend of either reaches candidates through them and is weighted by their friendships.
+     */
+    public void friendshipChanged(int userId, int friendId) {
+        cache.invalidate(userId);
+        cache.invalidate(friendId);
+        friendGraph.forEachFriend(userId, cache::invalidate);
+        friendGraph.forEachFriend(friendId, cache::invalidate);
+    }
+
+    private int[] rank(int userId) {
+        final int[] friends = friendGraph.friends(userId);
+        final CountTask task = new CountTask(userId, friends, 0, friends.length);
+        final IntCounter scores = task.paths() >= PARALLEL_PATHS
+                ? ForkJoinPool.commonPool().invoke(task)
+                : task.count();
+
+        return scores.top(MAX_RECOMMENDATIONS);
+    }
+
+    /**
+     * Scores the candidates reached through {@code friends[from..to)}, halving the range while it
+     * leads to {@value #PARALLEL_PATHS} paths or more.
+     */
+    private class CountTask extends RecursiveTask<IntCounter> {
+        private final int userId;
+        private final int[] friends;
+        private final int from;
+        private final int to;
+
+        private CountTask(int userId, int[] friends, int from, int to) {
+            this.userId = userId;
+            this.friends = friends;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntCounter compute() {
+            if (to - from < 2 || paths() < PARALLEL_PATHS) {
+                return count();
+            }
+
+            final int middle = (from + to) >>> 1;
+            final CountTask left = new CountTask(userId, friends, from, middle);
+            final CountTask right = new CountTask(userId, friends, middle, to);
+
+            left.fork();
+
+            final IntCounter rightScores = right.compute();
+            final IntCounter leftScores = left.join();
+
+            if (leftScores.size() < rightScores.size()) {
+                rightScores.addAll(leftScores);
+
+                return rightScores;
+            }
+
+            leftScores.addAll(rightScores);
+
+            return leftScores;
+        }
+
+        private long paths() {
+            long paths = 0;
+
+            for (int i = from; i < to; i++) {
+                final int degree = friendGraph.degree(friends[i]);
+
+                if (degree <= maxFanOut) {
+                    paths += degree;
+                }
+            }
+
+            return paths;
+        }
+
+        private IntCounter count() {
+            final IntCounter scores = new IntCounter();
+
+            for (int i = from; i < to; i++) {
+                final int friendId = friends[i];
+
+                if (friendGraph.degree(friendId) > maxFanOut) {
+                    continue;
+                }
+
+                final int viaFriend = friendGraph.contains(friendId, userId) ? APPROVED_WEIGHT : 1;
+
+                friendGraph.forEachFriend(friendId, candidateId -> {
+                    if (candidateId != userId && Arrays.binarySearch(friends, candidateId) < 0) {
+                        scores.add(candidateId,
+                                friendGraph.contains(candidateId, friendId) ? viaFriend * APPROVED_WEIGHT : viaFriend);
+                    }
+                });
+            }
+
+            return scores;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent ranking of ids by a counter.
+ *
+ * <p>Counters are {@link LongAdder}s, so writers on different cores do not contend on the same
+ * cache line. The ranking is a skip list of packed (count, id) keys that readers walk without locks.
+ * A writer that cannot grab the per-id lock leaves a dirty mark and the lock holder republishes the
+ * latest sum on its behalf, so writers never block each other either.
+ *
+ * <p>An id may also belong to partitions (for example a genre). A partition is just another skip list
+ * fed from the same counter, so partition rankings can never drift from the global one.
+ *
+ * <p>When {@code rankEmpty} is off, ids whose count drops to zero leave the ranking.
+ */
+public class Leaderboard {
+    private static final long[] NO_PARTITIONS = new long[0];
+
+    private final ConcurrentMap<Integer, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Long> ranking = newRanking();
+    private final ConcurrentMap<Long, Partition> partitions = new ConcurrentHashMap<>();
+    private final boolean rankEmpty;
+
+    public Leaderboard() {
+        this(true);
+    }
+
+    public Leaderboard(boolean rankEmpty) {
+        this.rankEmpty = rankEmpty;
+    }
+
+    public void register(int id) {
+        counters.computeIfAbsent(id, Counter::new).publish();
+    }
+
+    public void add(int id, long delta) {
+        final Counter counter = counters.computeIfAbsent(id, Counter::new);
+
+        counter.value.add(delta);
+        counter.publish();
+    }
+
+    public void setPartitions(int id, long[] keys) {
+        final long[] sorted = Arrays.stream(keys).sorted().distinct().toArray();
+
+        counters.computeIfAbsent(id, Counter::new).repartition(sorted);
+    }
+
+    public long count(int id) {
+        final Counter counter = counters.get(id);
+
+        return counter == null ? 0 : counter.value.sum();
+    }
+
+    public boolean contains(int id) {
+        return counters.containsKey(id);
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public List<Integer> top(int limit) {
+        return collect(ranking, limit, NO_PARTITIONS);
+    }
+
+    /**
+     * Top ids that belong to every given partition. The smallest partition is walked and the
+     * others are checked per id, so a narrow filter reads no more entries than it returns.
+     */
+    public List<Integer> top(int limit, long... required) {
+        if (required.length == 0) {
+            return top(limit);
+        }
+
+        Partition smallest = null;
+
+        for (long key : required) {
+            final Partition partition = partitions.get(key);
+
+            if (partition == null) {
+                return new ArrayList<>();
+            }
+
+            if (smallest == null || partition.members.get() < smallest.members.get()) {
+                smallest = partition;
+            }
+        }
+
+        return collect(smallest.ranking, limit, required);
+    }
+
+    public void clear() {
+        counters.clear();
+        ranking.clear();
+        partitions.clear();
+    }
+
+    static long keyOf(long count, int id) {
+        return (count << 32) | (~id & 0xFFFFFFFFL);
+    }
+
+    static int idOf(long key) {
+        return ~(int) key;
+    }
+
+    private List<Integer> collect(ConcurrentSkipListSet<Long> source, int limit, long[] required) {
+        final Set<Integer> ids = new LinkedHashSet<>();
+        final Iterator<Long> iterator = source.iterator();
+
+        while (ids.size() < limit && iterator.hasNext()) {
+            final int id = idOf(iterator.next());
+
+            if (required.length < 2 || belongsToAll(id, required)) {
+                ids.add(id);
+            }
+        }
+
+        return new ArrayList<>(ids);
+    }
+
+    private boolean belongsToAll(int id, long[] required) {
+        final Counter counter = counters.get(id);
+
+        if (counter == null) {
+            return false;
+        }
+
+        final long[] memberships = counter.partitionView;
+
+        for (long key : required) {
+            if (Arrays.binarySearch(memberships, key) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static ConcurrentSkipListSet<Long> newRanking() {
+        return new ConcurrentSkipListSet<>(Comparator.reverseOrder());
+    }
+
+    private static final class Partition {
+        private final ConcurrentSkipListSet<Long> ranking = newRanking();
+        private final AtomicInteger members = new AtomicInteger();
+    }
+
+    private final class Counter {
+        private final int id;
+        private final LongAdder value = new LongAdder();
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long[] partitionView = NO_PARTITIONS;
+        private long ranked;
+        private boolean published;
+
+        private Counter(int id) {
+            this.id = id;
+        }
+
+        private void publish() {
+            dirty.set(true);
+            drain();
+        }
+
+        private void drain() {
+            while (dirty.get() && lock.tryLock()) {
+                try {
+                    while (dirty.getAndSet(false)) {
+                        reconcile();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        private void repartition(long[] keys) {
+            lock.lock();
+            try {
+                final long[] previous = partitionView;
+
+                for (long key : previous) {
+                    if (Arrays.binarySearch(keys, key) < 0) {
+                        final Partition partition = partitions.get(key);
+
+                        if (published) {
+                            partition.ranking.remove(keyOf(ranked, id));
+                        }
+                        partition.members.decrementAndGet();
+                    }
+                }
+
+                for (long key : keys) {
+                    if (Arrays.binarySearch(previous, key) < 0) {
+                        final Partition partition = partitions.computeIfAbsent(key, k -> new Partition());
+
+                        partition.members.incrementAndGet();
+                        if (published) {
+                            partition.ranking.add(keyOf(ranked, id));
+                        }
+                    }
+                }
+
+                partitionView = keys;
+            } finally {
+                lock.unlock();
+            }
+
+            drain();
+        }
+
+        private void reconcile() {
+            final long current = value.sum();
+            final boolean visible = rankEmpty || current > 0;
+
+            if (published == visible && current == ranked) {
+                return;
+            }
+
+            move(ranking, visible, current);
+
+            for (long key : partitionView) {
+                move(partitions.get(key).ranking, visible, current);
+            }
+
+            ranked = current;
+            published = visible;
+        }
+
+        private void move(ConcurrentSkipListSet<Long> target, boolean visible, long current) {
+            // Insert the new key before dropping the old one so that readers never miss the id.
+            if (visible) {
+                target.add(keyOf(current, id));
+            }
+
+            if (published) {
+                target.remove(keyOf(ranked, id));
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.IntConsumer;
+
+import javax.annotation.PostConstruct;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.util.RoaringSet;
+
+/**
+ * Users who liked each film, as compressed bitmaps rebuilt from FAVORITE_FILMS on startup and
+ * kept current by {@link ru.yandex.practicum.filmorate.service.FilmService}.
+ *
+ * <p>The same likes are also kept by user, as sorted film id arrays replaced on every change, so
+ * the index reads as a sparse user x film matrix in either direction.
+ */
+@Slf4j
+@Component
+public class LikeIndex {
+    private static final int[] NONE = new int[0];
+
+    private final FilmStorage filmStorage;
+    private final ConcurrentMap<Integer, RoaringSet> likers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, int[]> likedFilms = new ConcurrentHashMap<>();
+
+    public LikeIndex(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        likers.clear();
+        likedFilms.clear();
+        filmStorage.forEachLikeSince(Instant.EPOCH, (filmId, userId, likedAt) -> like(filmId, userId));
+
+        log.info("Like index rebuilt for {} films", likers.size());
+    }
+
+    /**
+     * Returns false if the user already liked the film.
+     */
+    public boolean like(int filmId, int userId) {
+        if (!likers.computeIfAbsent(filmId, id -> new RoaringSet()).add(userId)) {
+            return false;
+        }
+
+        likedFilms.compute(userId, (id, films) -> inserting(films == null ? NONE : films, filmId));
+
+        return true;
+    }
+
+    /**
+     * Returns false if the user did not like the film.
+     */
+    public boolean unlike(int filmId, int userId) {
+        final RoaringSet users = likers.get(filmId);
+
+        if (users == null || !users.remove(userId)) {
+            return false;
+        }
+
+        likedFilms.computeIfPresent(userId, (id, films) -> removing(films, filmId));
+
+        return true;
+    }
+
+    public boolean isLiked(int filmId, int userId) {
+        final RoaringSet users = likers.get(filmId);
+
+        return users != null && users.contains(userId);
+    }
+
+    public int likes(int filmId) {
+        final RoaringSet users = likers.get(filmId);
+
+        return users == null ? 0 : users.size();
+    }
+
+    /**
+     * Films the user liked, ascending. The array is never modified.
+     */
+    public int[] likedFilms(int userId) {
+        return likedFilms.getOrDefault(userId, NONE);
+    }
+
+    /**
+     * Users who liked the film, ascending.
+     */
+    public int[] likers(int filmId) {
+        final RoaringSet users = likers.get(filmId);
+
+        return users == null ? NONE : users.toArray();
+    }
+
+    /**
+     * Visits users who liked the film in ascending order, as they were when the call started. The
+     * visit copies nothing and holds no lock, so the consumer may take its time or touch the index
+     * without stalling likes.
+     */
+    public void forEachLiker(int filmId, IntConsumer consumer) {
+        final RoaringSet users = likers.get(filmId);
+
+        if (users != null) {
+            users.forEach(consumer);
+        }
+    }
+
+    private static int[] inserting(int[] films, int filmId) {
+        final int index = Arrays.binarySearch(films, filmId);
+
+        if (index >= 0) {
+            return films;
+        }
+
+        final int[] inserted = new int[films.length + 1];
+        final int at = -index - 1;
+
+        System.arraycopy(films, 0, inserted, 0, at);
+        inserted[at] = filmId;
+        System.arraycopy(films, at, inserted, at + 1, films.length - at);
+
+        return inserted;
+    }
+
+    /**
+     * Returns null, dropping the user's entry, once the last film is removed.
+     */
+    private static int[] removing(int[] films, int filmId) {
+        final int index = Arrays.binarySearch(films, filmId);
+
+        if (index < 0) {
+            return films;
+        }
+
+        if (films.length == 1) {
+            return null;
+        }
+
+        final int[] removed = new int[films.length - 1];
+
+        System.arraycopy(films, 0, removed, 0, index);
+        System.arraycopy(films, index + 1, removed, index, films.length - index - 1);
+
+        return removed;
+    }
+}
@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+/**
+ * All-time like leaderboard of films, rebuilt from FAVORITE_FILMS on startup
+ * and kept current by {@link ru.yandex.practicum.filmorate.service.FilmService}.
+ *
+ * <p>Every film is also ranked inside its genre, MPA rating and release year partitions,
+ * so filtered requests walk a leaderboard that only holds matching films.
+ */
+@Slf4j
+@Component
+public class PopularityIndex {
+    private static final int GENRE = 1;
+    private static final int MPA = 2;
+    private static final int YEAR = 3;
+
+    private final FilmStorage filmStorage;
+    private final Leaderboard leaderboard = new Leaderboard();
+
+    public PopularityIndex(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        leaderboard.clear();
+        filmStorage.forEachFilmFacets((filmId, likes, mpaId, year, genreIds) -> {
+            leaderboard.add(filmId, likes);
+            leaderboard.setPartitions(filmId, partitionsOf(mpaId, year, genreIds));
+        });
+
+        log.info("Popularity index rebuilt for {} films", leaderboard.size());
+    }
+
+    public void register(Film film) {
+        leaderboard.register(film.getId());
+        leaderboard.setPartitions(film.getId(), partitionsOf(film));
+    }
+
+    public void like(int filmId) {
+        leaderboard.add(filmId, 1);
+    }
+
+    public void unlike(int filmId) {
+        leaderboard.add(filmId, -1);
+    }
+
+    public long likes(int filmId) {
+        return leaderboard.count(filmId);
+    }
+
+    public List<Integer> top(int limit) {
+        return leaderboard.top(limit);
+    }
+
+    public List<Integer> top(int limit, Integer genreId, Integer mpaId, Integer year) {
+        final List<Long> required = new ArrayList<>();
+
+        if (genreId != null) {
+            required.add(keyOf(GENRE, genreId));
+        }
+
+        if (mpaId != null) {
+            required.add(keyOf(MPA, mpaId));
+        }
+
+        if (year != null) {
+            required.add(keyOf(YEAR, year));
+        }
+
+        return leaderboard.top(limit, required.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    private static long[] partitionsOf(Film film) {
+        final int[] genreIds = film.getGenres() == null ? new int[0] : film.getGenres().ids();
+        final int mpaId = film.getMpa() == null ? 0 : film.getMpa().getId();
+        final int year = film.getReleaseDate() == null ? 0 : film.getReleaseDate().getYear();
+
+        return partitionsOf(mpaId, year, genreIds);
+    }
+
+    private static long[] partitionsOf(int mpaId, int year, int[] genreIds) {
+        final long[] keys = new long[genreIds.length + 2];
+
+        for (int i = 0; i < genreIds.length; i++) {
+            keys[i] = keyOf(GENRE, genreIds[i]);
+        }
+
+        keys[genreIds.length] = keyOf(MPA, mpaId);
+        keys[genreIds.length + 1] = keyOf(YEAR, year);
+
+        return keys;
+    }
+
+    private static long keyOf(int type, int value) {
+        return ((long) type << 32) | (value & 0xFFFFFFFFL);
+    }
+}
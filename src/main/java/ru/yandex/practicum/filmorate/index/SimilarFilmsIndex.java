@@ -0,0 +1,416 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.util.IntCounter;
+
+/**
+ * "Films like this": the top {@code neighbours} films for every film, ranked by how many users
+ * liked both, with each co-like weighted up by one for every genre the films share and one more
+ * for the same MPA rating.
+ *
+ * <p>The lists are built in the background every {@code refreshInterval} by a fork/join pass over
+ * the {@link LikeIndex}, written to {@code path} and memory-mapped from there; each build replaces
+ * the file atomically and swaps the new mapping in, so readers never see a half-built index. A
+ * restart maps the last file and serves it straight away, provided the film count, highest film
+ * id and like count recorded in its header still match the tables; otherwise it serves nothing
+ * until the next build, which is then due at once. Users with more than {@code maxUserLikes}
+ * likes are left out of the pass: each of them costs the square of their likes and says little
+ * about any pair of films. A zero interval disables background builds.
+ *
+ * <p>The index does not follow likes or films added since its build; its age is published as the
+ * {@code index.age} gauge tagged {@code index=similar-films}.
+ */
+@Slf4j
+@Component
+public class SimilarFilmsIndex {
+    private static final String NAME = "similar-films";
+    private static final int MAGIC = 0x53494D46;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 6 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int FILMS_PER_TASK = 64;
+
+    private final FilmStorage filmStorage;
+    private final LikeIndex likeIndex;
+    private final Path path;
+    private final Duration refreshInterval;
+    private final int neighbours;
+    private final int maxUserLikes;
+    private final ScheduledExecutorService builder = Executors.newSingleThreadScheduledExecutor(task -> {
+        final Thread thread = new Thread(task, "similar-films-index");
+
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    @Autowired
+    public SimilarFilmsIndex(FilmStorage filmStorage,
+                             LikeIndex likeIndex,
+                             MeterRegistry meterRegistry,
+                             @Value("${filmorate.similar.path:./db/similar-films.idx}") Path path,
+                             @Value("${filmorate.similar.refresh-interval:1h}") Duration refreshInterval,
+                             @Value("${filmorate.similar.neighbours:20}") int neighbours,
+                             @Value("${filmorate.similar.max-user-likes:1000}") int maxUserLikes) {
+        this.filmStorage = filmStorage;
+        this.likeIndex = likeIndex;
+        this.path = path;
+        this.refreshInterval = refreshInterval;
+        this.neighbours = neighbours;
+        this.maxUserLikes = maxUserLikes;
+
+        TimeGauge.builder("index.age", this, TimeUnit.SECONDS, SimilarFilmsIndex::ageSeconds)
+                .tags("index", NAME)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Maps the index left by the previous run, if any, and schedules the next build when it is due.
+     */
+    @PostConstruct
+    public void start() {
+        if (Files.exists(path)) {
+            try {
+                final Snapshot mapped = Snapshot.map(path);
+                final FilmStorage.CatalogFingerprint current = filmStorage.catalogFingerprint();
+
+                if (mapped.fingerprint.equals(current)) {
+                    snapshot = mapped;
+                    log.info("Similar films index mapped from {}, built at {}", path, snapshot.builtAt);
+                } else {
+                    log.info("Similar films index at {} was built for {}, not {}, and will be rebuilt", path,
+                            mapped.fingerprint, current);
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.warn("Similar films index at {} could not be mapped and will be rebuilt", path, e);
+            }
+        }
+
+        if (refreshInterval.isZero()) {
+            return;
+        }
+
+        final Duration age = age();
+        final long delay = age == null ? 0 : Math.max(0, refreshInterval.minus(age).toMillis());
+
+        builder.scheduleWithFixedDelay(this::rebuildQuietly, delay, refreshInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        builder.shutdownNow();
+    }
+
+    /**
+     * Builds the index from the current likes, writes it and swaps it in.
+     */
+    public void rebuild() {
+        final long started = System.nanoTime();
+        final Facets facets = new Facets();
+
+        filmStorage.forEachFilmFacets((filmId, likes, mpaId, year, genreIds) ->
+                facets.put(filmId, likes, mpaId, genreIds));
+
+        final int[][] lists = new int[facets.mpaIds.length][];
+
+        ForkJoinPool.commonPool().invoke(new BuildTask(facets, lists, 0, lists.length));
+
+        final Instant builtAt = Instant.now();
+
+        try {
+            write(lists, builtAt, facets.fingerprint());
+            snapshot = Snapshot.map(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        log.info("Similar films index rebuilt for {} films in {} ms", facets.films,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Up to {@code limit} film ids, most similar first.
+     */
+    public int[] similar(int filmId, int limit) {
+        return snapshot.neighbours(filmId, limit);
+    }
+
+    /**
+     * Time since the index in use was built, or null if there is none yet.
+     */
+    public Duration age() {
+        final Instant builtAt = snapshot.builtAt;
+
+        return builtAt == null ? null : Duration.between(builtAt, Instant.now());
+    }
+
+    private double ageSeconds() {
+        final Duration age = age();
+
+        return age == null ? Double.NaN : age.toMillis() / 1000.0;
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Similar films index rebuild failed", e);
+        }
+    }
+
+    private int[] neighboursOf(int filmId, Facets facets) {
+        final IntCounter coLikes = new IntCounter();
+
+        for (int userId : likeIndex.likers(filmId)) {
+            final int[] liked = likeIndex.likedFilms(userId);
+
+            if (liked.length > maxUserLikes) {
+                continue;
+            }
+
+            for (int otherId : liked) {
+                if (otherId != filmId && facets.contains(otherId)) {
+                    coLikes.add(otherId, 1);
+                }
+            }
+        }
+
+        final IntCounter scores = new IntCounter(coLikes.size());
+
+        coLikes.forEach((otherId, count) -> scores.add(otherId, count * (1 + facets.shared(filmId, otherId))));
+
+        return scores.top(neighbours);
+    }
+
+    /**
+     * Writes to a temporary file next to {@code path} and moves it over, so the file at {@code path}
+     * is always complete and mappings of the old one stay valid.
+     */
+    private void write(int[][] lists, Instant builtAt, FilmStorage.CatalogFingerprint fingerprint)
+            throws IOException {
+        final Path directory = path.toAbsolutePath().getParent();
+
+        Files.createDirectories(directory);
+
+        final Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        int total = 0;
+
+        for (int[] list : lists) {
+            total += list == null ? 0 : list.length;
+        }
+
+        try {
+            try (DataOutputStream out =
+                         new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(lists.length);
+                out.writeLong(builtAt.toEpochMilli());
+                out.writeInt(fingerprint.getFilms());
+                out.writeInt(fingerprint.getMaxFilmId());
+                out.writeLong(fingerprint.getLikes());
+                out.writeInt(total);
+
+                int offset = 0;
+
+                out.writeInt(offset);
+                for (int[] list : lists) {
+                    offset += list == null ? 0 : list.length;
+                    out.writeInt(offset);
+                }
+
+                for (int[] list : lists) {
+                    if (list != null) {
+                        for (int filmId : list) {
+                            out.writeInt(filmId);
+                        }
+                    }
+                }
+            }
+
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * MPA rating and genres of every film, indexed by film id.
+     */
+    private static final class Facets {
+        private int[] mpaIds = new int[0];
+        private int[][] genreIds = new int[0][];
+        private int films;
+        private int maxFilmId;
+        private long likes;
+
+        private void put(int filmId, long filmLikes, int mpaId, int[] genres) {
+            if (filmId >= mpaIds.length) {
+                final int capacity = Math.max(filmId + 1, mpaIds.length * 2);
+
+                mpaIds = Arrays.copyOf(mpaIds, capacity);
+                genreIds = Arrays.copyOf(genreIds, capacity);
+            }
+
+            mpaIds[filmId] = mpaId;
+            genreIds[filmId] = genres;
+            films++;
+            maxFilmId = Math.max(maxFilmId, filmId);
+            likes += filmLikes;
+        }
+
+        private FilmStorage.CatalogFingerprint fingerprint() {
+            return new FilmStorage.CatalogFingerprint(films, maxFilmId, likes);
+        }
+
+        private boolean contains(int filmId) {
+            return filmId < genreIds.length && genreIds[filmId] != null;
+        }
+
+        /**
+         * Genres both films have, plus one if they share a known MPA rating.
+         */
+        private int shared(int filmId, int otherId) {
+            int shared = mpaIds[filmId] != 0 && mpaIds[filmId] == mpaIds[otherId] ? 1 : 0;
+
+            for (int genreId : genreIds[filmId]) {
+                for (int otherGenreId : genreIds[otherId]) {
+                    if (genreId == otherGenreId) {
+                        shared++;
+                    }
+                }
+            }
+
+            return shared;
+        }
+    }
+
+    private class BuildTask extends RecursiveAction {
+        private final Facets facets;
+        private final int[][] lists;
+        private final int from;
+        private final int to;
+
+        private BuildTask(Facets facets, int[][] lists, int from, int to) {
+            this.facets = facets;
+            this.lists = lists;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= FILMS_PER_TASK) {
+                for (int filmId = from; filmId < to; filmId++) {
+                    if (facets.contains(filmId)) {
+                        lists[filmId] = neighboursOf(filmId, facets);
+                    }
+                }
+
+                return;
+            }
+
+            final int middle = (from + to) >>> 1;
+
+            invokeAll(new BuildTask(facets, lists, from, middle), new BuildTask(facets, lists, middle, to));
+        }
+    }
+
+    /**
+     * A mapped index file: the header, then offsets indexed by film id into the neighbour ids that
+     * follow, as in a compressed sparse row.
+     */
+    private static final class Snapshot {
+        private static final Snapshot EMPTY =
+                new Snapshot(IntBuffer.wrap(new int[]{0}), IntBuffer.allocate(0), null, null);
+
+        private final IntBuffer offsets;
+        private final IntBuffer neighbours;
+        private final Instant builtAt;
+        private final FilmStorage.CatalogFingerprint fingerprint;
+
+        private Snapshot(IntBuffer offsets, IntBuffer neighbours, Instant builtAt,
+                         FilmStorage.CatalogFingerprint fingerprint) {
+            this.offsets = offsets;
+            this.neighbours = neighbours;
+            this.builtAt = builtAt;
+            this.fingerprint = fingerprint;
+        }
+
+        private static Snapshot map(Path path) throws IOException {
+            final MappedByteBuffer buffer;
+
+            try (FileChannel channel = FileChannel.open(path)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IllegalStateException("Not a similar films index");
+            }
+
+            final int films = buffer.getInt();
+            final Instant builtAt = Instant.ofEpochMilli(buffer.getLong());
+            final FilmStorage.CatalogFingerprint fingerprint =
+                    new FilmStorage.CatalogFingerprint(buffer.getInt(), buffer.getInt(), buffer.getLong());
+            final int total = buffer.getInt();
+
+            if (buffer.remaining() != ((long) films + 1 + total) * Integer.BYTES) {
+                throw new IllegalStateException("Truncated similar films index");
+            }
+
+            final IntBuffer ints = buffer.asIntBuffer();
+
+            return new Snapshot(ints.duplicate().limit(films + 1).slice(),
+                    ints.duplicate().position(films + 1).slice(), builtAt, fingerprint);
+        }
+
+        /**
+         * Absolute reads only, so concurrent readers share the buffers safely.
+         */
+        private int[] neighbours(int filmId, int limit) {
+            if (filmId < 0 || filmId >= offsets.limit() - 1) {
+                return new int[0];
+            }
+
+            final int from = offsets.get(filmId);
+            final int[] ids = new int[Math.min(limit, offsets.get(filmId + 1) - from)];
+
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = neighbours.get(from + i);
+            }
+
+            return ids;
+        }
+    }
+}
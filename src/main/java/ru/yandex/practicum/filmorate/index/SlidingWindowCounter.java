@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-film like counts over a sliding time window.
+ *
+ * <p>The window is a ring of time buckets. Each bucket keeps the deltas that happened in it and
+ * {@code totals} holds their running sum per film. When the clock moves past a bucket only the films
+ * recorded in that bucket are subtracted, so expiry never rescans the whole window.
+ */
+public class SlidingWindowCounter {
+    private final long bucketMillis;
+    private final Map<Integer, LongAdder>[] ring;
+    private final Leaderboard totals = new Leaderboard(false);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile long headEpoch;
+
+    @SuppressWarnings("unchecked")
+    public SlidingWindowCounter(Duration length, int buckets, Instant now) {
+        this.bucketMillis = length.toMillis() / buckets;
+        this.ring = new Map[buckets];
+        this.headEpoch = epochOf(now);
+
+        for (int i = 0; i < buckets; i++) {
+            ring[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    public void add(int filmId, Instant at, long delta, Instant now) {
+        advance(now);
+
+        lock.readLock().lock();
+        try {
+            final long head = headEpoch;
+            final long epoch = Math.min(epochOf(at), head);
+
+            if (epoch <= head - ring.length) {
+                return;
+            }
+
+            ring[slotOf(epoch)].computeIfAbsent(filmId, id -> new LongAdder()).add(delta);
+            totals.add(filmId, delta);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> top(int limit, Instant now) {
+        advance(now);
+
+        return totals.top(limit);
+    }
+
+    public long count(int filmId, Instant now) {
+        advance(now);
+
+        return totals.count(filmId);
+    }
+
+    private void advance(Instant now) {
+        final long epoch = epochOf(now);
+
+        if (epoch <= headEpoch) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            final long head = headEpoch;
+
+            if (epoch <= head) {
+                return;
+            }
+
+            final long expired = Math.min(epoch - head, ring.length);
+
+            for (long e = head + 1; e <= head + expired; e++) {
+                final Map<Integer, LongAdder> bucket = ring[slotOf(e)];
+
+                bucket.forEach((filmId, count) -> totals.add(filmId, -count.sum()));
+                bucket.clear();
+            }
+
+            headEpoch = epoch;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long epochOf(Instant instant) {
+        return instant.toEpochMilli() / bucketMillis;
+    }
+
+    private int slotOf(long epoch) {
+        return (int) Math.floorMod(epoch, (long) ring.length);
+    }
+}
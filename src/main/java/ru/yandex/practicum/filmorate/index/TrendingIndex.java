@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+/**
+ * Like leaderboards over the last hour, day and week, rebuilt from the
+ * FAVORITE_FILMS timestamps on startup.
+ */
+@Slf4j
+@Component
+public class TrendingIndex {
+    private final FilmStorage filmStorage;
+    private final Clock clock;
+    private final Map<TrendingWindow, SlidingWindowCounter> windows = new EnumMap<>(TrendingWindow.class);
+
+    @Autowired
+    public TrendingIndex(FilmStorage filmStorage) {
+        this(filmStorage, Clock.systemUTC());
+    }
+
+    public TrendingIndex(FilmStorage filmStorage, Clock clock) {
+        this.filmStorage = filmStorage;
+        this.clock = clock;
+        reset(clock.instant());
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        final Instant now = clock.instant();
+        final Instant since = now.minus(TrendingWindow.WEEK.getLength());
+        final int[] likes = new int[1];
+
+        reset(now);
+        filmStorage.forEachLikeSince(since, (filmId, userId, likedAt) -> {
+            windows.values().forEach(window -> window.add(filmId, likedAt, 1, now));
+            likes[0]++;
+        });
+
+        log.info("Trending index rebuilt from {} likes", likes[0]);
+    }
+
+    public void like(int filmId, Instant likedAt) {
+        final Instant now = clock.instant();
+
+        windows.values().forEach(window -> window.add(filmId, likedAt, 1, now));
+    }
+
+    public void unlike(int filmId, Instant likedAt) {
+        final Instant now = clock.instant();
+
+        windows.values().forEach(window -> window.add(filmId, likedAt, -1, now));
+    }
+
+    public List<Integer> top(TrendingWindow window, int limit) {
+        return windows.get(window).top(limit, clock.instant());
+    }
+
+    public long likes(TrendingWindow window, int filmId) {
+        return windows.get(window).count(filmId, clock.instant());
+    }
+
+    private void reset(Instant now) {
+        for (TrendingWindow window : TrendingWindow.values()) {
+            windows.put(window, new SlidingWindowCounter(window.getLength(), window.getBuckets(), now));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import javax.validation.ValidationException;
+
+public enum TrendingWindow {
+    HOUR("1h", Duration.ofHours(1), 60),
+    DAY("24h", Duration.ofDays(1), 96),
+    WEEK("7d", Duration.ofDays(7), 168);
+
+    private final String code;
+    private final Duration length;
+    private final int buckets;
+
+    TrendingWindow(String code, Duration length, int buckets) {
+        this.code = code;
+        this.length = length;
+        this.buckets = buckets;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Duration getLength() {
+        return length;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public static TrendingWindow fromCode(String code) {
+        return Arrays.stream(values())
+                .filter(window -> window.code.equals(code))
+                .findFirst()
+                .orElseThrow(() -> new ValidationException(String.format("Unknown trending window %s", code)));
+    }
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.index;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.PrefixIndex;
+
+/**
+ * Completes user logins and names, users with more friends first. Rebuilt from USERS on startup
+ * and kept current by {@link ru.yandex.practicum.filmorate.service.UserService}; friend counts come
+ * from the {@link FriendGraph}.
+ */
+@Slf4j
+@Component
+public class UserAutocompleteIndex {
+    private final UserStorage userStorage;
+    private final FriendGraph friendGraph;
+    private final PrefixIndex index;
+
+    @Autowired
+    public UserAutocompleteIndex(UserStorage userStorage,
+                                 FriendGraph friendGraph,
+                                 @Value("${filmorate.autocomplete.compact-after:10000}") int compactAfter) {
+        this.userStorage = userStorage;
+        this.friendGraph = friendGraph;
+        this.index = new PrefixIndex("user-autocomplete", compactAfter);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        index.rebuild(loader -> userStorage.forEachUser(user ->
+                loader.add(user.getId(), friendGraph.degree(user.getId()), user.getLogin(), user.getName())));
+
+        log.info("User autocomplete index rebuilt with {} keys in {} KiB", index.size(), index.bytes() / 1024);
+    }
+
+    @PreDestroy
+    public void close() {
+        index.close();
+    }
+
+    public void index(User user) {
+        index.put(user.getId(), user.getLogin(), user.getName());
+    }
+
+    /**
+     * Picks up a change to the number of friends the user lists.
+     */
+    public void updateFriendCount(int userId) {
+        index.setWeight(userId, () -> friendGraph.degree(userId));
+    }
+
+    /**
+     * Up to {@code limit} user ids, most friends first.
+     */
+    public int[] complete(String prefix, int limit) {
+        return index.complete(prefix, limit);
+    }
+}
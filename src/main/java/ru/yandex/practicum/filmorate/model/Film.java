@@ -1,13 +1,13 @@
 package ru.yandex.practicum.filmorate.model;
 
 import java.time.LocalDate;
-import java.util.HashSet;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
@@ -37,8 +37,11 @@ public class Film {
     @NotNull
     private final Mpa mpa;
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long likes;
+
     @Builder.Default
-    private final HashSet<Genre> genres = new HashSet<>();
+    private final GenreSet genres = new GenreSet();
 
     public void addGenre(Genre genre) {
         genres.add(genre);
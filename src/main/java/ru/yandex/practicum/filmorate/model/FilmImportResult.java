@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.List;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder(toBuilder = true, access = AccessLevel.PUBLIC)
+public class FilmImportResult {
+    private final List<Integer> createdIds;
+
+    private final List<ItemError> errors;
+
+    private final long elapsedMillis;
+
+    private final double rowsPerSecond;
+
+    @Data
+    public static class ItemError {
+        private final int index;
+
+        private final List<String> messages;
+    }
+}
@@ -5,16 +5,21 @@ import javax.validation.constraints.Size;
 
 import lombok.AccessLevel;
 import lombok.Builder;
-import lombok.Data;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
-@Data
+/**
+ * Immutable, so storages hand out one shared instance per id instead of allocating one per row.
+ */
+@Value
+@Jacksonized
 @Builder(toBuilder = true, access = AccessLevel.PUBLIC)
 public class Genre {
-    private Integer id;
+    Integer id;
 
     @NotBlank(message = "Genre name should not be blank")
     @Size(max = 255, message = "Genre name should not be longer than 255 characters")
-    private String name;
+    String name;
 
     public static Genre of(int id) {
         return Genre.builder()
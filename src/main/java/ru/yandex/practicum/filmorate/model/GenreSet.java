@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Genres of one film, unique by id and kept sorted by id in a plain array.
+ *
+ * <p>A film has a handful of genres, so binary search over an exactly sized array beats a
+ * {@link java.util.HashSet}, which costs a map, a table and a node per genre.
+ */
+public class GenreSet extends AbstractSet<Genre> {
+    private static final Genre[] EMPTY = new Genre[0];
+    private static final Comparator<Genre> BY_ID = Comparator.comparing(Genre::getId,
+            Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private Genre[] genres = EMPTY;
+
+    public GenreSet() {
+    }
+
+    public GenreSet(Collection<Genre> genres) {
+        genres.forEach(this::add);
+    }
+
+    @Override
+    public boolean add(Genre genre) {
+        final int index = Arrays.binarySearch(genres, genre, BY_ID);
+
+        if (index >= 0) {
+            return false;
+        }
+
+        final int position = -index - 1;
+        final Genre[] grown = new Genre[genres.length + 1];
+
+        System.arraycopy(genres, 0, grown, 0, position);
+        grown[position] = genre;
+        System.arraycopy(genres, position, grown, position + 1, genres.length - position);
+        genres = grown;
+
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Genre)) {
+            return false;
+        }
+
+        final int index = Arrays.binarySearch(genres, (Genre) o, BY_ID);
+
+        return index >= 0 && genres[index].equals(o);
+    }
+
+    public boolean containsId(int id) {
+        int low = 0;
+        int high = genres.length - 1;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final Integer middleId = genres[middle].getId();
+
+            if (middleId == null || middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Genre ids in ascending order.
+     */
+    public int[] ids() {
+        final int[] ids = new int[genres.length];
+
+        for (int i = 0; i < genres.length; i++) {
+            ids[i] = genres[i].getId();
+        }
+
+        return ids;
+    }
+
+    @Override
+    public int size() {
+        return genres.length;
+    }
+
+    @Override
+    public Iterator<Genre> iterator() {
+        final Genre[] snapshot = genres;
+
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.length;
+            }
+
+            @Override
+            public Genre next() {
+                if (next >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+
+                return snapshot[next++];
+            }
+        };
+    }
+}
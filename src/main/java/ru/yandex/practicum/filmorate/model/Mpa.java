@@ -5,16 +5,21 @@ import javax.validation.constraints.Size;
 
 import lombok.AccessLevel;
 import lombok.Builder;
-import lombok.Data;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
-@Data
+/**
+ * Immutable like {@link Genre}: every film with the same rating points at one instance.
+ */
+@Value
+@Jacksonized
 @Builder(toBuilder = true, access = AccessLevel.PUBLIC)
 public class Mpa {
-    private Integer id;
+    Integer id;
 
     @NotBlank(message = "Mpa name should not be blank")
     @Size(max = 255, message = "Mpa name should not be longer than 255 characters")
-    private String name;
+    String name;
 
     public static Mpa of(int id) {
         return Mpa.builder()
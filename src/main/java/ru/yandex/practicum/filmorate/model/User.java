@@ -1,8 +1,6 @@
 package ru.yandex.practicum.filmorate.model;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
@@ -11,7 +9,8 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.PastOrPresent;
 import javax.validation.constraints.Pattern;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
@@ -38,9 +37,12 @@ public class User {
     @NotNull
     private final LocalDate birthday;
 
-    @Builder.Default
-    @JsonIgnore
-    private final Set<Integer> friends = new HashSet<>();
+    /**
+     * Friends shared with the user whose friend list this user was listed in; only set on request.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer mutualFriends;
 
     public String getName() {
         return name == null || name.isBlank() ? login : name;
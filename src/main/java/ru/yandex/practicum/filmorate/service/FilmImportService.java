@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ru.yandex.practicum.filmorate.index.FilmAutocompleteIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportResult;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.MpaStorage;
+
+/**
+ * Bulk film import. Films are validated in parallel, and the valid ones are inserted in chunks of
+ * {@code filmorate.import.chunk-size}. Each chunk is its own transaction, so a failing chunk only
+ * rejects its own films.
+ */
+@Slf4j
+@Service
+public class FilmImportService {
+    private final FilmStorage filmStorage;
+    private final GenreStorage genreStorage;
+    private final MpaStorage mpaStorage;
+    private final PopularityIndex popularityIndex;
+    private final FilmSearchIndex filmSearchIndex;
+    private final FilmAutocompleteIndex filmAutocompleteIndex;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public FilmImportService(FilmStorage filmStorage, GenreStorage genreStorage, MpaStorage mpaStorage,
+                             PopularityIndex popularityIndex, FilmSearchIndex filmSearchIndex,
+                             FilmAutocompleteIndex filmAutocompleteIndex, Validator validator,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${filmorate.import.chunk-size:1000}") int chunkSize) {
+        this.filmStorage = filmStorage;
+        this.genreStorage = genreStorage;
+        this.mpaStorage = mpaStorage;
+        this.popularityIndex = popularityIndex;
+        this.filmSearchIndex = filmSearchIndex;
+        this.filmAutocompleteIndex = filmAutocompleteIndex;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    public FilmImportResult importFilms(List<Film> films) {
+        final long started = System.nanoTime();
+        final Set<Integer> mpaIds = mpaStorage.findAll().stream().map(Mpa::getId).collect(Collectors.toSet());
+        final Set<Integer> genreIds = genreStorage.findAll().stream().map(Genre::getId).collect(Collectors.toSet());
+        final List<List<String>> violations = IntStream.range(0, films.size())
+                .parallel()
+                .mapToObj(i -> validate(films.get(i), mpaIds, genreIds))
+                .collect(Collectors.toList());
+
+        final List<Integer> createdIds = new ArrayList<>();
+        final List<FilmImportResult.ItemError> errors = new ArrayList<>();
+        final List<Integer> chunk = new ArrayList<>(chunkSize);
+
+        for (int i = 0; i < films.size(); i++) {
+            if (!violations.get(i).isEmpty()) {
+                errors.add(new FilmImportResult.ItemError(i, violations.get(i)));
+                continue;
+            }
+
+            chunk.add(i);
+
+            if (chunk.size() == chunkSize) {
+                importChunk(films, chunk, createdIds, errors);
+                chunk.clear();
+            }
+        }
+
+        importChunk(films, chunk, createdIds, errors);
+
+        final long elapsedNanos = Math.max(System.nanoTime() - started, 1);
+        final double rowsPerSecond = createdIds.size() * 1e9 / elapsedNanos;
+
+        log.info("Imported {} of {} films in {} ms ({} rows/s)", createdIds.size(), films.size(),
+                elapsedNanos / 1_000_000, Math.round(rowsPerSecond));
+
+        errors.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+
+        return FilmImportResult.builder()
+                .createdIds(createdIds)
+                .errors(errors)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .rowsPerSecond(rowsPerSecond)
+                .build();
+    }
+
+    private void importChunk(List<Film> films, List<Integer> chunk, List<Integer> createdIds,
+                             List<FilmImportResult.ItemError> errors) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        final List<Film> batch = chunk.stream().map(films::get).collect(Collectors.toList());
+
+        try {
+            final List<Integer> ids = transactionTemplate.execute(status -> filmStorage.addAll(batch));
+
+            for (int i = 0; i < batch.size(); i++) {
+                final Film film = batch.get(i).toBuilder().id(ids.get(i)).build();
+
+                popularityIndex.register(film);
+                filmSearchIndex.index(film);
+                filmAutocompleteIndex.index(film);
+            }
+
+            createdIds.addAll(ids);
+        } catch (DataAccessException e) {
+            log.warn("Film import chunk of {} rolled back", batch.size(), e);
+
+            final List<String> messages = List.of("Import chunk rolled back: " + e.getMostSpecificCause().getMessage());
+
+            chunk.forEach(index -> errors.add(new FilmImportResult.ItemError(index, messages)));
+        }
+    }
+
+    private List<String> validate(Film film, Set<Integer> mpaIds, Set<Integer> genreIds) {
+        if (film == null) {
+            return List.of("Film should not be null");
+        }
+
+        final Set<ConstraintViolation<Film>> violations = validator.validate(film);
+
+        if (violations.isEmpty()) {
+            final List<String> messages = new ArrayList<>();
+
+            if (film.getMpa().getId() == null || !mpaIds.contains(film.getMpa().getId())) {
+                messages.add(String.format("Mpa with id %s not found", film.getMpa().getId()));
+            }
+
+            if (film.getGenres() == null) {
+                return messages;
+            }
+
+            film.getGenres().stream()
+                    .map(Genre::getId)
+                    .filter(id -> id == null || !genreIds.contains(id))
+                    .distinct()
+                    .forEach(id -> messages.add(String.format("Genre with id %s not found", id)));
+
+            return messages;
+        }
+
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
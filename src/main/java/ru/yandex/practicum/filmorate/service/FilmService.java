@@ -1,104 +1,265 @@
 package ru.yandex.practicum.filmorate.service;
 
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 
+import ru.yandex.practicum.filmorate.cache.FilmCache;
 import ru.yandex.practicum.filmorate.exception.NoSuchModelException;
+import ru.yandex.practicum.filmorate.index.FilmAutocompleteIndex;
+import ru.yandex.practicum.filmorate.index.FilmRecommender;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.index.SimilarFilmsIndex;
+import ru.yandex.practicum.filmorate.index.TrendingIndex;
+import ru.yandex.practicum.filmorate.index.TrendingWindow;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 @Service
 public class FilmService {
+    private static final int LIKE_LOCK_STRIPES = 64;
+
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
-    private final GenreStorage genreStorage;
+    private final PopularityIndex popularityIndex;
+    private final TrendingIndex trendingIndex;
+    private final LikeIndex likeIndex;
+    private final FilmRecommender filmRecommender;
+    private final SimilarFilmsIndex similarFilmsIndex;
+    private final FilmSearchIndex filmSearchIndex;
+    private final FilmAutocompleteIndex filmAutocompleteIndex;
+    private final FilmCache filmCache;
+    private final ReentrantLock[] likeLocks = new ReentrantLock[LIKE_LOCK_STRIPES];
 
-    public FilmService(FilmStorage filmStorage, UserStorage userStorage, GenreStorage genreStorage) {
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, PopularityIndex popularityIndex,
+                       TrendingIndex trendingIndex, LikeIndex likeIndex, FilmRecommender filmRecommender,
+                       SimilarFilmsIndex similarFilmsIndex, FilmSearchIndex filmSearchIndex,
+                       FilmAutocompleteIndex filmAutocompleteIndex, FilmCache filmCache) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
-        this.genreStorage = genreStorage;
+        this.popularityIndex = popularityIndex;
+        this.trendingIndex = trendingIndex;
+        this.likeIndex = likeIndex;
+        this.filmRecommender = filmRecommender;
+        this.similarFilmsIndex = similarFilmsIndex;
+        this.filmSearchIndex = filmSearchIndex;
+        this.filmAutocompleteIndex = filmAutocompleteIndex;
+        this.filmCache = filmCache;
+
+        for (int i = 0; i < LIKE_LOCK_STRIPES; i++) {
+            likeLocks[i] = new ReentrantLock();
+        }
     }
 
     public List<Film> findAll() {
-        List<Film> films = filmStorage.findAll();
+        return withLikes(filmStorage.findAll());
+    }
 
-        genreStorage.fetchFilmGenres(films);
+    public List<Film> findAll(int afterId, int limit) {
+        return withLikes(filmStorage.findAllAfter(afterId, limit));
+    }
 
-        return films;
+    public void forEachFilm(Consumer<Film> consumer) {
+        filmStorage.forEachFilm(film -> consumer.accept(withLikes(film)));
     }
 
     public Film findOneById(int filmId) {
-        final Optional<Film> optFilm = filmStorage.findOneById(filmId);
-
-        if (optFilm.isPresent()) {
-            Film film = optFilm.get();
-
-            genreStorage.fetchFilmGenres(film);
+        final Optional<Film> optFilm = filmCache.findOneById(filmId);
 
-            return film;
-        }
-
-        throw new NoSuchModelException(String.format("Film with id %s not found", filmId));
+        return withLikes(optFilm.orElseThrow(
+                () -> new NoSuchModelException(String.format("Film with id %s not found", filmId))));
     }
 
     public Film add(Film film) {
         final Film addedFilm = filmStorage.add(film);
 
-        genreStorage.fetchFilmGenres(addedFilm);
+        popularityIndex.register(addedFilm);
+        filmSearchIndex.index(addedFilm);
+        filmAutocompleteIndex.index(addedFilm);
 
-        return addedFilm;
+        return withLikes(addedFilm);
     }
 
     public Film update(Film film) {
         final Film updatedFilm = filmStorage.update(film);
 
-        genreStorage.fetchFilmGenres(updatedFilm);
+        filmCache.invalidate(updatedFilm.getId());
+        popularityIndex.register(updatedFilm);
+        filmSearchIndex.index(updatedFilm);
+        filmAutocompleteIndex.index(updatedFilm);
 
-        return updatedFilm;
+        return withLikes(updatedFilm);
     }
 
     public List<Film> getPopularFilms(int count) {
-        return filmStorage.getPopularFilms(count);
+        return findAllByIdsOrdered(popularityIndex.top(count));
+    }
+
+    public List<Film> getPopularFilms(int count, Integer genreId, Integer mpaId, Integer year) {
+        return findAllByIdsOrdered(popularityIndex.top(count, genreId, mpaId, year));
+    }
+
+    /**
+     * Films whose name or description contains every word of the query, best match first.
+     */
+    public List<Film> search(String query, Integer genreId, Integer mpaId, int count) {
+        return findAllByIdsOrdered(Arrays.stream(filmSearchIndex.search(query, genreId, mpaId, count))
+                .boxed()
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Films with a word of their name starting with the prefix, most liked first.
+     */
+    public List<Film> autocomplete(String prefix, int count) {
+        return findAllByIdsOrdered(Arrays.stream(filmAutocompleteIndex.complete(prefix, count))
+                .boxed()
+                .collect(Collectors.toList()));
+    }
+
+    public List<Film> getTrendingFilms(TrendingWindow window, int count) {
+        return findAllByIdsOrdered(trendingIndex.top(window, count));
+    }
+
+    public List<Film> getRecommendedFilms(int userId, int count) {
+        requireUser(userId);
+
+        return findAllByIdsOrdered(Arrays.stream(filmRecommender.recommend(userId, count))
+                .boxed()
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Served from the last build of the similar films index, so films and likes added since are
+     * not reflected yet.
+     */
+    public List<Film> getSimilarFilms(int filmId, int count) {
+        requireFilm(filmId);
+
+        return findAllByIdsOrdered(Arrays.stream(similarFilmsIndex.similar(filmId, count))
+                .boxed()
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Recomputes the like counters from FAVORITE_FILMS and reloads the popularity index from them.
+     */
+    public void rebuildLikeCounters() {
+        filmStorage.rebuildLikeCounters();
+        popularityIndex.rebuild();
+    }
+
+    public boolean isLiked(int filmId, int userId) {
+        requireLikeParticipants(filmId, userId);
+
+        return likeIndex.isLiked(filmId, userId);
     }
 
+    /**
+     * Likes are idempotent: repeating a like or an unlike is answered from the like index
+     * without touching the database.
+     */
     public void addLike(int filmId, int userId) {
-        final Optional<Film> optFilm = filmStorage.findOneById(filmId);
-        final Optional<User> optUser = userStorage.findOneById(userId);
+        requireLikeParticipants(filmId, userId);
 
-        if (optFilm.isPresent() && optUser.isPresent()) {
-            filmStorage.addLike(filmId, userId);
-            return;
-        }
+        final ReentrantLock lock = likeLockOf(filmId, userId);
+        final Instant likedAt = Instant.now();
 
-        if (optUser.isEmpty()) {
-            throw new NoSuchModelException(String.format("User with id %s not found", userId));
-        }
+        lock.lock();
+        try {
+            if (likeIndex.isLiked(filmId, userId)) {
+                return;
+            }
 
-        if (optFilm.isEmpty()) {
-            throw new NoSuchModelException(String.format("Film with id %s not found", filmId));
+            filmStorage.addLike(filmId, userId, likedAt);
+            likeIndex.like(filmId, userId);
+        } finally {
+            lock.unlock();
         }
+
+        popularityIndex.like(filmId);
+        trendingIndex.like(filmId, likedAt);
+        filmAutocompleteIndex.updateLikes(filmId);
     }
 
     public void removeLike(int filmId, int userId) {
-        final Optional<Film> optFilm = filmStorage.findOneById(filmId);
-        final Optional<User> optUser = userStorage.findOneById(userId);
+        requireLikeParticipants(filmId, userId);
 
-        if (optFilm.isPresent() && optUser.isPresent()) {
-            filmStorage.removeLike(filmId, userId);
-            return;
-        }
+        final ReentrantLock lock = likeLockOf(filmId, userId);
+        final Optional<Instant> removed;
 
-        if (optUser.isEmpty()) {
-            throw new NoSuchModelException(String.format("User with id %s not found", userId));
+        lock.lock();
+        try {
+            if (!likeIndex.isLiked(filmId, userId)) {
+                return;
+            }
+
+            removed = filmStorage.removeLike(filmId, userId);
+            likeIndex.unlike(filmId, userId);
+        } finally {
+            lock.unlock();
         }
 
-        if (optFilm.isEmpty()) {
+        removed.ifPresent(likedAt -> {
+            popularityIndex.unlike(filmId);
+            trendingIndex.unlike(filmId, likedAt);
+        });
+        filmAutocompleteIndex.updateLikes(filmId);
+    }
+
+    private ReentrantLock likeLockOf(int filmId, int userId) {
+        return likeLocks[Math.floorMod(31 * filmId + userId, LIKE_LOCK_STRIPES)];
+    }
+
+    private Film withLikes(Film film) {
+        film.setLikes(likeIndex.likes(film.getId()));
+
+        return film;
+    }
+
+    private List<Film> withLikes(List<Film> films) {
+        films.forEach(this::withLikes);
+
+        return films;
+    }
+
+    private void requireLikeParticipants(int filmId, int userId) {
+        requireUser(userId);
+        requireFilm(filmId);
+    }
+
+    private void requireFilm(int filmId) {
+        if (!filmStorage.existsById(filmId)) {
             throw new NoSuchModelException(String.format("Film with id %s not found", filmId));
         }
     }
+
+    private void requireUser(int userId) {
+        if (!userStorage.existsById(userId)) {
+            throw new NoSuchModelException(String.format("User with id %s not found", userId));
+        }
+    }
+
+    private List<Film> findAllByIdsOrdered(List<Integer> ids) {
+        final Map<Integer, Film> filmById = filmStorage.findAllByIds(ids).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+
+        return ids.stream()
+                .map(filmById::get)
+                .filter(Objects::nonNull)
+                .map(this::withLikes)
+                .collect(Collectors.toList());
+    }
 }
@@ -6,6 +6,7 @@ import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import ru.yandex.practicum.filmorate.cache.FilmCache;
 import ru.yandex.practicum.filmorate.exception.NoSuchModelException;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.GenreStorage;
@@ -14,10 +15,12 @@ import ru.yandex.practicum.filmorate.storage.GenreStorage;
 public class GenreService {
 
     private final GenreStorage genreStorage;
+    private final FilmCache filmCache;
 
     @Autowired
-    public GenreService(GenreStorage genreStorage) {
+    public GenreService(GenreStorage genreStorage, FilmCache filmCache) {
         this.genreStorage = genreStorage;
+        this.filmCache = filmCache;
     }
 
     public List<Genre> findAll() {
@@ -35,10 +38,15 @@ public class GenreService {
     }
 
     public Genre update(Genre genre) {
-        return genreStorage.update(genre);
+        final Genre updatedGenre = genreStorage.update(genre);
+
+        filmCache.invalidateGenre(updatedGenre.getId());
+
+        return updatedGenre;
     }
 
     public void deleteOneById(int id) {
         genreStorage.deleteOneById(id);
+        filmCache.invalidateGenre(id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recomputes the film like counters from FAVORITE_FILMS when the application
+ * is started with the {@code --rebuild-like-counters} option.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class LikeCounterRebuildRunner implements ApplicationRunner {
+    public static final String OPTION = "rebuild-like-counters";
+
+    private final FilmService filmService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(OPTION)) {
+            return;
+        }
+
+        log.info("Rebuilding film like counters");
+        filmService.rebuildLikeCounters();
+        log.info("Film like counters rebuilt");
+    }
+}
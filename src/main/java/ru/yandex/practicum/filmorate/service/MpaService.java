@@ -6,6 +6,7 @@ import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import ru.yandex.practicum.filmorate.cache.FilmCache;
 import ru.yandex.practicum.filmorate.exception.NoSuchModelException;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.MpaStorage;
@@ -13,10 +14,12 @@ import ru.yandex.practicum.filmorate.storage.MpaStorage;
 @Service
 public class MpaService {
     private final MpaStorage mpaStorage;
+    private final FilmCache filmCache;
 
     @Autowired
-    public MpaService(MpaStorage mpaStorage) {
+    public MpaService(MpaStorage mpaStorage, FilmCache filmCache) {
         this.mpaStorage = mpaStorage;
+        this.filmCache = filmCache;
     }
 
     public List<Mpa> findAll() {
@@ -34,10 +37,15 @@ public class MpaService {
     }
 
     public Mpa update(Mpa mpa) {
-        return mpaStorage.update(mpa);
+        final Mpa updatedMpa = mpaStorage.update(mpa);
+
+        filmCache.invalidateMpa(updatedMpa.getId());
+
+        return updatedMpa;
     }
 
     public void deleteOneById(int id) {
         mpaStorage.deleteOneById(id);
+        filmCache.invalidateMpa(id);
     }
 }
\ No newline at end of file
@@ -1,27 +1,50 @@
 package ru.yandex.practicum.filmorate.service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 
 import ru.yandex.practicum.filmorate.exception.NoSuchModelException;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.FriendRecommender;
+import ru.yandex.practicum.filmorate.index.UserAutocompleteIndex;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import static java.util.function.UnaryOperator.identity;
+
 @Service
 public class UserService {
     private final UserStorage userStorage;
+    private final FriendGraph friendGraph;
+    private final FriendRecommender friendRecommender;
+    private final UserAutocompleteIndex userAutocompleteIndex;
 
-    public UserService(UserStorage userStorage) {
+    public UserService(UserStorage userStorage, FriendGraph friendGraph, FriendRecommender friendRecommender,
+                       UserAutocompleteIndex userAutocompleteIndex) {
         this.userStorage = userStorage;
+        this.friendGraph = friendGraph;
+        this.friendRecommender = friendRecommender;
+        this.userAutocompleteIndex = userAutocompleteIndex;
     }
 
     public List<User> findAll() {
         return userStorage.findAll();
     }
 
+    public List<User> findAll(int afterId, int limit) {
+        return userStorage.findAllAfter(afterId, limit);
+    }
+
+    public void forEachUser(Consumer<User> consumer) {
+        userStorage.forEachUser(consumer);
+    }
+
     public User findOneById(int userId) {
         final Optional<User> optUser = userStorage.findOneById(userId);
 
@@ -29,36 +52,114 @@ public class UserService {
     }
 
     public User add(User user) {
-        return userStorage.add(user);
+        final User addedUser = userStorage.add(user);
+
+        userAutocompleteIndex.index(addedUser);
+
+        return addedUser;
     }
 
     public User update(User user) {
-        return userStorage.update(user);
+        final User updatedUser = userStorage.update(user);
+
+        userAutocompleteIndex.index(updatedUser);
+
+        return updatedUser;
     }
 
-    public List<User> findAllFriends(int userId) {
-        return findOneById(userId).getFriends().stream()
-                .map(userStorage::findOneById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
+    public List<User> findAllFriends(int userId, boolean withMutualFriends) {
+        requireUsers(userId);
+
+        return friendsOf(userId, friendGraph.friends(userId), withMutualFriends);
+    }
+
+    public List<User> findAllFriends(int userId, int afterId, int limit, boolean withMutualFriends) {
+        requireUsers(userId);
+
+        return friendsOf(userId, friendGraph.friendsAfter(userId, afterId, limit), withMutualFriends);
     }
 
     public void addFriend(int userId, int friendId) {
-        final User user = findOneById(userId);
-        final User friend = findOneById(friendId);
+        requireUsers(userId, friendId);
 
-        userStorage.addFriend(user.getId(), friend.getId());
+        userStorage.addFriend(userId, friendId, friendGraph.contains(friendId, userId));
+        friendGraph.add(userId, friendId);
+        friendRecommender.friendshipChanged(userId, friendId);
+        userAutocompleteIndex.updateFriendCount(userId);
     }
 
     public void removeFriend(int userId, int friendId) {
-        final User user = findOneById(userId);
-        final User friend = findOneById(friendId);
+        requireUsers(userId, friendId);
 
-        userStorage.deleteFriend(user.getId(), friend.getId());
+        userStorage.deleteFriend(userId, friendId);
+        friendGraph.remove(userId, friendId);
+        friendRecommender.friendshipChanged(userId, friendId);
+        userAutocompleteIndex.updateFriendCount(userId);
+    }
+
+    private void requireUsers(int... userIds) {
+        for (int userId : userIds) {
+            if (!userStorage.existsById(userId)) {
+                throw new NoSuchModelException(String.format("User with id %s not found", userId));
+            }
+        }
     }
 
     public List<User> findCommonFriends(int userId, int otherId) {
-        return userStorage.commonFriend(userId, otherId);
+        return userStorage.findAllByIds(friendGraph.commonFriends(userId, otherId));
+    }
+
+    public List<User> findCommonFriends(List<Integer> userIds) {
+        final int[] ids = userIds.stream().mapToInt(Integer::intValue).toArray();
+
+        requireUsers(ids);
+
+        return userStorage.findAllByIds(friendGraph.commonFriends(ids));
+    }
+
+    /**
+     * Recommended users best first, each with the number of friends it shares with the user.
+     */
+    public List<User> findRecommendations(int userId, int limit) {
+        requireUsers(userId);
+
+        final List<User> recommendations = findAllByIdsOrdered(friendRecommender.recommend(userId, limit));
+
+        recommendations.forEach(user -> user.setMutualFriends(friendGraph.mutualFriends(userId, user.getId())));
+
+        return recommendations;
+    }
+
+    /**
+     * Users whose login or name has a word starting with the prefix, those with more friends first.
+     */
+    public List<User> autocomplete(String prefix, int limit) {
+        return findAllByIdsOrdered(userAutocompleteIndex.complete(prefix, limit));
+    }
+
+    private List<User> findAllByIdsOrdered(int[] ids) {
+        final Map<Integer, User> usersById = userStorage.findAllByIds(ids).stream()
+                .collect(Collectors.toMap(User::getId, identity()));
+        final List<User> users = new ArrayList<>(ids.length);
+
+        for (int id : ids) {
+            final User user = usersById.get(id);
+
+            if (user != null) {
+                users.add(user);
+            }
+        }
+
+        return users;
+    }
+
+    private List<User> friendsOf(int userId, int[] friendIds, boolean withMutualFriends) {
+        final List<User> friends = userStorage.findAllByIds(friendIds);
+
+        if (withMutualFriends) {
+            friends.forEach(friend -> friend.setMutualFriends(friendGraph.mutualFriends(userId, friend.getId())));
+        }
+
+        return friends;
     }
 }
@@ -1,22 +1,68 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import lombok.Data;
+
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Optional<Film> findOneById(int id);
 
+    boolean existsById(int id);
+
+    boolean existsAll(Collection<Integer> ids);
+
     List<Film> findAll();
 
+    List<Film> findAllAfter(int afterId, int limit);
+
+    void forEachFilm(Consumer<Film> consumer);
+
+    List<Film> findAllByIds(Collection<Integer> ids);
+
     Film add(Film film);
 
+    List<Integer> addAll(List<Film> films);
+
     Film update(Film film);
 
-    void addLike(int filmId, int userId);
+    void addLike(int filmId, int userId, Instant likedAt);
 
-    void removeLike(int filmId, int userId);
+    Optional<Instant> removeLike(int filmId, int userId);
 
     List<Film> getPopularFilms(int count);
+
+    void rebuildLikeCounters();
+
+    void forEachFilmFacets(FacetsConsumer consumer);
+
+    void forEachLikeSince(Instant since, LikeConsumer consumer);
+
+    CatalogFingerprint catalogFingerprint();
+
+    @FunctionalInterface
+    interface FacetsConsumer {
+        void accept(int filmId, long likes, int mpaId, int year, int[] genreIds);
+    }
+
+    @FunctionalInterface
+    interface LikeConsumer {
+        void accept(int filmId, int userId, Instant likedAt);
+    }
+
+    /**
+     * Cheap summary of the film and like tables, for telling whether data derived from them
+     * still describes the same catalog.
+     */
+    @Data
+    class CatalogFingerprint {
+        private final int films;
+        private final int maxFilmId;
+        private final long likes;
+    }
 }
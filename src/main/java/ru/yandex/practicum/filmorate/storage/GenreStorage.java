@@ -3,7 +3,6 @@ package ru.yandex.practicum.filmorate.storage;
 import java.util.List;
 import java.util.Optional;
 
-import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 
 public interface GenreStorage {
@@ -20,8 +19,4 @@ public interface GenreStorage {
     List<Genre> findAllByFilmId(int filId);
 
     void deleteAllByFilmId(int filId);
-
-    void fetchFilmGenres(Film film);
-
-    void fetchFilmGenres(List<Film> films);
 }
\ No newline at end of file
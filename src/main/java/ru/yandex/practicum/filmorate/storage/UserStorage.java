@@ -1,24 +1,45 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import ru.yandex.practicum.filmorate.model.User;
 
 public interface UserStorage {
     Optional<User> findOneById(int id);
 
+    boolean existsById(int id);
+
+    boolean existsAll(Collection<Integer> ids);
+
     List<User> findAll();
 
+    List<User> findAllAfter(int afterId, int limit);
+
+    void forEachUser(Consumer<User> consumer);
+
     User add(User user);
 
     User update(User user);
 
-    List<Integer> getUserFriends(int userId);
+    /**
+     * Users with the given ids in ascending id order; unknown ids are skipped.
+     */
+    List<User> findAllByIds(int[] ids);
 
-    void addFriend(int userId, int friendId);
+    void addFriend(int userId, int friendId, boolean approved);
 
     void deleteFriend(int userId, int friendId);
 
-    List<User> commonFriend(int userId, int otherId);
+    /**
+     * Streams every friendship in ascending (user, friend) order.
+     */
+    void forEachFriendship(FriendshipConsumer consumer);
+
+    @FunctionalInterface
+    interface FriendshipConsumer {
+        void accept(int userId, int friendId);
+    }
 }
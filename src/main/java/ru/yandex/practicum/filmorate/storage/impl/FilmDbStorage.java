@@ -1,15 +1,28 @@
 package ru.yandex.practicum.filmorate.storage.impl;
 
+import java.sql.Array;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
@@ -17,45 +30,143 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import ru.yandex.practicum.filmorate.exception.NoSuchModelException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.util.IdBitmap;
 
 @Repository
 @Primary
 public class FilmDbStorage implements FilmStorage {
-    private final JdbcTemplate jdbcTemplate;
+    /**
+     * Films with their genre ids in a single statement. Genre ids are aggregated by a correlated
+     * sub-select rather than a GROUP BY, so WHERE, ORDER BY and LIMIT on the outer query stay
+     * cheap and genres are only collected for the rows actually returned. MPA and genre names
+     * come from {@link ReferenceData} instead of joins.
+     */
+    static final String SELECT_FILMS = "SELECT F.*,"
+            + " ARRAY(SELECT FG.genre_id FROM film_genre FG WHERE FG.film_id = F.id ORDER BY FG.genre_id) genre_ids"
+            + " FROM film F";
+
+    private static final int ROWS_PER_INSERT = 100;
 
-    public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceData referenceData;
+    private final int exportFetchSize;
+    private final LikeWriteBuffer likeBuffer;
+    private final IdBitmap filmIds = new IdBitmap();
+
+    /**
+     * A positive {@code filmorate.likes.write-behind.max-delay} turns on write-behind likes: they are
+     * acknowledged at once and become durable within that delay, in batched transactions.
+     */
+    public FilmDbStorage(JdbcTemplate jdbcTemplate,
+                         TransactionTemplate transactionTemplate,
+                         ReferenceData referenceData,
+                         @Value("${filmorate.export.fetch-size:500}") int exportFetchSize,
+                         @Value("${filmorate.likes.write-behind.max-delay:0ms}") Duration writeBehindMaxDelay,
+                         @Value("${filmorate.likes.write-behind.batch-size:500}") int writeBehindBatchSize,
+                         @Value("${filmorate.likes.write-behind.capacity:10000}") int writeBehindCapacity) {
         this.jdbcTemplate = jdbcTemplate;
+        this.referenceData = referenceData;
+        this.exportFetchSize = exportFetchSize;
+        this.likeBuffer = writeBehindMaxDelay.isZero() || writeBehindMaxDelay.isNegative() ? null
+                : new LikeWriteBuffer(writeBehindCapacity, writeBehindBatchSize, writeBehindMaxDelay,
+                        this::findLikedAt,
+                        changes -> transactionTemplate.executeWithoutResult(status -> applyLikeChanges(changes)));
+    }
+
+    @PostConstruct
+    public void loadIds() {
+        filmIds.clear();
+        jdbcTemplate.query("SELECT id FROM film", rs -> {
+            filmIds.add(rs.getInt("id"));
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        if (likeBuffer != null) {
+            likeBuffer.close();
+        }
     }
 
     @Override
     public Optional<Film> findOneById(int id) {
-        String query = "SELECT F.*, M.id mpa_id, M.NAME mpa_name FROM film F LEFT JOIN mpa M ON F.mpa_id = M.id WHERE F.id = ?";
+        String query = SELECT_FILMS + " WHERE F.id = ?";
 
         try {
             Film film = jdbcTemplate.queryForObject(query, this::mapRowToFilm, id);
 
             return Optional.ofNullable(film);
         } catch (EmptyResultDataAccessException ignored) {
-            System.out.println(ignored);
             return Optional.empty();
         }
     }
 
+    @Override
+    public boolean existsById(int id) {
+        return filmIds.contains(id);
+    }
+
+    @Override
+    public boolean existsAll(Collection<Integer> ids) {
+        return filmIds.containsAll(ids);
+    }
+
     @Override
     public List<Film> findAll() {
-        String query = "SELECT F.*, M.id mpa_id, M.name mpa_name FROM film F LEFT JOIN mpa M ON F.mpa_id = M.id";
+        return jdbcTemplate.query(SELECT_FILMS, this::mapRowToFilm);
+    }
+
+    @Override
+    public List<Film> findAllAfter(int afterId, int limit) {
+        String query = SELECT_FILMS + " WHERE F.id > ? ORDER BY F.id LIMIT ?";
+
+        return jdbcTemplate.query(query, this::mapRowToFilm, afterId, limit);
+    }
+
+    /**
+     * Hands films to the consumer one row at a time. Nothing is collected, so a consumer that
+     * blocks (for example on a slow HTTP client) simply pauses the read.
+     */
+    @Override
+    public void forEachFilm(Consumer<Film> consumer) {
+        final String query = SELECT_FILMS + " ORDER BY F.id";
+
+        jdbcTemplate.query(connection -> {
+            final PreparedStatement ps = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+
+            ps.setFetchSize(exportFetchSize);
+
+            return ps;
+        }, rs -> {
+            consumer.accept(mapRowToFilm(rs, rs.getRow()));
+        });
+    }
+
+    /**
+     * Duplicate ids are dropped, since each joined id yields its own row. Rows come in no
+     * particular order.
+     */
+    @Override
+    public List<Film> findAllByIds(Collection<Integer> ids) {
+        String query = SELECT_FILMS + " JOIN TABLE(id INT = ?) T ON T.id = F.id";
 
-        return jdbcTemplate.query(query, this::mapRowToFilm);
+        return IdTable.query(jdbcTemplate, query, this::mapRowToFilm,
+                ids.stream().distinct().toArray(Integer[]::new));
     }
 
     @Override
     public Film add(Film film) {
+        requireReferences(film);
+
         final KeyHolder keyHolder = new GeneratedKeyHolder();
         final String query = "INSERT INTO film (name, description, release_date, duration, mpa_id)"
                 + " VALUES (?, ?, ?, ?, ?)";
@@ -74,6 +185,8 @@ public class FilmDbStorage implements FilmStorage {
 
         int newId = Objects.requireNonNull(keyHolder.getKey()).intValue();
 
+        AfterCommit.run(() -> filmIds.add(newId));
+        jdbcTemplate.update("INSERT INTO film_like_counter (film_id) VALUES (?)", newId);
 
         if (film.getGenres() != null) {
             List<Genre> genres = new ArrayList<>(film.getGenres());
@@ -98,11 +211,83 @@ public class FilmDbStorage implements FilmStorage {
         return findOneById(newId).get();
     }
 
+    /**
+     * Inserts films with multi-row VALUES statements of up to {@link #ROWS_PER_INSERT} films,
+     * then writes their genres and like counters in JDBC batches.
+     * Ids are returned in input order. Callers own the transaction.
+     */
+    @Override
+    public List<Integer> addAll(List<Film> films) {
+        final List<Integer> ids = new ArrayList<>(films.size());
+
+        for (int from = 0; from < films.size(); from += ROWS_PER_INSERT) {
+            ids.addAll(insertFilms(films.subList(from, Math.min(from + ROWS_PER_INSERT, films.size()))));
+        }
+
+        final List<int[]> filmGenres = new ArrayList<>();
+
+        for (int i = 0; i < films.size(); i++) {
+            final int filmId = ids.get(i);
+
+            if (films.get(i).getGenres() == null) {
+                continue;
+            }
+
+            films.get(i).getGenres().stream()
+                    .map(Genre::getId)
+                    .distinct()
+                    .forEach(genreId -> filmGenres.add(new int[]{filmId, genreId}));
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", filmGenres,
+                filmGenres.size(), (ps, filmGenre) -> {
+                    ps.setInt(1, filmGenre[0]);
+                    ps.setInt(2, filmGenre[1]);
+                });
+        jdbcTemplate.batchUpdate("INSERT INTO film_like_counter (film_id) VALUES (?)", ids, ids.size(),
+                (ps, filmId) -> ps.setInt(1, filmId));
+        AfterCommit.run(() -> ids.forEach(filmIds::add));
+
+        return ids;
+    }
+
+    private List<Integer> insertFilms(List<Film> films) {
+        final String query = "INSERT INTO film (name, description, release_date, duration, mpa_id) VALUES "
+                + String.join(", ", Collections.nCopies(films.size(), "(?, ?, ?, ?, ?)"));
+
+        return jdbcTemplate.execute(connection -> connection.prepareStatement(query, new String[]{"id"}),
+                (PreparedStatement ps) -> {
+                    int index = 1;
+
+                    for (Film film : films) {
+                        ps.setString(index++, film.getName());
+                        ps.setString(index++, film.getDescription());
+                        ps.setDate(index++, Date.valueOf(film.getReleaseDate()));
+                        ps.setLong(index++, film.getDuration());
+                        ps.setInt(index++, film.getMpa().getId());
+                    }
+
+                    ps.executeUpdate();
+
+                    final List<Integer> ids = new ArrayList<>(films.size());
+
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        while (keys.next()) {
+                            ids.add(keys.getInt(1));
+                        }
+                    }
+
+                    return ids;
+                });
+    }
+
     @Override
     public Film update(Film film) {
         final int filmId = film.getId();
 
-        if (findOneById(filmId).isPresent()) {
+        if (existsById(filmId)) {
+            requireReferences(film);
+
             final String query = "UPDATE film SET name =?, description = ?, release_date = ?, duration = ?, mpa_id = ?"
                     + " WHERE id = ?";
 
@@ -145,44 +330,185 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
-    public void addLike(int filmId, int userId) {
-        String query = "INSERT INTO favorite_films (film_id, user_id) VALUES (?, ?)";
+    @Transactional
+    public void addLike(int filmId, int userId, Instant likedAt) {
+        if (likeBuffer != null) {
+            likeBuffer.like(filmId, userId, likedAt);
+            return;
+        }
+
+        String query = "INSERT INTO favorite_films (film_id, user_id, created_at) VALUES (?, ?, ?)";
+
+        jdbcTemplate.update(query, filmId, userId, Timestamp.from(likedAt));
+        updateLikeCounter(filmId, 1);
+    }
+
+    @Override
+    @Transactional
+    public Optional<Instant> removeLike(int filmId, int userId) {
+        if (likeBuffer != null) {
+            return likeBuffer.unlike(filmId, userId);
+        }
+
+        String query = "SELECT created_at FROM OLD TABLE (DELETE FROM favorite_films WHERE film_id = ? AND user_id = ?)";
+
+        final List<Instant> removed = jdbcTemplate.query(
+                query,
+                (rs, rowNum) -> rs.getTimestamp("created_at").toInstant(),
+                filmId,
+                userId
+        );
+
+        if (!removed.isEmpty()) {
+            updateLikeCounter(filmId, -1);
+        }
+
+        return removed.stream().findFirst();
+    }
+
+    @Override
+    public void forEachFilmFacets(FacetsConsumer consumer) {
+        String query = "SELECT F.id, F.mpa_id, EXTRACT(YEAR FROM F.release_date) release_year,"
+                + " (SELECT C.like_count FROM film_like_counter C WHERE C.film_id = F.id) like_count,"
+                + " ARRAY(SELECT FG.genre_id FROM film_genre FG WHERE FG.film_id = F.id ORDER BY FG.genre_id) genre_ids"
+                + " FROM film F";
+
+        jdbcTemplate.query(query, rs -> {
+            consumer.accept(
+                    rs.getInt("id"),
+                    rs.getLong("like_count"),
+                    rs.getInt("mpa_id"),
+                    rs.getInt("release_year"),
+                    toIntArray(rs.getArray("genre_ids"))
+            );
+        });
+    }
+
+    @Override
+    public void forEachLikeSince(Instant since, LikeConsumer consumer) {
+        String query = "SELECT film_id, user_id, created_at FROM favorite_films WHERE created_at >= ?";
+
+        jdbcTemplate.query(query, rs -> {
+            consumer.accept(rs.getInt("film_id"), rs.getInt("user_id"), rs.getTimestamp("created_at").toInstant());
+        }, Timestamp.from(since));
+    }
+
+    /**
+     * Top films by their like counter, read in order off the counter index. Only the selected
+     * counters are joined with their films.
+     */
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        String query = SELECT_FILMS
+                + " INNER JOIN (SELECT film_id, like_count FROM film_like_counter"
+                + " ORDER BY like_count DESC, film_id LIMIT ?) C ON C.film_id = F.id"
+                + " ORDER BY C.like_count DESC, F.id";
 
-        jdbcTemplate.update(query, filmId, userId);
+        return jdbcTemplate.query(query, this::mapRowToFilm, count);
     }
 
     @Override
-    public void removeLike(int filmId, int userId) {
-        String query = "DELETE FROM favorite_films WHERE film_id = ? AND user_id = ?";
+    @Transactional
+    public void rebuildLikeCounters() {
+        jdbcTemplate.update("DELETE FROM film_like_counter");
+        jdbcTemplate.update("INSERT INTO film_like_counter (film_id, like_count)"
+                + " SELECT F.id, (SELECT COUNT(*) FROM favorite_films FF WHERE FF.film_id = F.id) FROM film F");
+    }
 
-        jdbcTemplate.update(query, filmId, userId);
+    private void updateLikeCounter(int filmId, int delta) {
+        jdbcTemplate.update("UPDATE film_like_counter SET like_count = like_count + ? WHERE film_id = ?",
+                delta, filmId);
     }
 
-    public List<Integer> fetchLikes(int filmId) {
-        String query = "SELECT user_id FROM favorite_films WHERE film_id = ?";
+    @Override
+    public CatalogFingerprint catalogFingerprint() {
+        String query = "SELECT COUNT(*) films, COALESCE(MAX(id), 0) max_film_id,"
+                + " (SELECT COALESCE(SUM(like_count), 0) FROM film_like_counter) likes FROM film";
 
-        return jdbcTemplate.query(query, this::mapRowToUserId, filmId);
+        return jdbcTemplate.queryForObject(query, (rs, rowNum) -> new CatalogFingerprint(
+                rs.getInt("films"), rs.getInt("max_film_id"), rs.getLong("likes")));
     }
 
-    public List<Film> getPopularFilms(int limit) {
-        String query = "SELECT COUNT(FF.user_id) AS like_count, F.*, M.id mpa_id, M.name mpa_name"
-                + " FROM Film F"
-                + " LEFT JOIN favorite_films FF ON FF.film_id = F.id"
-                + " INNER JOIN mpa M ON M.id = F.mpa_id"
-                + " GROUP BY F.id"
-                + " ORDER BY like_count DESC"
-                + " LIMIT ?";
+    Optional<Instant> findLikedAt(int filmId, int userId) {
+        String query = "SELECT created_at FROM favorite_films WHERE film_id = ? AND user_id = ?";
 
-        return jdbcTemplate.query(query, this::mapRowToFilm, limit);
+        return jdbcTemplate.query(query, (rs, rowNum) -> rs.getTimestamp("created_at").toInstant(), filmId, userId)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Writes merged like changes from the write-behind buffer: new likes, re-likes that only move
+     * created_at, removed likes, and one counter update per touched film.
+     */
+    void applyLikeChanges(Collection<LikeWriteBuffer.Change> changes) {
+        final List<LikeWriteBuffer.Change> inserted = new ArrayList<>();
+        final List<LikeWriteBuffer.Change> renewed = new ArrayList<>();
+        final List<LikeWriteBuffer.Change> deleted = new ArrayList<>();
+        final Map<Integer, Integer> counterDeltas = new HashMap<>();
+
+        for (LikeWriteBuffer.Change change : changes) {
+            if (change.isLiked() && change.isBaseLiked()) {
+                renewed.add(change);
+            } else if (change.isLiked()) {
+                inserted.add(change);
+                counterDeltas.merge(change.getFilmId(), 1, Integer::sum);
+            } else if (change.isBaseLiked()) {
+                deleted.add(change);
+                counterDeltas.merge(change.getFilmId(), -1, Integer::sum);
+            }
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO favorite_films (film_id, user_id, created_at) VALUES (?, ?, ?)",
+                inserted, inserted.size(), (ps, change) -> {
+                    ps.setInt(1, change.getFilmId());
+                    ps.setInt(2, change.getUserId());
+                    ps.setTimestamp(3, Timestamp.from(change.getLikedAt()));
+                });
+        jdbcTemplate.batchUpdate("UPDATE favorite_films SET created_at = ? WHERE film_id = ? AND user_id = ?",
+                renewed, renewed.size(), (ps, change) -> {
+                    ps.setTimestamp(1, Timestamp.from(change.getLikedAt()));
+                    ps.setInt(2, change.getFilmId());
+                    ps.setInt(3, change.getUserId());
+                });
+        jdbcTemplate.batchUpdate("DELETE FROM favorite_films WHERE film_id = ? AND user_id = ?",
+                deleted, deleted.size(), (ps, change) -> {
+                    ps.setInt(1, change.getFilmId());
+                    ps.setInt(2, change.getUserId());
+                });
+        jdbcTemplate.batchUpdate("UPDATE film_like_counter SET like_count = like_count + ? WHERE film_id = ?",
+                new ArrayList<>(counterDeltas.entrySet()), counterDeltas.size(), (ps, delta) -> {
+                    ps.setInt(1, delta.getValue());
+                    ps.setInt(2, delta.getKey());
+                });
+    }
+
+    /**
+     * Rejects unknown MPA and genre ids up front instead of leaving them to the foreign keys.
+     */
+    private void requireReferences(Film film) {
+        final Integer mpaId = film.getMpa().getId();
+
+        if (mpaId == null || referenceData.mpa(mpaId).isEmpty()) {
+            throw new NoSuchModelException(String.format("Mpa with id %s not found", mpaId));
+        }
+
+        if (film.getGenres() == null) {
+            return;
+        }
+
+        for (Genre genre : film.getGenres()) {
+            if (genre.getId() == null || referenceData.genre(genre.getId()).isEmpty()) {
+                throw new NoSuchModelException(String.format("Genre with id %s not found", genre.getId()));
+            }
+        }
     }
 
     private Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
-        Mpa mpa = Mpa.builder()
-                .id(rs.getInt("mpa_id"))
-                .name(rs.getString("mpa_name"))
-                .build();
+        final int mpaId = rs.getInt("mpa_id");
+        final Mpa mpa = referenceData.mpa(mpaId).orElseGet(() -> Mpa.of(mpaId));
 
-        return Film.builder()
+        final Film film = Film.builder()
                 .id(rs.getInt("id"))
                 .name(rs.getString("name"))
                 .description(rs.getString("description"))
@@ -190,9 +516,22 @@ public class FilmDbStorage implements FilmStorage {
                 .duration(rs.getLong("duration"))
                 .mpa(mpa)
                 .build();
+
+        for (int genreId : toIntArray(rs.getArray("genre_ids"))) {
+            film.addGenre(referenceData.genre(genreId).orElseGet(() -> Genre.of(genreId)));
+        }
+
+        return film;
     }
 
-    private int mapRowToUserId(ResultSet rs, int rowNum) throws SQLException {
-        return rs.getInt("user_id");
+    private static int[] toIntArray(Array array) throws SQLException {
+        final Object[] values = (Object[]) array.getArray();
+        final int[] result = new int[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            result[i] = ((Number) values[i]).intValue();
+        }
+
+        return result;
     }
 }
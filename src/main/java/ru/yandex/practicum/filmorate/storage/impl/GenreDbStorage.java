@@ -4,65 +4,49 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 import ru.yandex.practicum.filmorate.exception.NoSuchModelException;
-import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.GenreStorage;
 
-import static java.util.function.UnaryOperator.identity;
-
 @Repository
 public class GenreDbStorage implements GenreStorage {
     private final Logger log = LoggerFactory.getLogger(FilmDbStorage.class);
 
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceData referenceData;
 
     @Autowired
-    public GenreDbStorage(JdbcTemplate jdbcTemplate) {
+    public GenreDbStorage(JdbcTemplate jdbcTemplate, ReferenceData referenceData) {
         this.jdbcTemplate = jdbcTemplate;
+        this.referenceData = referenceData;
     }
 
     @Override
     public List<Genre> findAll() {
-        final String query = "SELECT * FROM genre ORDER BY id";
-
-        return jdbcTemplate.query(query, this::mapRowToGenre);
+        return referenceData.genres();
     }
 
     @Override
     public Optional<Genre> findOneById(int id) {
-        final String query = "SELECT * FROM genre WHERE id = ?";
-
-        try {
-            Genre genre = jdbcTemplate.queryForObject(query, this::mapRowToGenre, id);
-
-            return Optional.ofNullable(genre);
-        } catch (EmptyResultDataAccessException ignored) {
-            return Optional.empty();
-        }
+        return referenceData.genre(id);
     }
 
     @Override
     public Genre add(Genre genre) {
         final KeyHolder keyHolder = new GeneratedKeyHolder();
-        final String query = "INSERT INTO mpa (name) VALUES (?)";
+        final String query = "INSERT INTO genre (name) VALUES (?)";
 
         jdbcTemplate.update(connection -> {
             PreparedStatement ps = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
@@ -72,28 +56,26 @@ public class GenreDbStorage implements GenreStorage {
             return ps;
         }, keyHolder);
 
-        int newId = Objects.requireNonNull(keyHolder.getKey()).intValue();
+        final Genre added = Genre.of(Objects.requireNonNull(keyHolder.getKey()).intValue(), genre.getName());
+
+        AfterCommit.run(() -> referenceData.putGenre(added));
 
-        return findOneById(newId).get();
+        return added;
     }
 
     @Override
     public Genre update(Genre genre) {
-        final int genreId = genre.getId();
+        final String query = "UPDATE genre SET name = ? WHERE id = ?";
 
-        if (findOneById(genreId).isPresent()) {
-            final String query = "UPDATE genre SET name =? WHERE id = ?";
+        if (jdbcTemplate.update(query, genre.getName(), genre.getId()) == 0) {
+            throw new NoSuchModelException(String.format("Genre %s not found", genre));
+        }
 
-            jdbcTemplate.update(
-                    query,
-                    genre.getName(),
-                    genreId
-            );
+        final Genre updated = Genre.of(genre.getId(), genre.getName());
 
-            return findOneById(genreId).get();
-        }
+        AfterCommit.run(() -> referenceData.putGenre(updated));
 
-        throw new NoSuchModelException(String.format("Genre %s not found", genre));
+        return updated;
     }
 
     @Override
@@ -101,6 +83,7 @@ public class GenreDbStorage implements GenreStorage {
         final String query = "DELETE FROM genre WHERE id = ?";
 
         jdbcTemplate.update(query, id);
+        AfterCommit.run(() -> referenceData.removeGenre(id));
     }
 
     @Override
@@ -117,33 +100,11 @@ public class GenreDbStorage implements GenreStorage {
         jdbcTemplate.update(query, filId);
     }
 
-    @Override
-    public void fetchFilmGenres(Film film) {
-        fetchFilmGenres(List.of(film));
-    }
-
-    @Override
-    public void fetchFilmGenres(List<Film> films) {
-        final Map<Integer, Film> filmById = films.stream().collect(Collectors.toMap(Film::getId, identity()));
-        final Set<Integer> ids = filmById.keySet();
-        final String inSql = String.join(",", Collections.nCopies(ids.size(), "?"));
-        final String query = String.format("SELECT G.*, FG.film_id from film_genre FG " +
-                "RIGHT JOIN GENRE G on G.id = FG.genre_id WHERE FG.film_id IN (%s)", inSql);
-
-        jdbcTemplate.query(query, (rs, rowNum) -> {
-            final int filmId = rs.getInt("film_id");
-            final Film film = filmById.get(filmId);
-            film.addGenre(mapRowToGenre(rs, rowNum));
-
-            return null;
-        }, ids.toArray());
-    }
-
     private Genre mapRowToGenre(ResultSet rs, int rowNum) throws SQLException {
-        return Genre.builder()
-                .id(rs.getInt("id"))
-                .name(rs.getString("name"))
-                .build();
+        final int id = rs.getInt("id");
+        final Optional<Genre> genre = referenceData.genre(id);
+
+        return genre.isPresent() ? genre.get() : Genre.of(id, rs.getString("name"));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Runs a query whose only parameter is a {@code TABLE(id INT = ?)} of ids, once per chunk of
+ * {@value #IDS_PER_QUERY} ids. Each chunk is bound as a single {@code Integer[]} that H2 unnests
+ * into rows and joins by index, so the statement text never changes and one cached plan serves
+ * every call, unlike {@code = ANY(?)}, which rescans the whole array for every row it reads.
+ */
+final class IdTable {
+    // The TABLE parameter still arrives as one ARRAY value, and H2 caps those at 65536 elements.
+    static final int IDS_PER_QUERY = 10_000;
+
+    private IdTable() {
+    }
+
+    /**
+     * Rows of all chunks concatenated in chunk order.
+     */
+    static <T> List<T> query(JdbcTemplate jdbcTemplate, String query, RowMapper<T> rowMapper, Integer[] ids) {
+        final List<T> rows = new ArrayList<>(ids.length);
+
+        for (int from = 0; from < ids.length; from += IDS_PER_QUERY) {
+            rows.addAll(jdbcTemplate.query(query, rowMapper, (Object) chunk(ids, from)));
+        }
+
+        return rows;
+    }
+
+    private static Integer[] chunk(Integer[] ids, int from) {
+        return Arrays.copyOfRange(ids, from, Math.min(from + IDS_PER_QUERY, ids.length));
+    }
+}
@@ -0,0 +1,298 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+
+/**
+ * Write-behind buffer for likes.
+ *
+ * <p>Likes and unlikes are merged per (film, user) into the state that has to reach the database,
+ * so a like followed by an unlike costs nothing. A background thread writes the pending state in one
+ * transaction once {@code batchSize} pairs are pending or {@code maxDelay} has passed, whichever is
+ * first. At most {@code capacity} pairs are pending; callers block while the buffer is full.
+ *
+ * <p>Pairs handed to the writer stay visible as the base state of later changes until the write
+ * succeeds, and a failed write is retried with the next flush.
+ */
+@Slf4j
+public class LikeWriteBuffer implements AutoCloseable {
+    private final int capacity;
+    private final int batchSize;
+    private final Duration maxDelay;
+    private final Lookup lookup;
+    private final Writer writer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushRequested = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Thread flusher;
+
+    private Map<Long, Change> pending = new HashMap<>();
+    private Map<Long, Change> inflight = new HashMap<>();
+    private long generation;
+    private volatile boolean running = true;
+
+    public LikeWriteBuffer(int capacity, int batchSize, Duration maxDelay, Lookup lookup, Writer writer) {
+        this.capacity = capacity;
+        this.batchSize = Math.min(batchSize, capacity);
+        this.maxDelay = maxDelay;
+        this.lookup = lookup;
+        this.writer = writer;
+        this.flusher = new Thread(this::run, "like-write-behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public void like(int filmId, int userId, Instant likedAt) {
+        final Change change = changeOf(filmId, userId);
+
+        try {
+            if (change.liked) {
+                throw new DuplicateKeyException(
+                        String.format("Film %s is already liked by user %s", filmId, userId));
+            }
+
+            change.liked = true;
+            change.likedAt = likedAt;
+            enqueue(change);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns when the removed like was made, or empty if there was no like.
+     */
+    public Optional<Instant> unlike(int filmId, int userId) {
+        final Change change = changeOf(filmId, userId);
+
+        try {
+            if (!change.liked) {
+                return Optional.empty();
+            }
+
+            final Instant likedAt = change.likedAt;
+
+            change.liked = false;
+            change.likedAt = null;
+
+            if (change.baseLiked) {
+                enqueue(change);
+            } else {
+                pending.remove(change.key);
+                notFull.signalAll();
+            }
+
+            return Optional.of(likedAt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size() + inflight.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes everything pending now. Returns false if the write failed and has to be retried.
+     */
+    public boolean flush() {
+        flushLock.lock();
+        try {
+            final Collection<Change> batch;
+
+            lock.lock();
+            try {
+                if (inflight.isEmpty()) {
+                    inflight = pending;
+                    pending = new HashMap<>();
+                    notFull.signalAll();
+                }
+
+                batch = new ArrayList<>(inflight.values());
+            } finally {
+                lock.unlock();
+            }
+
+            if (batch.isEmpty()) {
+                return true;
+            }
+
+            try {
+                writer.write(batch);
+            } catch (RuntimeException e) {
+                log.error("Failed to write {} buffered likes, will retry", batch.size(), e);
+                return false;
+            }
+
+            lock.lock();
+            try {
+                inflight = new HashMap<>();
+                generation++;
+            } finally {
+                lock.unlock();
+            }
+
+            return true;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the background flusher and drains the buffer.
+     */
+    @Override
+    public void close() {
+        running = false;
+
+        lock.lock();
+        try {
+            flushRequested.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        while (pendingCount() > 0) {
+            if (!flush()) {
+                log.error("Dropping {} buffered likes that could not be written on shutdown", pendingCount());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the change for the pair with the lock held; the caller unlocks. A change that is not
+     * pending yet is only handed out while there is room to enqueue it.
+     */
+    private Change changeOf(int filmId, int userId) {
+        final long key = ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+
+        lock.lock();
+
+        while (true) {
+            final Change queued = pending.get(key);
+
+            if (queued != null) {
+                return queued;
+            }
+
+            if (pending.size() >= capacity) {
+                flushRequested.signalAll();
+                notFull.awaitUninterruptibly();
+                continue;
+            }
+
+            final Change written = inflight.get(key);
+
+            if (written != null) {
+                return new Change(key, filmId, userId, written.liked, written.likedAt);
+            }
+
+            final long seenGeneration = generation;
+
+            final Optional<Instant> likedAt;
+
+            lock.unlock();
+            try {
+                likedAt = lookup.likedAt(filmId, userId);
+            } finally {
+                lock.lock();
+            }
+
+            // A flush that committed in the meantime may have made the database answer stale.
+            if (seenGeneration == generation && !pending.containsKey(key) && !inflight.containsKey(key)
+                    && pending.size() < capacity) {
+                return new Change(key, filmId, userId, likedAt.isPresent(), likedAt.orElse(null));
+            }
+        }
+    }
+
+    private void enqueue(Change change) {
+        if (pending.containsKey(change.key)) {
+            return;
+        }
+
+        pending.put(change.key, change);
+
+        if (pending.size() >= batchSize) {
+            flushRequested.signalAll();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            lock.lock();
+            try {
+                if (running && pending.size() < batchSize) {
+                    flushRequested.await(maxDelay.toNanos(), TimeUnit.NANOSECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            if (running) {
+                flush();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Lookup {
+        Optional<Instant> likedAt(int filmId, int userId);
+    }
+
+    @FunctionalInterface
+    public interface Writer {
+        void write(Collection<Change> changes);
+    }
+
+    /**
+     * State of one (film, user) pair: whether the database has the like and whether it should.
+     */
+    @Getter
+    public static final class Change {
+        private final long key;
+        private final int filmId;
+        private final int userId;
+        private final boolean baseLiked;
+        private boolean liked;
+        private Instant likedAt;
+
+        private Change(long key, int filmId, int userId, boolean baseLiked, Instant likedAt) {
+            this.key = key;
+            this.filmId = filmId;
+            this.userId = userId;
+            this.baseLiked = baseLiked;
+            this.liked = baseLiked;
+            this.likedAt = likedAt;
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package ru.yandex.practicum.filmorate.storage.impl;
 
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.List;
 import java.util.Objects;
@@ -11,7 +9,6 @@ import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
@@ -27,30 +24,22 @@ public class MpaDbStorage implements MpaStorage {
     private final Logger log = LoggerFactory.getLogger(FilmDbStorage.class);
 
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceData referenceData;
 
     @Autowired
-    public MpaDbStorage(JdbcTemplate jdbcTemplate) {
+    public MpaDbStorage(JdbcTemplate jdbcTemplate, ReferenceData referenceData) {
         this.jdbcTemplate = jdbcTemplate;
+        this.referenceData = referenceData;
     }
 
     @Override
     public List<Mpa> findAll() {
-        final String query = "SELECT * FROM mpa ORDER BY id";
-
-        return jdbcTemplate.query(query, this::mapRowToMpa);
+        return referenceData.mpas();
     }
 
     @Override
     public Optional<Mpa> findOneById(int id) {
-        final String query = "SELECT * FROM mpa WHERE id = ?";
-
-        try {
-            Mpa mpa = jdbcTemplate.queryForObject(query, this::mapRowToMpa, id);
-
-            return Optional.ofNullable(mpa);
-        } catch (EmptyResultDataAccessException ignored) {
-            return Optional.empty();
-        }
+        return referenceData.mpa(id);
     }
 
     @Override
@@ -66,28 +55,26 @@ public class MpaDbStorage implements MpaStorage {
             return ps;
         }, keyHolder);
 
-        int newId = Objects.requireNonNull(keyHolder.getKey()).intValue();
+        final Mpa added = Mpa.of(Objects.requireNonNull(keyHolder.getKey()).intValue(), mpa.getName());
+
+        AfterCommit.run(() -> referenceData.putMpa(added));
 
-        return findOneById(newId).get();
+        return added;
     }
 
     @Override
     public Mpa update(Mpa mpa) {
-        final int mpaId = mpa.getId();
+        final String query = "UPDATE mpa SET name = ? WHERE id = ?";
 
-        if (findOneById(mpaId).isPresent()) {
-            final String query = "UPDATE mpa SET name =? WHERE id = ?";
+        if (jdbcTemplate.update(query, mpa.getName(), mpa.getId()) == 0) {
+            throw new NoSuchModelException(String.format("MPA %s not found", mpa));
+        }
 
-            jdbcTemplate.update(
-                    query,
-                    mpa.getName(),
-                    mpaId
-            );
+        final Mpa updated = Mpa.of(mpa.getId(), mpa.getName());
 
-            return findOneById(mpaId).get();
-        }
+        AfterCommit.run(() -> referenceData.putMpa(updated));
 
-        throw new NoSuchModelException(String.format("MPA %s not found", mpa));
+        return updated;
     }
 
     @Override
@@ -95,13 +82,6 @@ public class MpaDbStorage implements MpaStorage {
         final String query = "DELETE FROM mpa WHERE id = ?";
 
         jdbcTemplate.update(query, id);
-    }
-
-    private Mpa mapRowToMpa(ResultSet rs, int rowNum) throws SQLException {
-        return Mpa
-                .builder()
-                .id(rs.getInt("id"))
-                .name(rs.getString("name"))
-                .build();
+        AfterCommit.run(() -> referenceData.removeMpa(id));
     }
 }
\ No newline at end of file
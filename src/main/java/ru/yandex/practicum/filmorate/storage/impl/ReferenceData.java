@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import javax.annotation.PostConstruct;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+/**
+ * In-memory copy of the GENRE and MPA tables.
+ *
+ * <p>Readers see one immutable snapshot without locking. Writers build a new snapshot and swap it in,
+ * so a reader never sees a half-applied change. Storages apply their changes once they commit.
+ */
+@Slf4j
+@Component
+public class ReferenceData {
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Snapshot snapshot = new Snapshot(new TreeMap<>(), new TreeMap<>());
+
+    public ReferenceData(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public synchronized void reload() {
+        final Map<Integer, Genre> genres = new TreeMap<>();
+        final Map<Integer, Mpa> mpas = new TreeMap<>();
+
+        jdbcTemplate.query("SELECT id, name FROM genre", rs -> {
+            genres.put(rs.getInt("id"), Genre.of(rs.getInt("id"), rs.getString("name")));
+        });
+        jdbcTemplate.query("SELECT id, name FROM mpa", rs -> {
+            mpas.put(rs.getInt("id"), Mpa.of(rs.getInt("id"), rs.getString("name")));
+        });
+
+        snapshot = new Snapshot(genres, mpas);
+        log.info("Reference data loaded: {} genres, {} MPA ratings", genres.size(), mpas.size());
+    }
+
+    public List<Genre> genres() {
+        return snapshot.genreList;
+    }
+
+    public Optional<Genre> genre(int id) {
+        return Optional.ofNullable(snapshot.genres.get(id));
+    }
+
+    public List<Mpa> mpas() {
+        return snapshot.mpaList;
+    }
+
+    public Optional<Mpa> mpa(int id) {
+        return Optional.ofNullable(snapshot.mpas.get(id));
+    }
+
+    synchronized void putGenre(Genre genre) {
+        snapshot = new Snapshot(with(snapshot.genres, genre.getId(), genre), snapshot.mpas);
+    }
+
+    synchronized void removeGenre(int id) {
+        snapshot = new Snapshot(with(snapshot.genres, id, null), snapshot.mpas);
+    }
+
+    synchronized void putMpa(Mpa mpa) {
+        snapshot = new Snapshot(snapshot.genres, with(snapshot.mpas, mpa.getId(), mpa));
+    }
+
+    synchronized void removeMpa(int id) {
+        snapshot = new Snapshot(snapshot.genres, with(snapshot.mpas, id, null));
+    }
+
+    private static <T> Map<Integer, T> with(Map<Integer, T> source, int id, T value) {
+        final Map<Integer, T> copy = new TreeMap<>(source);
+
+        if (value == null) {
+            copy.remove(id);
+        } else {
+            copy.put(id, value);
+        }
+
+        return copy;
+    }
+
+    private static final class Snapshot {
+        private final Map<Integer, Genre> genres;
+        private final Map<Integer, Mpa> mpas;
+        private final List<Genre> genreList;
+        private final List<Mpa> mpaList;
+
+        private Snapshot(Map<Integer, Genre> genres, Map<Integer, Mpa> mpas) {
+            this.genres = Collections.unmodifiableMap(genres);
+            this.mpas = Collections.unmodifiableMap(mpas);
+            this.genreList = Collections.unmodifiableList(new ArrayList<>(genres.values()));
+            this.mpaList = Collections.unmodifiableList(new ArrayList<>(mpas.values()));
+        }
+    }
+}
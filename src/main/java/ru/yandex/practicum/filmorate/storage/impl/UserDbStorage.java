@@ -5,30 +5,46 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
 
 import ru.yandex.practicum.filmorate.exception.NoSuchModelException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.IdBitmap;
 
 @Repository
 @Primary
 public class UserDbStorage implements UserStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final int exportFetchSize;
+    private final IdBitmap userIds = new IdBitmap();
 
-    public UserDbStorage(JdbcTemplate jdbcTemplate) {
+    public UserDbStorage(JdbcTemplate jdbcTemplate, @Value("${filmorate.export.fetch-size:500}") int exportFetchSize) {
         this.jdbcTemplate = jdbcTemplate;
+        this.exportFetchSize = exportFetchSize;
+    }
+
+    @PostConstruct
+    public void loadIds() {
+        userIds.clear();
+        jdbcTemplate.query("SELECT id FROM users", rs -> {
+            userIds.add(rs.getInt("id"));
+        });
     }
 
     @Override
@@ -36,7 +52,7 @@ public class UserDbStorage implements UserStorage {
         String query = "SELECT * FROM users WHERE id = ?";
 
         try {
-            User user = jdbcTemplate.queryForObject(query, this::mapRowToUser, id);
+            User user = jdbcTemplate.queryForObject(query, UserDbStorage::mapRowToUser, id);
 
             return Optional.ofNullable(user);
         } catch (EmptyResultDataAccessException ignored) {
@@ -44,11 +60,59 @@ public class UserDbStorage implements UserStorage {
         }
     }
 
+    @Override
+    public boolean existsById(int id) {
+        return userIds.contains(id);
+    }
+
+    @Override
+    public boolean existsAll(Collection<Integer> ids) {
+        return userIds.containsAll(ids);
+    }
+
     @Override
     public List<User> findAll() {
         String query = "SELECT * FROM users";
 
-        return jdbcTemplate.query(query, this::mapRowToUser);
+        return jdbcTemplate.query(query, UserDbStorage::mapRowToUser);
+    }
+
+    @Override
+    public List<User> findAllAfter(int afterId, int limit) {
+        String query = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+
+        return jdbcTemplate.query(query, UserDbStorage::mapRowToUser, afterId, limit);
+    }
+
+    /**
+     * Ids are joined as a table, {@value IdTable#IDS_PER_QUERY} per statement; sorting them first
+     * keeps the concatenated chunks in id order.
+     */
+    @Override
+    public List<User> findAllByIds(int[] ids) {
+        final Integer[] sorted = Arrays.stream(ids).sorted().boxed().toArray(Integer[]::new);
+        final String query = "SELECT U.* FROM TABLE(id INT = ?) T JOIN users U ON U.id = T.id ORDER BY U.id";
+
+        return IdTable.query(jdbcTemplate, query, UserDbStorage::mapRowToUser, sorted);
+    }
+
+    /**
+     * Hands users to the consumer one row at a time.
+     */
+    @Override
+    public void forEachUser(Consumer<User> consumer) {
+        final String query = "SELECT * FROM users ORDER BY id";
+
+        jdbcTemplate.query(connection -> {
+            final PreparedStatement ps = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+
+            ps.setFetchSize(exportFetchSize);
+
+            return ps;
+        }, rs -> {
+            consumer.accept(userBuilder(rs).build());
+        });
     }
 
     @Override
@@ -69,6 +133,8 @@ public class UserDbStorage implements UserStorage {
 
         int newId = Objects.requireNonNull(keyHolder.getKey()).intValue();
 
+        AfterCommit.run(() -> userIds.add(newId));
+
         return findOneById(newId).get();
     }
 
@@ -76,7 +142,7 @@ public class UserDbStorage implements UserStorage {
     public User update(User user) {
         int userId = user.getId();
 
-        if (findOneById(userId).isPresent()) {
+        if (existsById(userId)) {
             final String query = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?";
 
             jdbcTemplate.update(
@@ -94,26 +160,16 @@ public class UserDbStorage implements UserStorage {
         throw new NoSuchModelException(String.format("User %s not found", user));
     }
 
+    /**
+     * The caller tells whether the friend already lists the user; if so, both rows end up approved.
+     */
     @Override
-    public List<Integer> getUserFriends(int userId) {
-        String sqlGetFriends = "SELECT friend_id from friends where user_id = ?";
-
-        return jdbcTemplate.queryForList(sqlGetFriends, Integer.class, userId);
-    }
-
-    @Override
-    public void addFriend(int userId, int friendId) {
-        String sqlGetReversFriend = "SELECT * FROM friends WHERE user_id = ? and friend_id = ?";
-
-        SqlRowSet sqlRowSet = jdbcTemplate.queryForRowSet(sqlGetReversFriend, friendId, userId);
-
-        final boolean friendAccepted = sqlRowSet.next();
-
+    public void addFriend(int userId, int friendId, boolean approved) {
         String sqlSetFriend = "INSERT INTO friends (user_id, friend_id, approved) VALUES (?, ?, ?)";
 
-        jdbcTemplate.update(sqlSetFriend, userId, friendId, friendAccepted);
+        jdbcTemplate.update(sqlSetFriend, userId, friendId, approved);
 
-        if (friendAccepted) {
+        if (approved) {
             String sqlSetStatus = "UPDATE friends SET approved = true WHERE user_id = ? and friend_id = ?";
 
             jdbcTemplate.update(sqlSetStatus, friendId, userId);
@@ -132,22 +188,31 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
-    public List<User> commonFriend(int userId, int otherId) {
-        String query = "SELECT * FROM users WHERE id in (" +
-                "SELECT friend_id FROM friends WHERE user_id = ? AND friend_id IN (" +
-                "SELECT friend_id FROM friends WHERE user_id = ?))";
+    public void forEachFriendship(FriendshipConsumer consumer) {
+        final String query = "SELECT user_id, friend_id FROM friends ORDER BY user_id, friend_id";
+
+        jdbcTemplate.query(connection -> {
+            final PreparedStatement ps = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+
+            ps.setFetchSize(exportFetchSize);
+
+            return ps;
+        }, rs -> {
+            consumer.accept(rs.getInt("user_id"), rs.getInt("friend_id"));
+        });
+    }
 
-        return jdbcTemplate.query(query, this::mapRowToUser, userId, otherId);
+    private static User mapRowToUser(ResultSet rs, int rowNum) throws SQLException {
+        return userBuilder(rs).build();
     }
 
-    private User mapRowToUser(ResultSet rs, int rowNum) throws SQLException {
+    private static User.UserBuilder userBuilder(ResultSet rs) throws SQLException {
         return User.builder()
                 .id(rs.getInt("id"))
                 .email(rs.getString("email"))
                 .login(rs.getString("login"))
                 .name(rs.getString("name"))
-                .birthday(rs.getDate("birthday").toLocalDate())
-                .friends(new HashSet<>(getUserFriends(rs.getInt("id"))))
-                .build();
+                .birthday(rs.getDate("birthday").toLocalDate());
     }
 }
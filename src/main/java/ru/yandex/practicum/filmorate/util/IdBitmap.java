@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent set of int ids stored as bits. Ids are grouped into pages of 65536 bits (8 KiB) that are
+ * allocated on first use, which suits identity columns: a million rows take about 128 KiB.
+ */
+public class IdBitmap {
+    private static final int PAGE_SHIFT = 16;
+    private static final int WORDS_PER_PAGE = (1 << PAGE_SHIFT) / Long.SIZE;
+
+    private final ConcurrentMap<Integer, AtomicLongArray> pages = new ConcurrentHashMap<>();
+
+    public void add(int id) {
+        pages.computeIfAbsent(id >>> PAGE_SHIFT, page -> new AtomicLongArray(WORDS_PER_PAGE))
+                .getAndAccumulate(wordOf(id), maskOf(id), (word, mask) -> word | mask);
+    }
+
+    public void remove(int id) {
+        final AtomicLongArray page = pages.get(id >>> PAGE_SHIFT);
+
+        if (page != null) {
+            page.getAndAccumulate(wordOf(id), ~maskOf(id), (word, mask) -> word & mask);
+        }
+    }
+
+    public boolean contains(int id) {
+        final AtomicLongArray page = pages.get(id >>> PAGE_SHIFT);
+
+        return page != null && (page.get(wordOf(id)) & maskOf(id)) != 0;
+    }
+
+    public boolean containsAll(Collection<Integer> ids) {
+        for (int id : ids) {
+            if (!contains(id)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public void clear() {
+        pages.clear();
+    }
+
+    private static int wordOf(int id) {
+        return (id & ((1 << PAGE_SHIFT) - 1)) >>> 6;
+    }
+
+    private static long maskOf(int id) {
+        return 1L << id;
+    }
+}
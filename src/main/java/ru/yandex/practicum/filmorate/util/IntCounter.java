@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.util;
+
+/**
+ * Counts per int key in an open-addressing table of two primitive arrays, so tallying millions of
+ * keys allocates nothing per key. Key 0 marks an empty slot and cannot be counted.
+ *
+ * <p>Not thread-safe.
+ */
+public class IntCounter {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    public IntCounter() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntCounter(int expectedKeys) {
+        final int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedKeys) * 2 - 1) << 1;
+
+        keys = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    public void add(int key, int delta) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 cannot be counted");
+        }
+
+        int slot = slotOf(key, keys);
+
+        if (keys[slot] == 0) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+                slot = slotOf(key, keys);
+            }
+
+            keys[slot] = key;
+            size++;
+        }
+
+        counts[slot] += delta;
+    }
+
+    public int get(int key) {
+        if (key == 0) {
+            return 0;
+        }
+
+        final int slot = slotOf(key, keys);
+
+        return keys[slot] == key ? counts[slot] : 0;
+    }
+
+    public void addAll(IntCounter other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != 0) {
+                add(other.keys[slot], other.counts[slot]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visits keys in no particular order.
+     */
+    public void forEach(Visitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                visitor.accept(keys[slot], counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * Up to {@code k} keys with the highest counts, highest first; equal counts go to the lower key.
+     */
+    public int[] top(int k) {
+        final TopK top = new TopK(Math.min(k, size));
+
+        forEach(top::offer);
+
+        return top.keys();
+    }
+
+    private void grow() {
+        final int[] oldKeys = keys;
+        final int[] oldCounts = counts;
+
+        keys = new int[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != 0) {
+                final int newSlot = slotOf(oldKeys[slot], keys);
+
+                keys[newSlot] = oldKeys[slot];
+                counts[newSlot] = oldCounts[slot];
+            }
+        }
+    }
+
+    /**
+     * Slot holding the key, or the empty slot where it belongs. Ids are often sequential, so keys
+     * are scrambled before masking.
+     */
+    private static int slotOf(int key, int[] keys) {
+        final int mask = keys.length - 1;
+        final int hash = key * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        void accept(int key, int count);
+    }
+}
@@ -0,0 +1,233 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Set of ints kept as a sorted primitive array: four bytes per value and no boxing, against
+ * roughly forty for a {@code HashSet<Integer>}.
+ *
+ * <p>Adding values in ascending order is an append; anything else shifts the tail. Intersections
+ * merge both arrays, or gallop through the larger one when the sizes differ a lot.
+ *
+ * <p>Not thread-safe.
+ */
+public class IntSortedSet {
+    private static final int[] EMPTY = new int[0];
+    private static final int GALLOP_RATIO = 16;
+
+    private int[] values;
+    private int size;
+
+    public IntSortedSet() {
+        this(EMPTY, 0);
+    }
+
+    private IntSortedSet(int[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    public static IntSortedSet of(int... values) {
+        final int[] sorted = values.clone();
+
+        Arrays.sort(sorted);
+
+        int size = 0;
+
+        for (int i = 0; i < sorted.length; i++) {
+            if (size == 0 || sorted[size - 1] != sorted[i]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+
+        return new IntSortedSet(size == sorted.length ? sorted : Arrays.copyOf(sorted, size), size);
+    }
+
+    public boolean add(int value) {
+        if (size > 0 && values[size - 1] < value) {
+            ensureCapacity();
+            values[size++] = value;
+
+            return true;
+        }
+
+        int index = Arrays.binarySearch(values, 0, size, value);
+
+        if (index >= 0) {
+            return false;
+        }
+
+        index = -index - 1;
+        ensureCapacity();
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+
+        return true;
+    }
+
+    public boolean remove(int value) {
+        final int index = Arrays.binarySearch(values, 0, size, value);
+
+        if (index < 0) {
+            return false;
+        }
+
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+
+        return true;
+    }
+
+    public boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Visits values in ascending order.
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(values[i]);
+        }
+    }
+
+    public IntStream stream() {
+        return Arrays.stream(values, 0, size);
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    public IntSortedSet intersection(IntSortedSet other) {
+        final IntSortedSet result = new IntSortedSet(new int[Math.min(size, other.size)], 0);
+
+        intersect(other, value -> result.values[result.size++] = value);
+
+        return result;
+    }
+
+    public int intersectionSize(IntSortedSet other) {
+        final int[] count = {0};
+
+        intersect(other, value -> count[0]++);
+
+        return count[0];
+    }
+
+    private void intersect(IntSortedSet other, IntConsumer consumer) {
+        intersect(values, 0, size, other.values, 0, other.size, consumer);
+    }
+
+    /**
+     * Hands the values common to two ascending, duplicate-free array ranges to the consumer in
+     * ascending order.
+     */
+    public static void intersect(int[] left, int leftFrom, int leftTo, int[] right, int rightFrom, int rightTo,
+                                 IntConsumer consumer) {
+        if (leftTo - leftFrom > rightTo - rightFrom) {
+            intersect(right, rightFrom, rightTo, left, leftFrom, leftTo, consumer);
+            return;
+        }
+
+        if (leftFrom == leftTo) {
+            return;
+        }
+
+        if ((long) (leftTo - leftFrom) * GALLOP_RATIO < rightTo - rightFrom) {
+            gallop(left, leftFrom, leftTo, right, rightFrom, rightTo, consumer);
+        } else {
+            merge(left, leftFrom, leftTo, right, rightFrom, rightTo, consumer);
+        }
+    }
+
+    private static void merge(int[] left, int i, int leftTo, int[] right, int j, int rightTo, IntConsumer consumer) {
+        while (i < leftTo && j < rightTo) {
+            final int a = left[i];
+            final int b = right[j];
+
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                consumer.accept(a);
+                i++;
+                j++;
+            }
+        }
+    }
+
+    private static void gallop(int[] small, int smallFrom, int smallTo, int[] large, int from, int largeTo,
+                               IntConsumer consumer) {
+        for (int i = smallFrom; i < smallTo && from < largeTo; i++) {
+            final int value = small[i];
+            int step = 1;
+            int high = from;
+
+            // Double the step until it passes the value, then binary search the last stretch.
+            while (high < largeTo && large[high] < value) {
+                from = high + 1;
+                high += step;
+                step <<= 1;
+            }
+
+            final int index = Arrays.binarySearch(large, from, Math.min(high + 1, largeTo), value);
+
+            if (index >= 0) {
+                consumer.accept(value);
+                from = index + 1;
+            } else {
+                from = -index - 1;
+            }
+        }
+    }
+
+    private void ensureCapacity() {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof IntSortedSet)) {
+            return false;
+        }
+
+        final IntSortedSet other = (IntSortedSet) o;
+
+        return Arrays.equals(values, 0, size, other.values, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + values[i];
+        }
+
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,818 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Weighted prefix completion: ids named by short texts, returned heaviest first for the texts that
+ * start with a prefix. Every word of a text starts a key of its own, so "The Matrix" completes both
+ * "the ma" and "matr"; keys are folded by {@link Tokenizer}.
+ *
+ * <p>Keys are packed into one sorted run, a flattened trie: their UTF-8 bytes back to back with an
+ * offsets array and the id of each key alongside. The keys under a prefix are one contiguous range
+ * found by binary search, and a max segment tree over the weights of the keys hands out the heaviest
+ * of that range first, so a completion costs O(k log n) and a weight change O(log n) without
+ * per-prefix lists to maintain.
+ *
+ * <p>Keys of ids put since the run was packed are held in a sorted set that completions scan too,
+ * and the keys they replace are marked deleted in the run. Once {@code compactAfter} keys are
+ * pending, a background thread merges them into a new run and swaps it in. Weights are kept per id
+ * and written into the tree in place. Writers are serialized; readers never lock, so a completion
+ * racing a weight change may rank by either weight.
+ */
+public class PrefixIndex {
+    public static final int MAX_COMPLETIONS = 50;
+
+    private static final int MAX_WORDS = 8;
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final int INSERTION_SORT = 16;
+    private static final int[] NONE = new int[0];
+
+    private final int compactAfter;
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final ExecutorService compactor;
+    private final Map<Integer, byte[][]> pendingKeys = new HashMap<>();
+
+    private volatile int[] weights = NONE;
+    private volatile State state = State.of(Run.EMPTY);
+
+    public PrefixIndex(String name, int compactAfter) {
+        this.compactAfter = compactAfter;
+        this.compactor = Executors.newSingleThreadExecutor(task -> {
+            final Thread thread = new Thread(task, name + "-compaction");
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+    /**
+     * Replaces everything with the ids the source hands to the loader.
+     */
+    public void rebuild(Consumer<Loader> source) {
+        compactionLock.lock();
+        try {
+            synchronized (this) {
+                final Packer packer = new Packer();
+                final int[][] loaded = {new int[16]};
+
+                source.accept((id, weight, texts) -> {
+                    for (byte[] key : keysOf(texts)) {
+                        packer.add(key, 0, key.length, id);
+                    }
+
+                    loaded[0] = grow(loaded[0], id);
+                    loaded[0][id] = weight;
+                });
+
+                pendingKeys.clear();
+                weights = loaded[0];
+                state = State.of(packer.sorted().build(weights));
+            }
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    public void close() {
+        compactor.shutdownNow();
+    }
+
+    /**
+     * Replaces the keys of the id with those of the texts. The weight of the id is kept, and is
+     * zero for a new one.
+     */
+    public void put(int id, String... texts) {
+        synchronized (this) {
+            final State state = this.state;
+            final byte[][] keys = keysOf(texts).toArray(new byte[0][]);
+            final byte[][] replaced = pendingKeys.put(id, keys);
+
+            weights = grow(weights, id);
+            state.run.delete(id, weights);
+
+            if (replaced != null) {
+                for (byte[] key : replaced) {
+                    state.pending.remove(new Key(key, id));
+                }
+            }
+
+            if (!state.compacting.isEmpty()) {
+                state.replaced.add(id);
+            }
+
+            for (byte[] key : keys) {
+                state.pending.add(new Key(key, id));
+            }
+        }
+
+        scheduleCompaction();
+    }
+
+    /**
+     * Sets the weight of the id to the supplied one, read under the write lock so that concurrent
+     * changes to the same id land in order.
+     */
+    public void setWeight(int id, IntSupplier weight) {
+        synchronized (this) {
+            final State state = this.state;
+
+            weights = grow(weights, id);
+            weights[id] = weight.getAsInt();
+            state.run.reweigh(id, weights);
+
+            if (!state.compacting.isEmpty()) {
+                state.reweighed.add(id);
+            }
+        }
+    }
+
+    /**
+     * Up to {@code limit} ids with a key starting with the folded prefix, heaviest first; equal
+     * weights go to the alphabetically first key, then to the lower id.
+     */
+    public int[] complete(String prefix, int limit) {
+        final byte[] folded = keyOf(Tokenizer.tokens(prefix), 0);
+
+        if (folded.length == 0 || limit <= 0) {
+            return NONE;
+        }
+
+        final State state = this.state;
+        final int[] weights = this.weights;
+        final int wanted = Math.min(limit, MAX_COMPLETIONS);
+        final List<Candidate> candidates = new ArrayList<>();
+
+        state.run.top(folded, wanted, weights, candidates);
+        collect(state.compacting, folded, state.replaced, weights, candidates);
+        collect(state.pending, folded, Set.of(), weights, candidates);
+        candidates.sort(null);
+
+        final Set<Integer> ids = new LinkedHashSet<>();
+
+        for (int i = 0; i < candidates.size() && ids.size() < wanted; i++) {
+            ids.add(candidates.get(i).id);
+        }
+
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public int size() {
+        final State state = this.state;
+
+        return state.run.live() + state.compacting.size() + state.pending.size();
+    }
+
+    public int pendingKeys() {
+        final State state = this.state;
+
+        return state.compacting.size() + state.pending.size();
+    }
+
+    /**
+     * Heap taken by the packed run and the weights, leaving out the pending keys.
+     */
+    public long bytes() {
+        return state.run.bytes() + (long) weights.length * Integer.BYTES;
+    }
+
+    /**
+     * Merges the pending keys into a new run. Puts made meanwhile stay pending for the next round.
+     */
+    public void compact() {
+        compactionLock.lock();
+        try {
+            final State frozen;
+
+            synchronized (this) {
+                if (state.pending.isEmpty()) {
+                    return;
+                }
+
+                frozen = new State(state.run, state.pending, new ConcurrentSkipListSet<>(),
+                        ConcurrentHashMap.newKeySet(), ConcurrentHashMap.newKeySet());
+                pendingKeys.clear();
+                state = frozen;
+            }
+
+            final Run run = frozen.run.merge(frozen.compacting, weights);
+
+            synchronized (this) {
+                for (int id : frozen.replaced) {
+                    run.delete(id, weights);
+                }
+
+                for (int id : frozen.reweighed) {
+                    run.reweigh(id, weights);
+                }
+
+                state = new State(run, new TreeSet<>(), state.pending, Set.of(), Set.of());
+            }
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (state.pending.size() < compactAfter || !compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        compactor.execute(() -> {
+            try {
+                compact();
+            } finally {
+                compactionScheduled.set(false);
+            }
+        });
+    }
+
+    private static void collect(NavigableSet<Key> keys, byte[] prefix, Set<Integer> skipped, int[] weights,
+                                List<Candidate> candidates) {
+        for (Key key : keys.tailSet(new Key(prefix, Integer.MIN_VALUE), true)) {
+            if (compare(key.bytes, 0, key.bytes.length, prefix, 0, prefix.length, true) != 0) {
+                return;
+            }
+
+            if (!skipped.contains(key.id)) {
+                candidates.add(new Candidate(weightOf(weights, key.id), key.bytes, key.id));
+            }
+        }
+    }
+
+    /**
+     * Distinct keys for the texts: each starts at one of the first {@value #MAX_WORDS} words of a
+     * text and runs to its end, cut at {@value #MAX_KEY_LENGTH} chars.
+     */
+    private static List<byte[]> keysOf(String... texts) {
+        final Map<String, byte[]> keys = new LinkedHashMap<>();
+
+        for (String text : texts) {
+            final List<String> words = Tokenizer.tokens(text);
+
+            for (int i = 0; i < Math.min(words.size(), MAX_WORDS); i++) {
+                final byte[] key = keyOf(words, i);
+
+                keys.putIfAbsent(new String(key, StandardCharsets.UTF_8), key);
+            }
+        }
+
+        return new ArrayList<>(keys.values());
+    }
+
+    private static byte[] keyOf(List<String> words, int from) {
+        final String key = String.join(" ", words.subList(from, words.size()));
+
+        return key.substring(0, Math.min(key.length(), MAX_KEY_LENGTH)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int weightOf(int[] weights, int id) {
+        return id < weights.length ? weights[id] : 0;
+    }
+
+    private static int[] grow(int[] values, int id) {
+        return id < values.length ? values : Arrays.copyOf(values, Math.max(id + 1, values.length * 2));
+    }
+
+    /**
+     * Compares unsigned bytes, shorter first on a common start. With {@code prefix} set, a left
+     * side that starts with the right one compares equal.
+     */
+    private static int compare(byte[] left, int leftFrom, int leftTo, byte[] right, int rightFrom, int rightTo,
+                               boolean prefix) {
+        final int mismatch = Arrays.mismatch(left, leftFrom, leftTo, right, rightFrom, rightTo);
+
+        if (mismatch < 0 || prefix && mismatch == rightTo - rightFrom) {
+            return 0;
+        }
+
+        if (mismatch == leftTo - leftFrom || mismatch == rightTo - rightFrom) {
+            return mismatch == leftTo - leftFrom ? -1 : 1;
+        }
+
+        return Byte.compareUnsigned(left[leftFrom + mismatch], right[rightFrom + mismatch]);
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+        void add(int id, int weight, String... texts);
+    }
+
+    /**
+     * The packed run plus the keys put since. {@code compacting} holds the keys being merged right
+     * now, {@code pending} the ones put after that started, and {@code replaced} the ids whose
+     * compacting keys a later put superseded.
+     */
+    private static final class State {
+        private final Run run;
+        private final NavigableSet<Key> compacting;
+        private final ConcurrentSkipListSet<Key> pending;
+        private final Set<Integer> replaced;
+        private final Set<Integer> reweighed;
+
+        private State(Run run, NavigableSet<Key> compacting, ConcurrentSkipListSet<Key> pending,
+                      Set<Integer> replaced, Set<Integer> reweighed) {
+            this.run = run;
+            this.compacting = compacting;
+            this.pending = pending;
+            this.replaced = replaced;
+            this.reweighed = reweighed;
+        }
+
+        private static State of(Run run) {
+            return new State(run, new TreeSet<>(), new ConcurrentSkipListSet<>(), Set.of(), Set.of());
+        }
+    }
+
+    private static final class Key implements Comparable<Key> {
+        private final byte[] bytes;
+        private final int id;
+
+        private Key(byte[] bytes, int id) {
+            this.bytes = bytes;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            final int compared = Arrays.compareUnsigned(bytes, other.bytes);
+
+            return compared != 0 ? compared : Integer.compare(id, other.id);
+        }
+    }
+
+    /**
+     * Heaviest first, then by key and id: the order completions are returned in.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        private final int weight;
+        private final byte[] key;
+        private final int id;
+
+        private Candidate(int weight, byte[] key, int id) {
+            this.weight = weight;
+            this.key = key;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (weight != other.weight) {
+                return Integer.compare(other.weight, weight);
+            }
+
+            final int compared = Arrays.compareUnsigned(key, other.key);
+
+            return compared != 0 ? compared : Integer.compare(id, other.id);
+        }
+    }
+
+    /**
+     * Keys sorted by bytes, then id. Key {@code p} is {@code bytes[offsets[p]..offsets[p + 1])}.
+     * {@code byId} lists the positions ordered by id, to find the keys of an id. {@code tree} is an
+     * implicit segment tree over the positions padded to {@code leaves}: inner node {@code n} holds
+     * the position of the heaviest live key below it, and node {@code leaves + p} stands for key
+     * {@code p}. Deleted keys weigh -1.
+     */
+    private static final class Run {
+        private static final Run EMPTY = new Run(new byte[0], new int[]{0}, NONE, NONE);
+
+        private final byte[] bytes;
+        private final int[] offsets;
+        private final int[] ids;
+        private final int[] byId;
+        private final int[] tree;
+        private final long[] deleted;
+        private final int leaves;
+
+        private Run(byte[] bytes, int[] offsets, int[] ids, int[] weights) {
+            this.bytes = bytes;
+            this.offsets = offsets;
+            this.ids = ids;
+            this.leaves = ids.length <= 1 ? 1 : Integer.highestOneBit(ids.length - 1) << 1;
+            this.tree = new int[leaves];
+            this.deleted = new long[(ids.length + Long.SIZE - 1) / Long.SIZE];
+
+            final long[] positions = new long[ids.length];
+
+            for (int p = 0; p < ids.length; p++) {
+                positions[p] = (long) ids[p] << Integer.SIZE | p;
+            }
+            Arrays.sort(positions);
+
+            this.byId = new int[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                byId[i] = (int) positions[i];
+            }
+
+            for (int node = leaves - 1; node > 0; node--) {
+                tree[node] = heavier(heaviest(2 * node), heaviest(2 * node + 1), weights);
+            }
+        }
+
+        private int size() {
+            return ids.length;
+        }
+
+        private int live() {
+            int deletedKeys = 0;
+
+            for (long word : deleted) {
+                deletedKeys += Long.bitCount(word);
+            }
+
+            return size() - deletedKeys;
+        }
+
+        private long bytes() {
+            return bytes.length + (long) Integer.BYTES * (offsets.length + ids.length + byId.length + tree.length)
+                    + (long) Long.BYTES * deleted.length;
+        }
+
+        private boolean isDeleted(int p) {
+            return (deleted[p >>> 6] & 1L << p) != 0;
+        }
+
+        private int weight(int p, int[] weights) {
+            return p < 0 || isDeleted(p) ? -1 : weightOf(weights, ids[p]);
+        }
+
+        private int heaviest(int node) {
+            if (node < leaves) {
+                return tree[node];
+            }
+
+            return node - leaves < size() ? node - leaves : -1;
+        }
+
+        /**
+         * The heavier of two positions, the left one on a tie.
+         */
+        private int heavier(int left, int right, int[] weights) {
+            return weight(right, weights) > weight(left, weights) ? right : left;
+        }
+
+        private void delete(int id, int[] weights) {
+            for (int i = firstOf(id); i < size() && ids[byId[i]] == id; i++) {
+                deleted[byId[i] >>> 6] |= 1L << byId[i];
+                update(byId[i], weights);
+            }
+        }
+
+        private void reweigh(int id, int[] weights) {
+            for (int i = firstOf(id); i < size() && ids[byId[i]] == id; i++) {
+                update(byId[i], weights);
+            }
+        }
+
+        private void update(int p, int[] weights) {
+            for (int node = (leaves + p) >>> 1; node > 0; node >>>= 1) {
+                tree[node] = heavier(heaviest(2 * node), heaviest(2 * node + 1), weights);
+            }
+        }
+
+        private int firstOf(int id) {
+            int low = 0;
+            int high = size();
+
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+
+                if (ids[byId[middle]] < id) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+
+        /**
+         * First position whose key compares above the prefix, or starts with it if {@code inclusive}.
+         */
+        private int bound(byte[] prefix, boolean inclusive) {
+            int low = 0;
+            int high = size();
+
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                final int compared = compare(bytes, offsets[middle], offsets[middle + 1], prefix, 0, prefix.length,
+                        true);
+
+                if (compared < 0 || compared == 0 && !inclusive) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+
+        /**
+         * Adds the keys of the first {@code limit} distinct ids under the prefix, best first, by
+         * walking the tree nodes covering the range heaviest first.
+         */
+        private void top(byte[] prefix, int limit, int[] weights, List<Candidate> candidates) {
+            final NodeHeap heap = new NodeHeap();
+            final int[] found = new int[limit];
+            int size = 0;
+
+            for (int low = bound(prefix, true) + leaves, high = bound(prefix, false) + leaves; low < high;
+                 low >>>= 1, high >>>= 1) {
+                if ((low & 1) != 0) {
+                    push(heap, low++, weights);
+                }
+                if ((high & 1) != 0) {
+                    push(heap, --high, weights);
+                }
+            }
+
+            candidates:
+            while (size < limit && !heap.isEmpty()) {
+                final int node = heap.pop();
+
+                if (node < leaves) {
+                    push(heap, 2 * node, weights);
+                    push(heap, 2 * node + 1, weights);
+
+                    continue;
+                }
+
+                final int p = node - leaves;
+
+                for (int i = 0; i < size; i++) {
+                    if (found[i] == ids[p]) {
+                        continue candidates;
+                    }
+                }
+
+                found[size++] = ids[p];
+                candidates.add(new Candidate(weight(p, weights), Arrays.copyOfRange(bytes, offsets[p], offsets[p + 1]),
+                        ids[p]));
+            }
+        }
+
+        private void push(NodeHeap heap, int node, int[] weights) {
+            final int p = heaviest(node);
+            final int weight = weight(p, weights);
+
+            if (weight >= 0) {
+                heap.push((long) weight << Integer.SIZE | Integer.MAX_VALUE - p, node);
+            }
+        }
+
+        /**
+         * Live keys of this run merged with the given ones, which must not be in it already.
+         */
+        private Run merge(NavigableSet<Key> keys, int[] weights) {
+            final Packer packer = new Packer();
+            final Iterator<Key> added = keys.iterator();
+            Key next = added.hasNext() ? added.next() : null;
+            int p = nextLive(0);
+
+            while (p < size() || next != null) {
+                if (next == null || p < size() && compareTo(p, next) < 0) {
+                    packer.add(bytes, offsets[p], offsets[p + 1], ids[p]);
+                    p = nextLive(p + 1);
+                } else {
+                    packer.add(next.bytes, 0, next.bytes.length, next.id);
+                    next = added.hasNext() ? added.next() : null;
+                }
+            }
+
+            return packer.build(weights);
+        }
+
+        private int nextLive(int p) {
+            while (p < size() && isDeleted(p)) {
+                p++;
+            }
+
+            return p;
+        }
+
+        private int compareTo(int p, Key key) {
+            final int compared = compare(bytes, offsets[p], offsets[p + 1], key.bytes, 0, key.bytes.length, false);
+
+            return compared != 0 ? compared : Integer.compare(ids[p], key.id);
+        }
+    }
+
+    /**
+     * A max-heap of tree nodes by packed weight and position.
+     */
+    private static final class NodeHeap {
+        private long[] priorities = new long[32];
+        private int[] nodes = new int[32];
+        private int size;
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void push(long priority, int node) {
+            if (size == nodes.length) {
+                priorities = Arrays.copyOf(priorities, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+
+            int i = size++;
+
+            while (i > 0 && priorities[(i - 1) >>> 1] < priority) {
+                priorities[i] = priorities[(i - 1) >>> 1];
+                nodes[i] = nodes[(i - 1) >>> 1];
+                i = (i - 1) >>> 1;
+            }
+
+            priorities[i] = priority;
+            nodes[i] = node;
+        }
+
+        private int pop() {
+            final int top = nodes[0];
+            final long priority = priorities[--size];
+            final int node = nodes[size];
+            int i = 0;
+
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+
+                if (child + 1 < size && priorities[child + 1] > priorities[child]) {
+                    child++;
+                }
+
+                if (priorities[child] <= priority) {
+                    break;
+                }
+
+                priorities[i] = priorities[child];
+                nodes[i] = nodes[child];
+                i = child;
+            }
+
+            priorities[i] = priority;
+            nodes[i] = node;
+
+            return top;
+        }
+    }
+
+    /**
+     * Appends keys into growing arrays, then packs them into a run as they are or sorted.
+     */
+    private static final class Packer {
+        private byte[] bytes = new byte[1024];
+        private int[] offsets = new int[64];
+        private int[] ids = new int[64];
+        private int size;
+
+        private void add(byte[] key, int from, int to, int id) {
+            final int length = to - from;
+
+            if (offsets[size] + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(offsets[size] + length, bytes.length + (bytes.length >> 1)));
+            }
+
+            if (size + 1 == ids.length) {
+                offsets = Arrays.copyOf(offsets, ids.length + (ids.length >> 1));
+                ids = Arrays.copyOf(ids, ids.length + (ids.length >> 1));
+            }
+
+            System.arraycopy(key, from, bytes, offsets[size], length);
+            ids[size] = id;
+            offsets[size + 1] = offsets[size] + length;
+            size++;
+        }
+
+        private Run build(int[] weights) {
+            return new Run(Arrays.copyOf(bytes, offsets[size]), Arrays.copyOf(offsets, size + 1),
+                    Arrays.copyOf(ids, size), weights);
+        }
+
+        /**
+         * The same keys in run order, sorted by multikey quicksort over a permutation so no key
+         * object is made per entry.
+         */
+        private Packer sorted() {
+            final int[] order = new int[size];
+
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+
+            sort(order, 0, size, 0);
+
+            final Packer sorted = new Packer();
+
+            sorted.bytes = new byte[Math.max(1, offsets[size])];
+            sorted.offsets = new int[size + 2];
+            sorted.ids = new int[size + 2];
+
+            for (int i : order) {
+                sorted.add(bytes, offsets[i], offsets[i + 1], ids[i]);
+            }
+
+            return sorted;
+        }
+
+        private int byteAt(int i, int depth) {
+            return offsets[i] + depth < offsets[i + 1] ? bytes[offsets[i] + depth] & 0xFF : -1;
+        }
+
+        private void sort(int[] order, int from, int to, int depth) {
+            while (to - from > INSERTION_SORT) {
+                final int pivot = median(byteAt(order[from], depth), byteAt(order[(from + to) >>> 1], depth),
+                        byteAt(order[to - 1], depth));
+                int less = from;
+                int greater = to;
+
+                for (int i = from; i < greater; ) {
+                    final int value = byteAt(order[i], depth);
+
+                    if (value < pivot) {
+                        swap(order, less++, i++);
+                    } else if (value > pivot) {
+                        swap(order, i, --greater);
+                    } else {
+                        i++;
+                    }
+                }
+
+                sort(order, from, less, depth);
+                sort(order, greater, to, depth);
+
+                if (pivot < 0) {
+                    sortByIds(order, less, greater);
+
+                    return;
+                }
+
+                from = less;
+                to = greater;
+                depth++;
+            }
+
+            for (int i = from + 1; i < to; i++) {
+                for (int j = i; j > from && compare(order[j - 1], order[j]) > 0; j--) {
+                    swap(order, j - 1, j);
+                }
+            }
+        }
+
+        /**
+         * Orders a run of equal keys by id.
+         */
+        private void sortByIds(int[] order, int from, int to) {
+            final long[] packed = new long[to - from];
+
+            for (int i = from; i < to; i++) {
+                packed[i - from] = (long) ids[order[i]] << Integer.SIZE | order[i];
+            }
+            Arrays.sort(packed);
+
+            for (int i = from; i < to; i++) {
+                order[i] = (int) packed[i - from];
+            }
+        }
+
+        private int compare(int left, int right) {
+            final int compared = PrefixIndex.compare(bytes, offsets[left], offsets[left + 1], bytes, offsets[right],
+                    offsets[right + 1], false);
+
+            return compared != 0 ? compared : Integer.compare(ids[left], ids[right]);
+        }
+
+        private static int median(int a, int b, int c) {
+            return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+        }
+
+        private static void swap(int[] order, int i, int j) {
+            final int swapped = order[i];
+
+            order[i] = order[j];
+            order[j] = swapped;
+        }
+    }
+}
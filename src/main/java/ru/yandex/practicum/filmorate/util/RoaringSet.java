@@ -0,0 +1,346 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative int ids in the spirit of Roaring bitmaps.
+ *
+ * <p>Ids are split by their high 16 bits into chunks. A chunk holds its low 16 bits either as a sorted
+ * {@code char[]} while it has at most {@value #ARRAY_LIMIT} values, or as a 65536-bit bitmap once it
+ * is denser, so a set costs about two bytes per id when sparse and one bit per id when dense.
+ *
+ * <p>The set is copy-on-write: chunks are never modified, and a change copies the one chunk it
+ * touches (8 KB at most) and the chunk directory, then publishes them as a new version. Reads and
+ * iteration take no lock and see a single version throughout, however long they run; only writers
+ * are serialized.
+ */
+public class RoaringSet {
+    static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private volatile Version version = Version.EMPTY;
+
+    public synchronized boolean add(int value) {
+        final Version current = version;
+        final char key = highOf(value);
+        final int index = current.indexOf(key);
+
+        if (index < 0) {
+            version = current.inserting(-index - 1, key, new ArrayChunk(new char[]{lowOf(value)}));
+
+            return true;
+        }
+
+        final Chunk chunk = current.chunks[index];
+        final Chunk added = chunk.adding(lowOf(value));
+
+        if (added == chunk) {
+            return false;
+        }
+
+        version = current.replacing(index, added, 1);
+
+        return true;
+    }
+
+    public synchronized boolean remove(int value) {
+        final Version current = version;
+        final int index = current.indexOf(highOf(value));
+
+        if (index < 0) {
+            return false;
+        }
+
+        final Chunk chunk = current.chunks[index];
+        final Chunk removed = chunk.removing(lowOf(value));
+
+        if (removed == chunk) {
+            return false;
+        }
+
+        version = removed == null ? current.dropping(index) : current.replacing(index, removed, -1);
+
+        return true;
+    }
+
+    public boolean contains(int value) {
+        final Version current = version;
+        final int index = current.indexOf(highOf(value));
+
+        return index >= 0 && current.chunks[index].contains(lowOf(value));
+    }
+
+    public int size() {
+        return version.size;
+    }
+
+    public boolean isEmpty() {
+        return version.size == 0;
+    }
+
+    /**
+     * Values in ascending order.
+     */
+    public int[] toArray() {
+        final Version current = version;
+        final int[] values = new int[current.size];
+        final int[] position = {0};
+
+        current.forEach(value -> values[position[0]++] = value);
+
+        return values;
+    }
+
+    /**
+     * Visits values in ascending order as they were when the call started. Changes made meanwhile,
+     * including by the consumer itself, neither wait for the visit nor show up in it.
+     */
+    public void forEach(IntConsumer consumer) {
+        version.forEach(consumer);
+    }
+
+    private static char highOf(int value) {
+        return (char) (value >>> 16);
+    }
+
+    private static char lowOf(int value) {
+        return (char) value;
+    }
+
+    /**
+     * Immutable state of the set: chunk keys ascending and their chunks, both exactly sized.
+     */
+    private static final class Version {
+        private static final Version EMPTY = new Version(new char[0], new Chunk[0], 0);
+
+        private final char[] keys;
+        private final Chunk[] chunks;
+        private final int size;
+
+        private Version(char[] keys, Chunk[] chunks, int size) {
+            this.keys = keys;
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        private int indexOf(char key) {
+            return Arrays.binarySearch(keys, key);
+        }
+
+        private Version inserting(int index, char key, Chunk chunk) {
+            final char[] newKeys = new char[keys.length + 1];
+            final Chunk[] newChunks = new Chunk[chunks.length + 1];
+
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+            System.arraycopy(chunks, 0, newChunks, 0, index);
+            System.arraycopy(chunks, index, newChunks, index + 1, chunks.length - index);
+            newKeys[index] = key;
+            newChunks[index] = chunk;
+
+            return new Version(newKeys, newChunks, size + chunk.size());
+        }
+
+        private Version replacing(int index, Chunk chunk, int delta) {
+            final Chunk[] newChunks = chunks.clone();
+
+            newChunks[index] = chunk;
+
+            return new Version(keys, newChunks, size + delta);
+        }
+
+        private Version dropping(int index) {
+            final char[] newKeys = new char[keys.length - 1];
+            final Chunk[] newChunks = new Chunk[chunks.length - 1];
+
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(chunks, 0, newChunks, 0, index);
+            System.arraycopy(chunks, index + 1, newChunks, index, chunks.length - index - 1);
+
+            return new Version(newKeys, newChunks, size - 1);
+        }
+
+        private void forEach(IntConsumer consumer) {
+            for (int i = 0; i < keys.length; i++) {
+                chunks[i].forEach(keys[i] << 16, consumer);
+            }
+        }
+    }
+
+    private interface Chunk {
+        /**
+         * Returns this chunk if it already holds the value.
+         */
+        Chunk adding(char low);
+
+        /**
+         * Returns this chunk if it does not hold the value, or null if the value was its last.
+         */
+        Chunk removing(char low);
+
+        boolean contains(char low);
+
+        int size();
+
+        void forEach(int high, IntConsumer consumer);
+    }
+
+    private static final class ArrayChunk implements Chunk {
+        private final char[] values;
+
+        private ArrayChunk(char[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Chunk adding(char low) {
+            final int index = Arrays.binarySearch(values, low);
+
+            if (index >= 0) {
+                return this;
+            }
+
+            if (values.length == ARRAY_LIMIT) {
+                return BitmapChunk.of(values, low);
+            }
+
+            final char[] added = new char[values.length + 1];
+            final int at = -index - 1;
+
+            System.arraycopy(values, 0, added, 0, at);
+            added[at] = low;
+            System.arraycopy(values, at, added, at + 1, values.length - at);
+
+            return new ArrayChunk(added);
+        }
+
+        @Override
+        public Chunk removing(char low) {
+            final int index = Arrays.binarySearch(values, low);
+
+            if (index < 0) {
+                return this;
+            }
+
+            if (values.length == 1) {
+                return null;
+            }
+
+            final char[] removed = new char[values.length - 1];
+
+            System.arraycopy(values, 0, removed, 0, index);
+            System.arraycopy(values, index + 1, removed, index, values.length - index - 1);
+
+            return new ArrayChunk(removed);
+        }
+
+        @Override
+        public boolean contains(char low) {
+            return Arrays.binarySearch(values, low) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public void forEach(int high, IntConsumer consumer) {
+            for (char value : values) {
+                consumer.accept(high | value);
+            }
+        }
+    }
+
+    private static final class BitmapChunk implements Chunk {
+        private final long[] words;
+        private final int size;
+
+        private BitmapChunk(long[] words, int size) {
+            this.words = words;
+            this.size = size;
+        }
+
+        private static BitmapChunk of(char[] values, char low) {
+            final long[] words = new long[BITMAP_WORDS];
+
+            for (char value : values) {
+                words[value >>> 6] |= 1L << value;
+            }
+
+            words[low >>> 6] |= 1L << low;
+
+            return new BitmapChunk(words, values.length + 1);
+        }
+
+        @Override
+        public Chunk adding(char low) {
+            if (contains(low)) {
+                return this;
+            }
+
+            final long[] added = words.clone();
+
+            added[low >>> 6] |= 1L << low;
+
+            return new BitmapChunk(added, size + 1);
+        }
+
+        @Override
+        public Chunk removing(char low) {
+            if (!contains(low)) {
+                return this;
+            }
+
+            if (size - 1 <= ARRAY_LIMIT) {
+                return toArray(low);
+            }
+
+            final long[] removed = words.clone();
+
+            removed[low >>> 6] &= ~(1L << low);
+
+            return new BitmapChunk(removed, size - 1);
+        }
+
+        @Override
+        public boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void forEach(int high, IntConsumer consumer) {
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                long bits = words[word];
+
+                while (bits != 0) {
+                    consumer.accept(high | (word << 6) | Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        /**
+         * The chunk's values without {@code low}, as an array chunk.
+         */
+        private ArrayChunk toArray(char low) {
+            final char[] values = new char[size - 1];
+            final int[] position = {0};
+
+            forEach(0, value -> {
+                if (value != low) {
+                    values[position[0]++] = (char) value;
+                }
+            });
+
+            return new ArrayChunk(values);
+        }
+    }
+}
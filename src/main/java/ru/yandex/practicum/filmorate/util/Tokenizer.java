@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into lower-case words with diacritics removed, so "Amélie" matches "amelie" and
+ * "Ёлка" matches "елка". Й stays a letter of its own rather than folding into и.
+ */
+public final class Tokenizer {
+    private static final char COMBINING_BREVE = '\u0306';
+
+    private Tokenizer() {
+    }
+
+    /**
+     * Words in order of appearance: runs of letters and digits of the folded text.
+     */
+    public static List<String> tokens(String text) {
+        final List<String> tokens = new ArrayList<>();
+
+        if (text == null) {
+            return tokens;
+        }
+
+        final String folded = fold(text);
+        int start = -1;
+
+        for (int i = 0; i <= folded.length(); i++) {
+            final boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+
+        return tokens;
+    }
+
+    /**
+     * Lower-cases the text and strips combining marks after canonical decomposition.
+     */
+    public static String fold(String text) {
+        final String lower = text.toLowerCase(Locale.ROOT);
+
+        if (isAscii(lower)) {
+            return lower;
+        }
+
+        final String decomposed = Normalizer.normalize(lower, Normalizer.Form.NFD);
+        final StringBuilder folded = new StringBuilder(decomposed.length());
+
+        for (int i = 0; i < decomposed.length(); i++) {
+            final char c = decomposed.charAt(i);
+
+            if (c == COMBINING_BREVE && folded.length() > 0 && folded.charAt(folded.length() - 1) == 'и') {
+                folded.setCharAt(folded.length() - 1, 'й');
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                appendFolded(folded, c);
+            }
+        }
+
+        return folded.toString();
+    }
+
+    /**
+     * Appends the letter, spelling out the few whose diacritic is not a separate mark in Unicode.
+     */
+    private static void appendFolded(StringBuilder folded, char c) {
+        switch (c) {
+            case 'ł':
+                folded.append('l');
+                break;
+            case 'ø':
+                folded.append('o');
+                break;
+            case 'đ':
+                folded.append('d');
+                break;
+            case 'ß':
+                folded.append("ss");
+                break;
+            default:
+                folded.append(c);
+        }
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the {@code k} positive int keys with the highest non-negative int scores offered to it.
+ * Score and key are packed into one long that orders by score, then by lower key, and the
+ * {@code k} largest are kept in a min-heap, so offering allocates nothing.
+ *
+ * <p>Float scores can be offered as {@link Float#floatToIntBits(float)}, which orders non-negative
+ * floats the same way.
+ *
+ * <p>Not thread-safe.
+ */
+public class TopK {
+    private final long[] heap;
+    private int size;
+
+    public TopK(int k) {
+        heap = new long[Math.max(0, k)];
+    }
+
+    public void offer(int key, int score) {
+        final long ranked = (long) score << Integer.SIZE | Integer.MAX_VALUE - key;
+
+        if (size < heap.length) {
+            heap[size] = ranked;
+            siftUp(size++);
+        } else if (size > 0 && ranked > heap[0]) {
+            heap[0] = ranked;
+            siftDown();
+        }
+    }
+
+    /**
+     * Kept keys, highest score first; equal scores go to the lower key.
+     */
+    public int[] keys() {
+        final long[] sorted = Arrays.copyOf(heap, size);
+
+        Arrays.sort(sorted);
+
+        final int[] keys = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            keys[i] = Integer.MAX_VALUE - (int) sorted[size - 1 - i];
+        }
+
+        return keys;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0 && heap[(index - 1) / 2] > heap[index]) {
+            swap(index, (index - 1) / 2);
+            index = (index - 1) / 2;
+        }
+    }
+
+    private void siftDown() {
+        int index = 0;
+
+        while (2 * index + 1 < size) {
+            int child = 2 * index + 1;
+
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+
+            if (heap[index] <= heap[child]) {
+                return;
+            }
+
+            swap(index, child);
+            index = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        final long value = heap[i];
+
+        heap[i] = heap[j];
+        heap[j] = value;
+    }
+}
@@ -12,3 +12,8 @@ MERGE INTO GENRE KEY(ID) VALUES
    (4, 'Триллер'),
    (5, 'Документальный'),
    (6, 'Боевик');
+
+
+-- Seeded ids are explicit, so move the identities past them.
+ALTER TABLE MPA ALTER COLUMN ID RESTART WITH 6;
+ALTER TABLE GENRE ALTER COLUMN ID RESTART WITH 7;
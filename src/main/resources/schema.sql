@@ -8,6 +8,7 @@ DROP TABLE IF EXISTS FAVORITE_FILMS CASCADE;
 DROP TABLE IF EXISTS FILM_GENRE CASCADE;
 DROP TABLE IF EXISTS FAVORITE_FILMS CASCADE;
 DROP TABLE IF EXISTS FRIENDS CASCADE;
+DROP TABLE IF EXISTS FILM_LIKE_COUNTER CASCADE;
 
 --
 
@@ -48,13 +49,16 @@ CREATE UNIQUE INDEX IF NOT EXISTS USER_LOGIN_UINDEX on USERS (login);
 
 CREATE TABLE IF NOT EXISTS FAVORITE_FILMS
 (
-    film_id INTEGER NOT NULL,
-    user_id INTEGER NOT NULL,
+    film_id    INTEGER   NOT NULL,
+    user_id    INTEGER   NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     CONSTRAINT favorite_films_pk PRIMARY KEY (film_id, user_id),
     CONSTRAINT favored_film_fk FOREIGN KEY (film_id) REFERENCES FILM (id),
     CONSTRAINT favored_user_fk FOREIGN KEY (user_id) REFERENCES USERS (id)
 );
 
+CREATE INDEX IF NOT EXISTS FAVORITE_FILMS_CREATED_AT_INDEX on FAVORITE_FILMS (created_at);
+
 CREATE TABLE IF NOT EXISTS FILM_GENRE
 (
     film_id  INTEGER NOT NULL,
@@ -73,3 +77,13 @@ CREATE TABLE IF NOT EXISTS FRIENDS
     CONSTRAINT user_fk FOREIGN KEY (user_id) REFERENCES USERS (id),
     CONSTRAINT friend_fk FOREIGN KEY (friend_id) REFERENCES USERS (id)
 );
+
+CREATE TABLE IF NOT EXISTS FILM_LIKE_COUNTER
+(
+    film_id    INTEGER NOT NULL PRIMARY KEY,
+    like_count INTEGER NOT NULL DEFAULT 0,
+    CONSTRAINT flc_film_fk FOREIGN KEY (film_id) REFERENCES FILM (id) ON DELETE CASCADE
+);
+
+-- Leads on the count so the most liked films are the first entries of the index.
+CREATE INDEX IF NOT EXISTS FILM_LIKE_COUNTER_COUNT_INDEX on FILM_LIKE_COUNTER (like_count DESC, film_id);
@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.Random;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import ru.yandex.practicum.filmorate.util.PrefixIndex;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+/**
+ * Footprint, completion latency and update cost of the {@link PrefixIndex} behind user
+ * autocomplete, loaded with synthetic users whose logins and names are built from a couple of dozen
+ * Latin and Cyrillic syllables and whose friend counts are skewed.
+ *
+ * <p>Run with {@code mvn test -Pbenchmark -Dtest=AutocompleteBenchmark -Dbenchmark.users=5000000
+ * -DargLine=-Xmx3g}.
+ */
+@Slf4j
+@Tag("benchmark")
+class AutocompleteBenchmark {
+    private static final String[] LATIN = {"an", "ar", "el", "ka", "li", "ma", "na", "ol", "ri", "sa", "ta", "vi"};
+    private static final String[] CYRILLIC = {"ан", "ва", "ле", "ми", "на", "ов", "ра", "се", "та", "ев", "ин"};
+    private static final int CALLS = 100_000;
+    private static final int WRITES = 100_000;
+
+    @Test
+    @DisplayName("user autocomplete over 5M users")
+    void autocomplete() {
+        final int users = Integer.getInteger("benchmark.users", 5_000_000);
+        final PrefixIndex index = new PrefixIndex("benchmark", 10_000);
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        System.gc();
+
+        final long usedBefore = memory.getHeapMemoryUsage().getUsed();
+        final long started = System.nanoTime();
+
+        index.rebuild(loader -> {
+            final Random random = new Random(4);
+
+            for (int userId = 1; userId <= users; userId++) {
+                final String[] syllables = random.nextInt(3) == 0 ? CYRILLIC : LATIN;
+
+                loader.add(userId, friends(random), login(random), name(random, syllables));
+            }
+        });
+
+        final long buildMillis = (System.nanoTime() - started) / 1_000_000;
+
+        System.gc();
+
+        final long used = memory.getHeapMemoryUsage().getUsed() - usedBefore;
+
+        log.info("{} users, {} keys indexed in {} ms: {} bytes per user on the heap, {} of them in arrays",
+                users, index.size(), buildMillis, used / users, index.bytes() / users);
+
+        final Random random = new Random(5);
+        final String[] prefixes = new String[CALLS];
+
+        for (int i = 0; i < CALLS; i++) {
+            final String word = i % 3 == 0 ? name(random, CYRILLIC) : login(random);
+
+            prefixes[i] = word.substring(0, 1 + random.nextInt(Math.min(word.length(), 5)));
+        }
+
+        for (int round = 0; round < 3; round++) {
+            final long[] nanos = new long[CALLS];
+            long checksum = 0;
+
+            for (int i = 0; i < CALLS; i++) {
+                final long callStarted = System.nanoTime();
+
+                checksum += index.complete(prefixes[i], 10).length;
+                nanos[i] = System.nanoTime() - callStarted;
+            }
+
+            Arrays.sort(nanos);
+            log.info("complete: p50 {} us, p99 {} us, max {} us",
+                    nanos[CALLS / 2] / 1_000, nanos[CALLS * 99 / 100] / 1_000, nanos[CALLS - 1] / 1_000);
+            assertThat(checksum).isGreaterThan(0L);
+        }
+
+        final long writesStarted = System.nanoTime();
+
+        for (int i = 0; i < WRITES; i++) {
+            final int userId = 1 + random.nextInt(users + WRITES);
+
+            if (i % 2 == 0) {
+                index.put(userId, login(random), name(random, LATIN));
+            } else {
+                index.setWeight(userId, () -> friends(random));
+            }
+        }
+
+        log.info("{} puts and weight changes in {} ms, {} keys still pending", WRITES,
+                (System.nanoTime() - writesStarted) / 1_000_000, index.pendingKeys());
+        index.close();
+    }
+
+    /**
+     * Mostly a handful, with a long tail into the thousands.
+     */
+    private static int friends(Random random) {
+        final double skew = random.nextDouble();
+
+        return (int) (5_000 * skew * skew * skew * skew);
+    }
+
+    private static String login(Random random) {
+        return word(random, LATIN, 2 + random.nextInt(3)) + (random.nextBoolean() ? random.nextInt(1000) : "");
+    }
+
+    private static String name(Random random, String[] syllables) {
+        return capitalized(word(random, syllables, 2 + random.nextInt(2))) + " "
+                + capitalized(word(random, syllables, 2 + random.nextInt(3)));
+    }
+
+    private static String word(Random random, String[] syllables, int length) {
+        final StringBuilder word = new StringBuilder();
+
+        for (int i = 0; i < length; i++) {
+            word.append(syllables[random.nextInt(syllables.length)]);
+        }
+
+        return word.toString();
+    }
+
+    private static String capitalized(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
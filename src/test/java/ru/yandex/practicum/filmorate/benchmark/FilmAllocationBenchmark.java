@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.GenreSet;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.impl.FilmDbStorage;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+/**
+ * Bytes allocated by the calling thread per film listed by {@link FilmDbStorage#findAll()}, against
+ * the former row mapping that built a new Mpa and Genre per row and a HashSet per film (wrapped in
+ * a GenreSet to fit today's Film, so the legacy figure is slightly inflated).
+ *
+ * <p>Run with {@code mvn test -Pbenchmark -Dbenchmark.films=100000}.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class FilmAllocationBenchmark {
+    private static final int ROUNDS = 5;
+    private static final String LEGACY_SELECT = "SELECT F.*, M.name mpa_name,"
+            + " (SELECT ARRAY_AGG(G.id ORDER BY G.id) FROM film_genre FG"
+            + " JOIN genre G ON G.id = FG.genre_id WHERE FG.film_id = F.id) genre_ids,"
+            + " (SELECT ARRAY_AGG(G.name ORDER BY G.id) FROM film_genre FG"
+            + " JOIN genre G ON G.id = FG.genre_id WHERE FG.film_id = F.id) genre_names"
+            + " FROM film F LEFT JOIN mpa M ON F.mpa_id = M.id";
+
+    private final FilmDbStorage filmDbStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM FILM_GENRE");
+        jdbcTemplate.update("DELETE FROM FILM");
+        jdbcTemplate.update("ALTER TABLE FILM ALTER COLUMN ID RESTART WITH 1");
+    }
+
+    @Test
+    @DisplayName("allocation per listed film, shared vs per-row Genre and Mpa")
+    void allocationPerFilm() {
+        final int size = Integer.getInteger("benchmark.films", 100_000);
+
+        seed(size);
+
+        final long shared = measure(filmDbStorage::findAll, size);
+        final long perRow = measure(() -> jdbcTemplate.query(LEGACY_SELECT, FilmAllocationBenchmark::mapRowLegacy),
+                size);
+
+        log.info("{} films: {} bytes/film with shared instances, {} bytes/film with per-row instances",
+                size, shared / size, perRow / size);
+    }
+
+    private static long measure(Supplier<List<Film>> listing, int size) {
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long thread = Thread.currentThread().getId();
+        long best = Long.MAX_VALUE;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            final long before = threads.getThreadAllocatedBytes(thread);
+            final List<Film> films = listing.get();
+
+            best = Math.min(best, threads.getThreadAllocatedBytes(thread) - before);
+            assertThat(films.size()).isEqualTo(size);
+        }
+
+        return best;
+    }
+
+    private void seed(int size) {
+        jdbcTemplate.update("INSERT INTO film (id, name, description, release_date, duration, mpa_id)"
+                + " SELECT X, 'film ' || X, 'description', DATEADD(DAY, MOD(X, 20000), DATE '1950-01-01'),"
+                + " 90 + MOD(X, 60), 1 + MOD(X, 5) FROM SYSTEM_RANGE(1, ?)", size);
+        jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id)"
+                + " SELECT X, 1 + MOD(X, 6) FROM SYSTEM_RANGE(1, ?)", size);
+        jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id)"
+                + " SELECT X, 1 + MOD(X + 3, 6) FROM SYSTEM_RANGE(1, ?) WHERE MOD(X, 2) = 0", size);
+    }
+
+    private static Film mapRowLegacy(ResultSet rs, int rowNum) throws SQLException {
+        final HashSet<Genre> genres = new HashSet<>();
+        final Array genreIds = rs.getArray("genre_ids");
+
+        if (genreIds != null) {
+            final Object[] ids = (Object[]) genreIds.getArray();
+            final Object[] names = (Object[]) rs.getArray("genre_names").getArray();
+
+            for (int i = 0; i < ids.length; i++) {
+                genres.add(Genre.builder().id(((Number) ids[i]).intValue()).name((String) names[i]).build());
+            }
+        }
+
+        return Film.builder()
+                .id(rs.getInt("id"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .releaseDate(rs.getDate("release_date").toLocalDate())
+                .duration(rs.getLong("duration"))
+                .mpa(Mpa.builder().id(rs.getInt("mpa_id")).name(rs.getString("mpa_name")).build())
+                .genres(new GenreSet(genres))
+                .build();
+    }
+}
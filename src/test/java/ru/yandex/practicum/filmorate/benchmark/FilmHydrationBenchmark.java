@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.impl.FilmDbStorage;
+
+import static java.util.function.UnaryOperator.identity;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+/**
+ * Compares film hydration in one statement against the former FILM + MPA query
+ * followed by a second query for the genres of all films.
+ *
+ * <p>Run with {@code mvn test -Pbenchmark -Dbenchmark.films=10000,1000000}.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class FilmHydrationBenchmark {
+    private static final int ROUNDS = 5;
+
+    private final FilmDbStorage filmDbStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM FILM_GENRE");
+        jdbcTemplate.update("DELETE FROM FILM");
+        jdbcTemplate.update("ALTER TABLE FILM ALTER COLUMN ID RESTART WITH 1");
+    }
+
+    @Test
+    @DisplayName("single-query hydration vs two-query hydration")
+    void hydrateFilms() {
+        final int[] sizes = Arrays.stream(System.getProperty("benchmark.films", "10000,1000000").split(","))
+                .mapToInt(size -> Integer.parseInt(size.trim()))
+                .sorted()
+                .toArray();
+        int seeded = 0;
+
+        for (int size : sizes) {
+            seed(seeded, size);
+            seeded = size;
+
+            final long singleQuery = measure(filmDbStorage::findAll, size);
+            final long twoQueries = measure(this::findAllWithTwoQueries, size);
+
+            log.info("{} films: single query {} ms, two queries {} ms", size, singleQuery, twoQueries);
+        }
+    }
+
+    private List<Film> findAllWithTwoQueries() {
+        final String query = "SELECT F.*, M.id mpa_id, M.name mpa_name FROM film F LEFT JOIN mpa M ON F.mpa_id = M.id";
+        final List<Film> films = jdbcTemplate.query(query, FilmHydrationBenchmark::mapRowToFilm);
+
+        final Map<Integer, Film> filmById = films.stream().collect(Collectors.toMap(Film::getId, identity()));
+
+        jdbcTemplate.query("SELECT film_id, genre_id FROM film_genre", rs -> {
+            filmById.get(rs.getInt("film_id")).addGenre(Genre.of(rs.getInt("genre_id")));
+        });
+
+        return films;
+    }
+
+    private static long measure(Supplier<List<Film>> hydration, int size) {
+        final long[] timings = new long[ROUNDS];
+
+        for (int round = 0; round < ROUNDS; round++) {
+            final long started = System.nanoTime();
+            final List<Film> films = hydration.get();
+
+            timings[round] = (System.nanoTime() - started) / 1_000_000;
+            assertThat(films.size()).isEqualTo(size);
+        }
+
+        Arrays.sort(timings);
+
+        return timings[ROUNDS / 2];
+    }
+
+    private void seed(int from, int to) {
+        jdbcTemplate.update("INSERT INTO film (id, name, description, release_date, duration, mpa_id)"
+                + " SELECT X, 'film ' || X, 'description', DATEADD(DAY, MOD(X, 20000), DATE '1950-01-01'),"
+                + " 90 + MOD(X, 60), 1 + MOD(X, 5) FROM SYSTEM_RANGE(?, ?)", from + 1, to);
+        jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id)"
+                + " SELECT X, 1 + MOD(X, 6) FROM SYSTEM_RANGE(?, ?)", from + 1, to);
+        jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id)"
+                + " SELECT X, 1 + MOD(X + 3, 6) FROM SYSTEM_RANGE(?, ?) WHERE MOD(X, 2) = 0", from + 1, to);
+    }
+
+    private static Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
+        return Film.builder()
+                .id(rs.getInt("id"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .releaseDate(rs.getDate("release_date").toLocalDate())
+                .duration(rs.getLong("duration"))
+                .mpa(Mpa.of(rs.getInt("mpa_id")))
+                .build();
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import ru.yandex.practicum.filmorate.index.FilmRecommender;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+import ru.yandex.practicum.filmorate.index.SimilarFilmsIndex;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Latency percentiles of {@link FilmRecommender} and build cost of {@link SimilarFilmsIndex} on a
+ * synthetic like matrix where a few films collect most of the likes.
+ *
+ * <p>Run with {@code mvn test -Pbenchmark -Dtest=FilmRecommenderBenchmark -Dbenchmark.users=1000000
+ * -Dbenchmark.films=100000 -Dbenchmark.likes=20}.
+ */
+@Slf4j
+@Tag("benchmark")
+class FilmRecommenderBenchmark {
+    private static final int CALLS = 10_000;
+    private static final int USERS = Integer.getInteger("benchmark.users", 1_000_000);
+    private static final int FILMS = Integer.getInteger("benchmark.films", 100_000);
+    private static final int LIKES_PER_USER = Integer.getInteger("benchmark.likes", 20);
+
+    @Test
+    @DisplayName("film recommendations on 1M users x 100k films")
+    void recommend() {
+        final LikeIndex likeIndex = likeIndex(Mockito.mock(FilmStorage.class));
+        final FilmRecommender recommender = new FilmRecommender(likeIndex, 10_000);
+        final int[] ids = new Random(7).ints(CALLS, 1, USERS + 1).toArray();
+
+        for (int round = 0; round < 3; round++) {
+            final long[] nanos = new long[CALLS];
+            long checksum = 0;
+
+            for (int i = 0; i < CALLS; i++) {
+                final long callStarted = System.nanoTime();
+
+                checksum += recommender.recommend(ids[i], 10).length;
+                nanos[i] = System.nanoTime() - callStarted;
+            }
+
+            Arrays.sort(nanos);
+            log.info("recommend: p50 {} us, p99 {} us, max {} us",
+                    nanos[CALLS / 2] / 1_000, nanos[CALLS * 99 / 100] / 1_000, nanos[CALLS - 1] / 1_000);
+            assertThat(checksum).isGreaterThan(0L);
+        }
+    }
+
+    @Test
+    @DisplayName("similar films index build on 1M users x 100k films")
+    void similarFilms(@TempDir Path directory) throws IOException {
+        final FilmStorage filmStorage = Mockito.mock(FilmStorage.class);
+
+        Mockito.doAnswer(invocation -> {
+            final FilmStorage.FacetsConsumer consumer = invocation.getArgument(0);
+
+            for (int filmId = 1; filmId <= FILMS; filmId++) {
+                consumer.accept(filmId, 0, 1 + filmId % 5, 2000, new int[]{1 + filmId % 6, 1 + filmId % 7});
+            }
+
+            return null;
+        }).when(filmStorage).forEachFilmFacets(any());
+        Mockito.doReturn(new FilmStorage.CatalogFingerprint(FILMS, FILMS, 0)).when(filmStorage).catalogFingerprint();
+
+        final Path path = directory.resolve("similar-films.idx");
+        final SimilarFilmsIndex index = new SimilarFilmsIndex(filmStorage, likeIndex(filmStorage),
+                new SimpleMeterRegistry(), path, Duration.ZERO, 20, 1000);
+        final long started = System.nanoTime();
+
+        index.rebuild();
+
+        log.info("similar films index built in {} ms, {} bytes on disk",
+                (System.nanoTime() - started) / 1_000_000, Files.size(path));
+
+        final SimilarFilmsIndex restarted = new SimilarFilmsIndex(filmStorage, new LikeIndex(filmStorage),
+                new SimpleMeterRegistry(), path, Duration.ZERO, 20, 1000);
+        final long mapStarted = System.nanoTime();
+
+        restarted.start();
+
+        log.info("mapped on restart in {} us", (System.nanoTime() - mapStarted) / 1_000);
+        assertThat(restarted.similar(1, 10).length).isEqualTo(10);
+    }
+
+    /**
+     * Likes skewed towards low film ids by cubing a uniform draw.
+     */
+    private static LikeIndex likeIndex(FilmStorage filmStorage) {
+        final LikeIndex likeIndex = new LikeIndex(filmStorage);
+        final Random random = new Random(6);
+        final long started = System.nanoTime();
+
+        for (int userId = 1; userId <= USERS; userId++) {
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                final double skew = random.nextDouble();
+
+                likeIndex.like(1 + (int) (FILMS * skew * skew * skew), userId);
+            }
+        }
+
+        log.info("{} users x {} likes over {} films indexed in {} ms, most liked film has {} likes",
+                USERS, LIKES_PER_USER, FILMS, (System.nanoTime() - started) / 1_000_000, likeIndex.likes(1));
+
+        return likeIndex;
+    }
+}
@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Build cost, footprint and query latency percentiles of {@link FilmSearchIndex} over synthetic
+ * films whose words follow a Zipf-like distribution, streamed straight into it.
+ *
+ * <p>Run with {@code mvn test -Pbenchmark -Dtest=FilmSearchBenchmark -Dbenchmark.films=1000000}.
+ */
+@Slf4j
+@Tag("benchmark")
+class FilmSearchBenchmark {
+    private static final int VOCABULARY = 50_000;
+    private static final int CALLS = 10_000;
+
+    @Test
+    @DisplayName("search latency over 1M films")
+    void search() {
+        final int films = Integer.getInteger("benchmark.films", 1_000_000);
+        final String[] words = new String[VOCABULARY];
+
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = Integer.toString(i * 7919 + 1, Character.MAX_RADIX).replaceAll("[0-9]", "x");
+        }
+
+        final FilmStorage filmStorage = Mockito.mock(FilmStorage.class);
+
+        Mockito.doAnswer(invocation -> {
+            final Consumer<Film> consumer = invocation.getArgument(0);
+            final Random random = new Random(8);
+
+            for (int filmId = 1; filmId <= films; filmId++) {
+                final Film film = Film.builder()
+                        .id(filmId)
+                        .name(text(random, words, 3))
+                        .description(text(random, words, 25))
+                        .releaseDate(LocalDate.of(2000, 1, 1))
+                        .duration(100)
+                        .mpa(Mpa.of(1 + filmId % 5))
+                        .build();
+
+                film.addGenre(Genre.of(1 + filmId % 6));
+                consumer.accept(film);
+            }
+
+            return null;
+        }).when(filmStorage).forEachFilm(any());
+
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        System.gc();
+
+        final long usedBefore = memory.getHeapMemoryUsage().getUsed();
+        final FilmSearchIndex index = new FilmSearchIndex(filmStorage);
+        final long started = System.nanoTime();
+
+        index.rebuild();
+
+        final long buildMillis = (System.nanoTime() - started) / 1_000_000;
+
+        System.gc();
+        log.info("{} films indexed in {} ms, about {} bytes per film", films, buildMillis,
+                (memory.getHeapMemoryUsage().getUsed() - usedBefore) / films);
+
+        final Random random = new Random(9);
+        final String[] queries = new String[CALLS];
+
+        for (int i = 0; i < CALLS; i++) {
+            queries[i] = text(random, words, 1 + random.nextInt(3));
+        }
+
+        for (int round = 0; round < 3; round++) {
+            final long[] nanos = new long[CALLS];
+            long checksum = 0;
+
+            for (int i = 0; i < CALLS; i++) {
+                final long callStarted = System.nanoTime();
+
+                checksum += index.search(queries[i], i % 4 == 0 ? 1 + i % 6 : null, null, 10).length;
+                nanos[i] = System.nanoTime() - callStarted;
+            }
+
+            Arrays.sort(nanos);
+            log.info("search: p50 {} us, p99 {} us, max {} us",
+                    nanos[CALLS / 2] / 1_000, nanos[CALLS * 99 / 100] / 1_000, nanos[CALLS - 1] / 1_000);
+            assertThat(checksum).isGreaterThan(0L);
+        }
+    }
+
+    /**
+     * Words drawn with a skew towards the start of the vocabulary, so a few are in most films.
+     */
+    private static String text(Random random, String[] words, int length) {
+        final StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < length; i++) {
+            final double skew = random.nextDouble();
+
+            text.append(words[(int) (words.length * skew * skew * skew)]).append(' ');
+        }
+
+        return text.toString();
+    }
+}
@@ -0,0 +1,209 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.FriendRecommender;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.IntSortedSet;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Build cost, footprint and per-call latency of {@link FriendGraph} on synthetic graphs streamed
+ * straight into it, so the database is out of the picture.
+ *
+ * <p>Run with {@code mvn test -Pbenchmark -Dtest=FriendGraphBenchmark -Dbenchmark.users=1000000
+ * -Dbenchmark.friends=10}.
+ */
+@Slf4j
+@Tag("benchmark")
+class FriendGraphBenchmark {
+    private static final int CALLS = 1_000_000;
+    private static final int WRITES = 100_000;
+
+    @Test
+    @DisplayName("friend graph latency on a 10M-edge graph")
+    void friendGraph() {
+        final int users = Integer.getInteger("benchmark.users", 1_000_000);
+        final int friendsPerUser = Integer.getInteger("benchmark.friends", 10);
+        final UserStorage userStorage = Mockito.mock(UserStorage.class);
+
+        Mockito.doAnswer(invocation -> {
+            final UserStorage.FriendshipConsumer consumer = invocation.getArgument(0);
+            final Random random = new Random(1);
+
+            for (int userId = 1; userId <= users; userId++) {
+                final int user = userId;
+
+                IntSortedSet.of(random.ints(friendsPerUser, 1, users + 1).toArray())
+                        .forEach(friendId -> consumer.accept(user, friendId));
+            }
+
+            return null;
+        }).when(userStorage).forEachFriendship(any());
+
+        final FriendGraph graph = new FriendGraph(userStorage, Integer.MAX_VALUE);
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long thread = Thread.currentThread().getId();
+        final long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        final long started = System.nanoTime();
+
+        graph.rebuild();
+
+        log.info("{} users x {} friends: rebuilt in {} ms, {} bytes allocated per edge including the generator",
+                users, friendsPerUser, (System.nanoTime() - started) / 1_000_000,
+                (threads.getThreadAllocatedBytes(thread) - allocatedBefore) / ((long) users * friendsPerUser));
+
+        final Random random = new Random(2);
+        final int[] ids = random.ints(CALLS + 1, 1, users + 1).toArray();
+
+        for (int round = 0; round < 2; round++) {
+            log.info("contains {} ns, isApproved {} ns, friends {} ns, mutualFriends {} ns, commonFriends {} ns",
+                    nanosPerCall(i -> graph.contains(ids[i], ids[i + 1]) ? 1 : 0),
+                    nanosPerCall(i -> graph.isApproved(ids[i], ids[i + 1]) ? 1 : 0),
+                    nanosPerCall(i -> graph.friends(ids[i]).length),
+                    nanosPerCall(i -> graph.mutualFriends(ids[i], ids[i + 1])),
+                    nanosPerCall(i -> graph.commonFriends(ids[i], ids[i + 1]).length));
+        }
+
+        final long writesStarted = System.nanoTime();
+
+        for (int i = 0; i < WRITES; i++) {
+            if (!graph.add(ids[i], ids[i + 1])) {
+                graph.remove(ids[i], ids[i + 1]);
+            }
+        }
+
+        final long writes = (System.nanoTime() - writesStarted) / WRITES;
+
+        log.info("add/remove {} ns; with {} pending rows: friends {} ns, mutualFriends {} ns",
+                writes, graph.pendingRows(),
+                nanosPerCall(i -> graph.friends(ids[i]).length),
+                nanosPerCall(i -> graph.mutualFriends(ids[i], ids[i + 1])));
+
+        final int pending = graph.pendingRows();
+        final long compactionStarted = System.nanoTime();
+
+        graph.compact();
+
+        log.info("compacted {} pending rows in {} ms", pending, (System.nanoTime() - compactionStarted) / 1_000_000);
+        assertThat(graph.pendingRows()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("common friends of users with 100k friends each")
+    void commonFriendsOfDenseUsers() {
+        final int users = Integer.getInteger("benchmark.users", 1_000_000);
+        final int degree = Integer.getInteger("benchmark.degree", 100_000);
+        final int[][] rows = new int[4][];
+        final Random random = new Random(3);
+
+        for (int userId = 1; userId <= 3; userId++) {
+            rows[userId] = IntSortedSet.of(random.ints(degree, 1, users + 1).toArray()).toArray();
+        }
+
+        final UserStorage userStorage = Mockito.mock(UserStorage.class);
+
+        Mockito.doAnswer(invocation -> {
+            final UserStorage.FriendshipConsumer consumer = invocation.getArgument(0);
+
+            for (int userId = 1; userId <= 3; userId++) {
+                for (int friendId : rows[userId]) {
+                    consumer.accept(userId, friendId);
+                }
+            }
+            consumer.accept(users, 1);
+
+            return null;
+        }).when(userStorage).forEachFriendship(any());
+
+        final FriendGraph graph = new FriendGraph(userStorage, Integer.MAX_VALUE);
+
+        graph.rebuild();
+
+        final int calls = 2_000;
+
+        for (int round = 0; round < 3; round++) {
+            log.info("{} friends each: merge {} ns, mutualFriends {} ns, commonFriends {} ns, 3-way {} ns",
+                    degree,
+                    nanosPerCall(i -> mergedSize(rows[1], rows[2]), calls),
+                    nanosPerCall(i -> graph.mutualFriends(1, 2), calls),
+                    nanosPerCall(i -> graph.commonFriends(1, 2).length, calls),
+                    nanosPerCall(i -> graph.commonFriends(1, 2, 3).length, calls));
+        }
+    }
+
+    @Test
+    @DisplayName("people you may know for users with 10 and 1000 friends")
+    void recommendations() {
+        final int users = Integer.getInteger("benchmark.users", 1_000_000);
+        final UserStorage userStorage = Mockito.mock(UserStorage.class);
+
+        // Users below 1000 have 1000 friends, the rest 10.
+        Mockito.doAnswer(invocation -> {
+            final UserStorage.FriendshipConsumer consumer = invocation.getArgument(0);
+            final Random random = new Random(4);
+
+            for (int userId = 1; userId <= users; userId++) {
+                final int user = userId;
+
+                IntSortedSet.of(random.ints(userId < 1_000 ? 1_000 : 10, 1, users + 1).toArray())
+                        .forEach(friendId -> consumer.accept(user, friendId));
+            }
+
+            return null;
+        }).when(userStorage).forEachFriendship(any());
+
+        final FriendGraph graph = new FriendGraph(userStorage, Integer.MAX_VALUE);
+
+        graph.rebuild();
+
+        final FriendRecommender recommender = new FriendRecommender(graph, 1, 10_000);
+        final int[] ids = new Random(5).ints(CALLS, 1_000, users + 1).toArray();
+
+        for (int round = 0; round < 3; round++) {
+            log.info("recommend uncached: 10 friends {} ns, 1000 friends {} ns; cached {} ns",
+                    nanosPerCall(i -> recommender.recommend(ids[i], 10).length, 100_000),
+                    nanosPerCall(i -> recommender.recommend(1 + i % 999, 10).length, 2_000),
+                    nanosPerCall(i -> recommender.recommend(1, 10).length));
+        }
+    }
+
+    private static int mergedSize(int[] left, int[] right) {
+        final int[] size = {0};
+
+        IntSortedSet.intersect(left, 0, left.length, right, 0, right.length, value -> size[0]++);
+
+        return size[0];
+    }
+
+    private static long nanosPerCall(IntUnaryOperator call) {
+        return nanosPerCall(call, CALLS);
+    }
+
+    private static long nanosPerCall(IntUnaryOperator call, int calls) {
+        long checksum = 0;
+        final long started = System.nanoTime();
+
+        for (int i = 0; i < calls; i++) {
+            checksum += call.applyAsInt(i);
+        }
+
+        final long elapsed = System.nanoTime() - started;
+
+        assertThat(checksum).isGreaterThanOrEqualTo(0L);
+
+        return elapsed / calls;
+    }
+}
@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.impl.UserDbStorage;
+import ru.yandex.practicum.filmorate.util.IntSortedSet;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+/**
+ * Lists every friend of one user through {@link UserService#findAllFriends(int, boolean)}, with and
+ * without mutual counts, against the former lookup of the user and then of each friend, both with
+ * their friend ids (2F + 2 statements).
+ *
+ * <p>Run with {@code mvn test -Pbenchmark -Dbenchmark.friends=10,1000,50000}.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class FriendsListBenchmark {
+    private static final int ROUNDS = 5;
+    private static final int USER_ID = 1;
+
+    private final UserService userService;
+    private final UserDbStorage userDbStorage;
+    private final FriendGraph friendGraph;
+    private final JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        clear();
+    }
+
+    private void clear() {
+        jdbcTemplate.update("DELETE FROM FRIENDS");
+        jdbcTemplate.update("DELETE FROM USERS");
+        jdbcTemplate.update("ALTER TABLE USERS ALTER COLUMN ID RESTART WITH 1");
+        userDbStorage.loadIds();
+        friendGraph.rebuild();
+    }
+
+    @Test
+    @DisplayName("friend graph vs a lookup per friend")
+    void findFriends() {
+        final int[] sizes = Arrays.stream(System.getProperty("benchmark.friends", "10,1000,50000").split(","))
+                .mapToInt(size -> Integer.parseInt(size.trim()))
+                .sorted()
+                .toArray();
+
+        for (int size : sizes) {
+            clear();
+            seed(size);
+
+            final long graph = measure(() -> userService.findAllFriends(USER_ID, false), size);
+            final long mutual = measure(() -> userService.findAllFriends(USER_ID, true), size);
+            final long perFriend = measure(this::findFriendsPerFriend, size);
+
+            log.info("{} friends: friend graph {} us, with mutual counts {} us, lookup per friend {} us",
+                    size, graph, mutual, perFriend);
+        }
+    }
+
+    private List<User> findFriendsPerFriend() {
+        final List<User> friends = new ArrayList<>();
+
+        final IntSortedSet friendIds = new IntSortedSet();
+
+        findOneLegacy(USER_ID);
+        jdbcTemplate.query("SELECT friend_id FROM friends WHERE user_id = ? ORDER BY friend_id", rs -> {
+            friendIds.add(rs.getInt("friend_id"));
+        }, USER_ID);
+        friendIds.forEach(friendId -> friends.add(findOneLegacy(friendId)));
+
+        return friends;
+    }
+
+    private User findOneLegacy(int id) {
+        return jdbcTemplate.queryForObject("SELECT * FROM users WHERE id = ?", (rs, rowNum) -> User.builder()
+                .id(rs.getInt("id"))
+                .email(rs.getString("email"))
+                .login(rs.getString("login"))
+                .name(rs.getString("name"))
+                .birthday(rs.getDate("birthday").toLocalDate())
+                .build(), id);
+    }
+
+    private static long measure(Supplier<List<User>> listing, int size) {
+        final long[] timings = new long[ROUNDS];
+
+        for (int round = 0; round < ROUNDS; round++) {
+            final long started = System.nanoTime();
+            final List<User> friends = listing.get();
+
+            timings[round] = (System.nanoTime() - started) / 1_000;
+            assertThat(friends.size()).isEqualTo(size);
+        }
+
+        Arrays.sort(timings);
+
+        return timings[ROUNDS / 2];
+    }
+
+    /**
+     * User 1 befriends users 2..size+1, each of whom befriends user 1 and the next two users, so
+     * most friends share two friends with user 1.
+     */
+    private void seed(int size) {
+        jdbcTemplate.update("INSERT INTO users (id, email, login, name, birthday)"
+                + " SELECT X, 'user' || X || '@mail.com', 'user' || X, 'user ' || X, DATE '2000-01-01'"
+                + " FROM SYSTEM_RANGE(1, ?)", size + 1);
+        jdbcTemplate.update("INSERT INTO friends (user_id, friend_id, approved)"
+                + " SELECT 1, X, TRUE FROM SYSTEM_RANGE(2, ?)", size + 1);
+        jdbcTemplate.update("INSERT INTO friends (user_id, friend_id, approved)"
+                + " SELECT X, 1, TRUE FROM SYSTEM_RANGE(2, ?)", size + 1);
+        jdbcTemplate.update("INSERT INTO friends (user_id, friend_id, approved)"
+                + " SELECT X, X + D, FALSE FROM SYSTEM_RANGE(2, ?), (VALUES 1, 2) V(D) WHERE X + D <= ?",
+                size + 1, size + 1);
+        userDbStorage.loadIds();
+        friendGraph.rebuild();
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BoundedCacheTest {
+
+    @Test
+    @DisplayName("should load once and count hits and misses")
+    void testReadThrough() {
+        final BoundedCache<Integer, String> cache = new BoundedCache<>(10);
+        final AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("1", cache.get(1, key -> {
+                loads.incrementAndGet();
+                return String.valueOf(key);
+            }));
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(2, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    @DisplayName("should not cache missing values")
+    void testMissingValue() {
+        final BoundedCache<Integer, String> cache = new BoundedCache<>(10);
+
+        assertNull(cache.get(1, key -> null));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("should keep frequently read entries during a scan of one-off keys")
+    void testFrequencyAdmission() {
+        final BoundedCache<Integer, String> cache = new BoundedCache<>(10);
+
+        for (int round = 0; round < 5; round++) {
+            for (int key = 0; key < 10; key++) {
+                cache.get(key, String::valueOf);
+            }
+        }
+
+        for (int key = 100; key < 150; key++) {
+            cache.get(key, String::valueOf);
+        }
+
+        assertEquals(10, cache.size());
+
+        final long misses = cache.missCount();
+
+        for (int key = 0; key < 10; key++) {
+            cache.get(key, String::valueOf);
+        }
+
+        assertEquals(misses, cache.missCount());
+    }
+
+    @Test
+    @DisplayName("should evict once full and count evictions")
+    void testEviction() {
+        final BoundedCache<Integer, String> cache = new BoundedCache<>(2);
+
+        cache.get(1, String::valueOf);
+        cache.get(2, String::valueOf);
+        cache.get(3, String::valueOf);
+        cache.get(3, String::valueOf);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    @DisplayName("should drop invalidated entries")
+    void testInvalidate() {
+        final BoundedCache<Integer, String> cache = new BoundedCache<>(10);
+
+        cache.get(1, String::valueOf);
+        cache.get(2, String::valueOf);
+        cache.invalidate(1);
+        cache.invalidateIf("2"::equals);
+
+        assertEquals(0, cache.size());
+        assertEquals("new", cache.get(1, key -> "new"));
+    }
+
+    @Test
+    @DisplayName("should not cache a value loaded while an invalidation happened")
+    void testInvalidateDuringLoad() {
+        final BoundedCache<Integer, String> cache = new BoundedCache<>(10);
+
+        assertEquals("stale", cache.get(1, key -> {
+            cache.invalidate(key);
+            return "stale";
+        }));
+
+        assertEquals(0, cache.size());
+        assertEquals("fresh", cache.get(1, key -> "fresh"));
+    }
+}
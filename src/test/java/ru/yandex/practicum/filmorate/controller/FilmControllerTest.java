@@ -9,15 +9,21 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import ru.yandex.practicum.filmorate.index.TrendingWindow;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportResult;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.FilmImportService;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -31,6 +37,8 @@ public class FilmControllerTest {
     private ObjectMapper objectMapper;
     @MockBean
     private FilmService filmService;
+    @MockBean
+    private FilmImportService filmImportService;
 
     @Test
     @DisplayName("should return all films")
@@ -70,6 +78,108 @@ public class FilmControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$[1].duration").value(110));
     }
 
+    @Test
+    @DisplayName("should stream films as ndjson")
+    public void testStream() throws Exception {
+        final Film film1 = Film.builder()
+                .id(1)
+                .name("name 1")
+                .description("description 1")
+                .releaseDate(LocalDate.of(2023, 7, 1))
+                .duration(120)
+                .build();
+        final Film film2 = Film.builder()
+                .id(2)
+                .name("name 2")
+                .description("description 2")
+                .releaseDate(LocalDate.of(2023, 8, 2))
+                .duration(110)
+                .build();
+
+        Mockito.doAnswer(invocation -> {
+            final Consumer<Film> consumer = invocation.getArgument(0);
+
+            consumer.accept(film1);
+            consumer.accept(film2);
+
+            return null;
+        }).when(filmService).forEachFilm(any());
+
+        for (MockHttpServletRequestBuilder request : List.of(
+                MockMvcRequestBuilders.get(uri).accept("application/x-ndjson"),
+                MockMvcRequestBuilders.get(uri + "/stream"))) {
+            final MvcResult result = this.mockMvc
+                    .perform(request)
+                    .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                    .andReturn();
+
+            this.mockMvc
+                    .perform(MockMvcRequestBuilders.asyncDispatch(result))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.content().contentType("application/x-ndjson"))
+                    .andExpect(MockMvcResultMatchers.content().string(
+                            objectMapper.writeValueAsString(film1) + "\n" + objectMapper.writeValueAsString(film2) + "\n"));
+        }
+
+        this.mockMvc
+                .perform(MockMvcRequestBuilders.get(uri + "/stream").accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isNotAcceptable());
+
+        Mockito.doReturn(List.of(film1)).when(filmService).findAll();
+
+        this.mockMvc
+                .perform(MockMvcRequestBuilders.get(uri))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()").value(1));
+    }
+
+    @Test
+    @DisplayName("should return page of films with link to the next one")
+    public void testFindPage() throws Exception {
+        final Film film1 = Film.builder()
+                .id(3)
+                .name("name 3")
+                .description("description 3")
+                .releaseDate(LocalDate.of(2023, 7, 1))
+                .duration(120)
+                .build();
+        final Film film2 = Film.builder()
+                .id(7)
+                .name("name 7")
+                .description("description 7")
+                .releaseDate(LocalDate.of(2023, 8, 2))
+                .duration(110)
+                .build();
+
+        Mockito.doReturn(List.of(film1, film2)).when(filmService).findAll(2, 2);
+        Mockito.doReturn(List.of()).when(filmService).findAll(7, 2);
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "?limit=2&after=2").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("Link", "<http://localhost/films?limit=2&after=7>; rel=\"next\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].id").value(7));
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "?limit=2&after=7").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().doesNotExist("Link"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()").value(0));
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "?limit=0").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
     @Test
     @DisplayName("should return film by id")
     public void testFindOneById() throws Exception {
@@ -123,6 +233,39 @@ public class FilmControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.duration").value(65));
     }
 
+    @Test
+    @DisplayName("should import films in bulk")
+    public void testImportFilms() throws Exception {
+        final Film film = Film.builder()
+                .name("New film name")
+                .description("New film description")
+                .releaseDate(LocalDate.of(2023, 8, 5))
+                .mpa(Mpa.of(1))
+                .duration(65)
+                .build();
+        final FilmImportResult result = FilmImportResult.builder()
+                .createdIds(List.of(10))
+                .errors(List.of(new FilmImportResult.ItemError(1, List.of("Film name should not be blank"))))
+                .elapsedMillis(5)
+                .rowsPerSecond(200)
+                .build();
+
+        Mockito.doReturn(result).when(filmImportService).importFilms(any());
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.post(uri + "/batch")
+                                .content(objectMapper.writeValueAsString(List.of(film, film.toBuilder().name("").build())))
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding(StandardCharsets.UTF_8)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.createdIds[0]").value(10))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].index").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].messages[0]").value("Film name should not be blank"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.rowsPerSecond").value(200.0));
+    }
+
     @Test
     @DisplayName("should update film")
     public void testUpdateFilm() throws Exception {
@@ -166,6 +309,19 @@ public class FilmControllerTest {
         Mockito.verify(filmService).addLike(1, 2);
     }
 
+    @Test
+    @DisplayName("should tell whether user liked film")
+    public void testIsLiked() throws Exception {
+        Mockito.doReturn(true).when(filmService).isLiked(1, 2);
+
+        mockMvc.perform(MockMvcRequestBuilders.get(uri + "/1/likes/2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string("true"));
+        mockMvc.perform(MockMvcRequestBuilders.get(uri + "/1/likes/3"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string("false"));
+    }
+
     @Test
     @DisplayName("should remove like form film")
     public void testRemoveLike() throws Exception {
@@ -195,7 +351,7 @@ public class FilmControllerTest {
                 .duration(110)
                 .build();
 
-        Mockito.doReturn(List.of(film1, film2)).when(filmService).getPopularFilms(anyInt());
+        Mockito.doReturn(List.of(film1, film2)).when(filmService).getPopularFilms(anyInt(), any(), any(), any());
 
         this.mockMvc
                 .perform(
@@ -214,6 +370,134 @@ public class FilmControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$[1].releaseDate").value("2023-08-02"))
                 .andExpect(MockMvcResultMatchers.jsonPath("$[1].duration").value(110));
 
-        Mockito.verify(filmService).getPopularFilms(2);
+        Mockito.verify(filmService).getPopularFilms(2, null, null, null);
+    }
+
+    @Test
+    @DisplayName("should pass popular films filters")
+    public void testGetPopularFilmsFiltered() throws Exception {
+        Mockito.doReturn(List.of()).when(filmService).getPopularFilms(anyInt(), any(), any(), any());
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/popular?count=3&genreId=1&mpaId=2&year=1999")
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()").value(0));
+
+        Mockito.verify(filmService).getPopularFilms(3, 1, 2, 1999);
+    }
+
+    @Test
+    @DisplayName("should return trending films for a window")
+    public void testGetTrendingFilms() throws Exception {
+        final Film film = Film.builder()
+                .id(1)
+                .name("name 1")
+                .description("description 1")
+                .releaseDate(LocalDate.of(2023, 7, 1))
+                .duration(120)
+                .build();
+
+        Mockito.doReturn(List.of(film)).when(filmService).getTrendingFilms(TrendingWindow.HOUR, 5);
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/trending?window=1h&count=5").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(1));
+    }
+
+    @Test
+    @DisplayName("should reject unknown trending window")
+    public void testGetTrendingFilmsUnknownWindow() throws Exception {
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/trending?window=2h").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("should return similar films")
+    public void testGetSimilarFilms() throws Exception {
+        final Film film = Film.builder()
+                .id(2)
+                .name("name 2")
+                .description("description 2")
+                .releaseDate(LocalDate.of(2023, 8, 2))
+                .duration(110)
+                .build();
+
+        Mockito.doReturn(List.of(film)).when(filmService).getSimilarFilms(1, 5);
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/1/similar?count=5").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(2));
+    }
+
+    @Test
+    @DisplayName("should search films")
+    public void testSearch() throws Exception {
+        final Film film = Film.builder()
+                .id(2)
+                .name("name 2")
+                .description("description 2")
+                .releaseDate(LocalDate.of(2023, 8, 2))
+                .duration(110)
+                .build();
+
+        Mockito.doReturn(List.of(film)).when(filmService).search("name", 1, null, 10);
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/search?q=name&genreId=1").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(2));
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/search?q=").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("should autocomplete film names")
+    public void testAutocomplete() throws Exception {
+        final Film film = Film.builder()
+                .id(2)
+                .name("name 2")
+                .description("description 2")
+                .releaseDate(LocalDate.of(2023, 8, 2))
+                .duration(110)
+                .build();
+
+        Mockito.doReturn(List.of(film)).when(filmService).autocomplete("na", 5);
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/autocomplete?prefix=na&count=5")
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(2));
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/autocomplete?prefix=na&count=51")
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
-}
\ No newline at end of file
+}
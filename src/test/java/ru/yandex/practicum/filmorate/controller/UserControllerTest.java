@@ -10,14 +10,18 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -32,6 +36,8 @@ public class UserControllerTest {
     private ObjectMapper objectMapper;
     @MockBean
     private UserService userService;
+    @MockBean
+    private FilmService filmService;
     @InjectMocks
     private UserController userController;
 
@@ -72,6 +78,63 @@ public class UserControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$[1].birthday").value("2001-08-10"));
     }
 
+    @Test
+    @DisplayName("should stream users as ndjson")
+    public void testStream() throws Exception {
+        final User user = User.builder()
+                .id(1)
+                .email("email@adress.com")
+                .login("login")
+                .name("User Name")
+                .birthday(LocalDate.of(2000, 7, 1))
+                .build();
+
+        Mockito.doAnswer(invocation -> {
+            final Consumer<User> consumer = invocation.getArgument(0);
+
+            consumer.accept(user);
+
+            return null;
+        }).when(userService).forEachUser(any());
+
+        final MvcResult result = this.mockMvc
+                .perform(MockMvcRequestBuilders.get(uri).accept("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc
+                .perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(objectMapper.writeValueAsString(user) + "\n"));
+
+        this.mockMvc
+                .perform(MockMvcRequestBuilders.get(uri + "/stream").accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isNotAcceptable());
+    }
+
+    @Test
+    @DisplayName("should return page of users with link to the next one")
+    public void testFindPage() throws Exception {
+        final User user = User.builder()
+                .id(5)
+                .email("email@adress.com")
+                .login("login")
+                .name("User Name")
+                .birthday(LocalDate.of(2000, 7, 1))
+                .build();
+
+        Mockito.doReturn(List.of(user)).when(userService).findAll(0, 1);
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "?limit=1").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("Link", "<http://localhost/users?limit=1&after=5>; rel=\"next\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(5));
+    }
+
     @Test
     @DisplayName("should return user by id")
     public void findOneById() throws Exception {
@@ -198,7 +261,7 @@ public class UserControllerTest {
                 .birthday(LocalDate.of(2001, 8, 10))
                 .build();
 
-        Mockito.doReturn(List.of(user1, user2)).when(userService).findAllFriends(1);
+        Mockito.doReturn(List.of(user1, user2)).when(userService).findAllFriends(1, false);
 
         this.mockMvc
                 .perform(
@@ -213,7 +276,34 @@ public class UserControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$[1].email").value("email@yandex.com"))
                 .andExpect(MockMvcResultMatchers.jsonPath("$[1].login").value("other-login"))
                 .andExpect(MockMvcResultMatchers.jsonPath("$[1].name").value("Other Username"))
-                .andExpect(MockMvcResultMatchers.jsonPath("$[1].birthday").value("2001-08-10"));
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].birthday").value("2001-08-10"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].mutualFriends").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("should return page of friends with mutual friend counts")
+    public void testFindFriendsPage() throws Exception {
+        final User friend = User.builder()
+                .id(7)
+                .email("email@adress.com")
+                .login("login")
+                .name("User Name")
+                .birthday(LocalDate.of(2000, 7, 1))
+                .mutualFriends(3)
+                .build();
+
+        Mockito.doReturn(List.of(friend)).when(userService).findAllFriends(1, 2, 1, true);
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/1/friends?limit=1&after=2&mutual=true")
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("Link",
+                        "<http://localhost/users/1/friends?mutual=true&limit=1&after=7>; rel=\"next\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(7))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].mutualFriends").value(3));
     }
 
     @Test
@@ -252,4 +342,129 @@ public class UserControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$[1].name").value("Other Username"))
                 .andExpect(MockMvcResultMatchers.jsonPath("$[1].birthday").value("2001-08-10"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("should find friends common to a group of users")
+    public void testFindGroupCommonFriends() throws Exception {
+        final User friend = User.builder()
+                .id(10)
+                .email("email@adress.com")
+                .login("login")
+                .name("User Name")
+                .birthday(LocalDate.of(2000, 7, 1))
+                .build();
+
+        Mockito.doReturn(List.of(friend)).when(userService).findCommonFriends(List.of(1, 2, 3));
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/common-friends?ids=1,2,3").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(10));
+    }
+
+    @Test
+    @DisplayName("should reject a group of fewer than two users")
+    public void testFindGroupCommonFriendsOfOneUser() throws Exception {
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/common-friends?ids=1").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/common-friends").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("should recommend users")
+    public void testFindRecommendations() throws Exception {
+        final User user = User.builder()
+                .id(10)
+                .email("email@adress.com")
+                .login("login")
+                .name("User Name")
+                .birthday(LocalDate.of(2000, 7, 1))
+                .mutualFriends(3)
+                .build();
+
+        Mockito.doReturn(List.of(user)).when(userService).findRecommendations(1, 5);
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/1/recommendations?limit=5").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(10))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].mutualFriends").value(3));
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/1/recommendations?limit=101").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("should recommend films")
+    public void testFindFilmRecommendations() throws Exception {
+        final Film film = Film.builder()
+                .id(5)
+                .name("name")
+                .description("description")
+                .releaseDate(LocalDate.of(2023, 7, 1))
+                .duration(120)
+                .build();
+
+        Mockito.doReturn(List.of(film)).when(filmService).getRecommendedFilms(1, 10);
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/1/recommendations/films").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(5));
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/1/recommendations/films?limit=0")
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("should autocomplete users")
+    public void testAutocomplete() throws Exception {
+        final User user = User.builder()
+                .id(10)
+                .email("email@adress.com")
+                .login("login")
+                .name("User Name")
+                .birthday(LocalDate.of(2000, 7, 1))
+                .build();
+
+        Mockito.doReturn(List.of(user)).when(userService).autocomplete("log", 10);
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/autocomplete?prefix=log").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(10));
+
+        this.mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get(uri + "/autocomplete").accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+}
@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class FilmRecommenderTest {
+    @Test
+    @DisplayName("should rank films of the users with the most likes in common")
+    void testRanking() {
+        final LikeIndex likeIndex = new LikeIndex(Mockito.mock(FilmStorage.class));
+        final FilmRecommender recommender = new FilmRecommender(likeIndex, 100);
+
+        like(likeIndex, 1, 10, 11, 12);
+        // 2 shares two films with 1, 3 and 4 one each.
+        like(likeIndex, 2, 10, 11, 20, 21);
+        like(likeIndex, 3, 12, 21, 22);
+        like(likeIndex, 4, 10, 22);
+        like(likeIndex, 5, 23);
+
+        assertArrayEquals(new int[]{21, 20, 22}, recommender.recommend(1, 10));
+        assertArrayEquals(new int[]{21}, recommender.recommend(1, 1));
+
+        likeIndex.like(21, 1);
+        likeIndex.unlike(10, 4);
+
+        assertArrayEquals(new int[]{20, 22}, recommender.recommend(1, 10));
+        assertArrayEquals(new int[0], recommender.recommend(6, 10));
+    }
+
+    @Test
+    @DisplayName("should not find neighbours through films with too many likes")
+    void testMaxLikers() {
+        final LikeIndex likeIndex = new LikeIndex(Mockito.mock(FilmStorage.class));
+
+        like(likeIndex, 1, 10, 11);
+        like(likeIndex, 2, 11, 20);
+
+        for (int userId = 3; userId <= 8; userId++) {
+            like(likeIndex, userId, 10, 30);
+        }
+
+        assertArrayEquals(new int[]{20}, new FilmRecommender(likeIndex, 5).recommend(1, 10));
+        assertArrayEquals(new int[]{30, 20}, new FilmRecommender(likeIndex, 10).recommend(1, 10));
+    }
+
+    @Test
+    @DisplayName("should rank users with many likes in parallel the same as by brute force")
+    void testAgainstBruteForce() {
+        final Random random = new Random(13);
+        final LikeIndex likeIndex = new LikeIndex(Mockito.mock(FilmStorage.class));
+        final int users = 5_000;
+        final int films = 500;
+
+        // 200 likes each, so every user's films lead to well over the parallel threshold of likes.
+        for (int userId = 1; userId <= users; userId++) {
+            like(likeIndex, userId, random.ints(1, films + 1).distinct().limit(200).toArray());
+        }
+
+        final FilmRecommender recommender = new FilmRecommender(likeIndex, users);
+
+        for (int userId = 1; userId <= 10; userId++) {
+            assertArrayEquals(bruteForce(likeIndex, userId, users),
+                    recommender.recommend(userId, FilmRecommender.MAX_RECOMMENDATIONS));
+        }
+    }
+
+    @Test
+    @DisplayName("should keep ranking the same while unrelated likes come and go")
+    void testConcurrentLikes() throws Exception {
+        final LikeIndex likeIndex = new LikeIndex(Mockito.mock(FilmStorage.class));
+        final FilmRecommender recommender = new FilmRecommender(likeIndex, Integer.MAX_VALUE);
+        final int[] expected = {21, 20, 22};
+
+        like(likeIndex, 1, 10, 11, 12);
+        like(likeIndex, 2, 10, 11, 20, 21);
+        like(likeIndex, 3, 12, 21, 22);
+        like(likeIndex, 4, 10, 22);
+
+        // Late users share one film with 1 and like nothing else: they tie with 3 and 4 but lose on id,
+        // and bring no films to score, while film 10's likers keep growing past what an array chunk
+        // holds and shrinking back.
+        final AtomicBoolean done = new AtomicBoolean();
+        final CompletableFuture<Void> likes = CompletableFuture.runAsync(() -> {
+            while (!done.get()) {
+                for (int userId = 1_000; userId < 11_000; userId++) {
+                    likeIndex.like(10, userId);
+                }
+
+                for (int userId = 1_000; userId < 11_000; userId++) {
+                    likeIndex.unlike(10, userId);
+                }
+            }
+        });
+
+        try {
+            for (int i = 0; i < 2_000; i++) {
+                assertArrayEquals(expected, recommender.recommend(1, 10));
+            }
+        } finally {
+            done.set(true);
+        }
+
+        likes.get(10, TimeUnit.SECONDS);
+        assertArrayEquals(expected, recommender.recommend(1, 10));
+    }
+
+    private static void like(LikeIndex likeIndex, int userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            likeIndex.like(filmId, userId);
+        }
+    }
+
+    private static int[] bruteForce(LikeIndex likeIndex, int userId, int users) {
+        final int[] liked = likeIndex.likedFilms(userId);
+        final Map<Integer, Integer> overlaps = new HashMap<>();
+
+        for (int otherId = 1; otherId <= users; otherId++) {
+            int overlap = 0;
+
+            for (int filmId : likeIndex.likedFilms(otherId)) {
+                if (otherId != userId && Arrays.binarySearch(liked, filmId) >= 0) {
+                    overlap++;
+                }
+            }
+
+            if (overlap > 0) {
+                overlaps.put(otherId, overlap);
+            }
+        }
+
+        final Map<Integer, Integer> scores = new HashMap<>();
+
+        top(overlaps, 50).forEach(neighbourId -> {
+            for (int filmId : likeIndex.likedFilms(neighbourId)) {
+                if (Arrays.binarySearch(liked, filmId) < 0) {
+                    scores.merge(filmId, overlaps.get(neighbourId), Integer::sum);
+                }
+            }
+        });
+
+        return top(scores, FilmRecommender.MAX_RECOMMENDATIONS).toArray();
+    }
+
+    private static IntStream top(Map<Integer, Integer> counts, int k) {
+        return counts.keySet().stream()
+                .sorted(Comparator.<Integer>comparingInt(counts::get).reversed().thenComparing(Integer::intValue))
+                .limit(k)
+                .mapToInt(Integer::intValue);
+    }
+}
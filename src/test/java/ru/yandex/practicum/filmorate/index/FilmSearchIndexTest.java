@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+
+class FilmSearchIndexTest {
+    @Test
+    @DisplayName("should match every query word and rank by BM25")
+    void testRanking() {
+        final FilmSearchIndex index = indexOf(
+                film(1, "Space Odyssey", "A voyage through space and time", 1, 1),
+                film(2, "Space", "Space, space and more space", 1, 2),
+                film(3, "Time Bandits", "A comedy about time", 2, 1),
+                film(4, "Солярис", "Фильм о космосе и времени", 3, 2));
+
+        assertArrayEquals(new int[]{2, 1}, index.search("SPACE", null, null, 10));
+        assertArrayEquals(new int[]{1}, index.search("space time", null, null, 10));
+        assertArrayEquals(new int[]{3, 1}, index.search("time", null, null, 10));
+        assertArrayEquals(new int[]{3}, index.search("time", null, null, 1));
+        assertArrayEquals(new int[]{4}, index.search("СОЛЯРИС космосе", null, null, 10));
+        assertArrayEquals(new int[0], index.search("space opera", null, null, 10));
+        assertArrayEquals(new int[0], index.search(" ,. ", null, null, 10));
+    }
+
+    @Test
+    @DisplayName("should filter by genre and MPA")
+    void testFilters() {
+        final FilmSearchIndex index = indexOf(
+                film(1, "Space Odyssey", "A voyage through space and time", 1, 1),
+                film(2, "Space", "Space, space and more space", 1, 2),
+                film(3, "Space Bandits", "A comedy in space", 2, 1));
+
+        assertArrayEquals(new int[]{2, 1}, index.search("space", 1, null, 10));
+        assertArrayEquals(new int[]{3, 1}, index.search("space", null, 1, 10));
+        assertArrayEquals(new int[]{3}, index.search("space", 2, 1, 10));
+        assertArrayEquals(new int[0], index.search("space", 7, null, 10));
+    }
+
+    @Test
+    @DisplayName("should follow added and updated films")
+    void testIndexing() {
+        final FilmSearchIndex index = indexOf(film(1, "Amélie", "Paris", 1, 1));
+
+        index.index(film(2, "Amelie returns", "Paris again", 1, 1));
+
+        assertArrayEquals(new int[]{1, 2}, index.search("amelie", null, null, 10));
+
+        index.index(film(1, "Leon", "New York", 1, 1));
+
+        assertArrayEquals(new int[]{2}, index.search("amelie paris", null, null, 10));
+        assertArrayEquals(new int[]{1}, index.search("Léon", null, null, 10));
+        assertArrayEquals(new int[0], index.search("amelie", 1, 2, 10));
+    }
+
+    private static FilmSearchIndex indexOf(Film... films) {
+        final FilmStorage filmStorage = Mockito.mock(FilmStorage.class);
+
+        Mockito.doAnswer(invocation -> {
+            List.of(films).forEach(invocation.<Consumer<Film>>getArgument(0));
+
+            return null;
+        }).when(filmStorage).forEachFilm(any());
+
+        final FilmSearchIndex index = new FilmSearchIndex(filmStorage);
+
+        index.rebuild();
+
+        return index;
+    }
+
+    private static Film film(int id, String name, String description, int genreId, int mpaId) {
+        final Film film = Film.builder()
+                .id(id)
+                .name(name)
+                .description(description)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(Mpa.of(mpaId))
+                .build();
+
+        film.addGenre(Genre.of(genreId));
+
+        return film;
+    }
+}
@@ -0,0 +1,200 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+
+class FriendGraphTest {
+    private static final int USERS = 300;
+
+    @Test
+    @DisplayName("should answer like a map of sorted sets across writes and compactions")
+    void testAgainstSortedSets() {
+        final Random random = new Random(3);
+        final Map<Integer, TreeSet<Integer>> expected = new TreeMap<>();
+        final UserStorage userStorage = storageWith(random, expected);
+        final FriendGraph graph = new FriendGraph(userStorage, Integer.MAX_VALUE);
+
+        graph.rebuild();
+
+        for (int i = 0; i < 20_000; i++) {
+            final int userId = random.nextInt(USERS + 20);
+            final int friendId = random.nextInt(USERS + 20);
+            final TreeSet<Integer> friends = expected.computeIfAbsent(userId, id -> new TreeSet<>());
+
+            if (random.nextBoolean()) {
+                assertEquals(friends.add(friendId), graph.add(userId, friendId));
+            } else {
+                assertEquals(friends.remove(friendId), graph.remove(userId, friendId));
+            }
+
+            if (i % 5_000 == 0) {
+                assertEquals(withoutEmptyRows(expected), friendsOf(graph));
+                graph.compact();
+                assertEquals(0, graph.pendingRows());
+            }
+        }
+
+        assertEquals(withoutEmptyRows(expected), friendsOf(graph));
+
+        for (int i = 0; i < 1_000; i++) {
+            final int userId = random.nextInt(USERS + 20);
+            final int otherId = random.nextInt(USERS + 20);
+            final TreeSet<Integer> common = new TreeSet<>(expected.getOrDefault(userId, new TreeSet<>()));
+
+            common.retainAll(expected.getOrDefault(otherId, new TreeSet<>()));
+
+            assertArrayEquals(toArray(common), graph.commonFriends(userId, otherId));
+            assertEquals(common.size(), graph.mutualFriends(userId, otherId));
+            assertEquals(expected.getOrDefault(userId, new TreeSet<>()).contains(otherId)
+                            && expected.getOrDefault(otherId, new TreeSet<>()).contains(userId),
+                    graph.isApproved(userId, otherId));
+        }
+    }
+
+    @Test
+    @DisplayName("should intersect dense rows through bitsets the same as sparse ones")
+    void testDenseRows() {
+        final Random random = new Random(5);
+        final Map<Integer, TreeSet<Integer>> expected = new TreeMap<>();
+
+        for (int userId = 1; userId <= 4; userId++) {
+            final TreeSet<Integer> friends = new TreeSet<>();
+
+            random.ints(userId <= 3 ? 3_000 : 20, 1, 10_000).forEach(friends::add);
+            expected.put(userId, friends);
+        }
+
+        final UserStorage userStorage = Mockito.mock(UserStorage.class);
+
+        Mockito.doAnswer(invocation -> {
+            final UserStorage.FriendshipConsumer consumer = invocation.getArgument(0);
+
+            expected.forEach((userId, friends) -> friends.forEach(friendId -> consumer.accept(userId, friendId)));
+
+            return null;
+        }).when(userStorage).forEachFriendship(any());
+
+        final FriendGraph graph = new FriendGraph(userStorage, Integer.MAX_VALUE);
+
+        graph.rebuild();
+
+        for (int round = 0; round < 2; round++) {
+            for (int[] group : new int[][]{{1, 2}, {2, 4}, {4, 1}, {1, 2, 3}, {3, 4, 1}, {2, 2}}) {
+                final TreeSet<Integer> common = new TreeSet<>(expected.get(group[0]));
+
+                for (int userId : group) {
+                    common.retainAll(expected.get(userId));
+                }
+
+                assertArrayEquals(toArray(common), graph.commonFriends(group));
+
+                if (group.length == 2) {
+                    assertEquals(common.size(), graph.mutualFriends(group[0], group[1]));
+                }
+            }
+
+            // Pending rows carry no bitset until the next compaction.
+            final int friendId = expected.get(1).first();
+
+            expected.get(1).remove(friendId);
+            graph.remove(1, friendId);
+        }
+    }
+
+    @Test
+    @DisplayName("should page friends after an id")
+    void testFriendsAfter() {
+        final FriendGraph graph = new FriendGraph(Mockito.mock(UserStorage.class), Integer.MAX_VALUE);
+
+        for (int friendId : new int[]{9, 3, 5, 7}) {
+            graph.add(1, friendId);
+        }
+
+        assertArrayEquals(new int[]{3, 5}, graph.friendsAfter(1, 0, 2));
+        assertArrayEquals(new int[]{7, 9}, graph.friendsAfter(1, 5, 2));
+        assertArrayEquals(new int[]{7, 9}, graph.friendsAfter(1, 6, 10));
+        assertArrayEquals(new int[0], graph.friendsAfter(1, 9, 10));
+        assertArrayEquals(new int[0], graph.friendsAfter(2, 0, 10));
+    }
+
+    @Test
+    @DisplayName("should compact in the background once enough rows are pending")
+    void testBackgroundCompaction() throws InterruptedException {
+        final FriendGraph graph = new FriendGraph(Mockito.mock(UserStorage.class), 10);
+
+        for (int userId = 1; userId <= 10; userId++) {
+            graph.add(userId, userId + 1);
+        }
+
+        for (int attempt = 0; attempt < 100 && graph.pendingRows() > 0; attempt++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, graph.pendingRows());
+        assertTrue(graph.contains(10, 11));
+        assertFalse(graph.contains(11, 10));
+        graph.close();
+    }
+
+    private static UserStorage storageWith(Random random, Map<Integer, TreeSet<Integer>> expected) {
+        final UserStorage userStorage = Mockito.mock(UserStorage.class);
+
+        for (int i = 0; i < 3_000; i++) {
+            expected.computeIfAbsent(1 + random.nextInt(USERS), id -> new TreeSet<>()).add(1 + random.nextInt(USERS));
+        }
+
+        Mockito.doAnswer(invocation -> {
+            final UserStorage.FriendshipConsumer consumer = invocation.getArgument(0);
+
+            expected.forEach((userId, friends) -> friends.forEach(friendId -> consumer.accept(userId, friendId)));
+
+            return null;
+        }).when(userStorage).forEachFriendship(any());
+
+        return userStorage;
+    }
+
+    private static Map<Integer, TreeSet<Integer>> friendsOf(FriendGraph graph) {
+        final Map<Integer, TreeSet<Integer>> friends = new TreeMap<>();
+
+        for (int userId = 0; userId < USERS + 20; userId++) {
+            final TreeSet<Integer> row = new TreeSet<>();
+
+            for (int friendId : graph.friends(userId)) {
+                row.add(friendId);
+            }
+
+            if (!row.isEmpty()) {
+                friends.put(userId, row);
+            }
+        }
+
+        return friends;
+    }
+
+    private static Map<Integer, TreeSet<Integer>> withoutEmptyRows(Map<Integer, TreeSet<Integer>> friends) {
+        final Map<Integer, TreeSet<Integer>> rows = new TreeMap<>(friends);
+
+        rows.values().removeIf(TreeSet::isEmpty);
+
+        return rows;
+    }
+
+    private static int[] toArray(TreeSet<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+
+class FriendRecommenderTest {
+    @Test
+    @DisplayName("should rank friends of friends by weighted mutual friends")
+    void testRanking() {
+        final FriendGraph graph = new FriendGraph(Mockito.mock(UserStorage.class), Integer.MAX_VALUE);
+        final FriendRecommender recommender = new FriendRecommender(graph, 100, 100);
+
+        // 1 asked 2 and 3; only 3 answered.
+        graph.add(1, 2);
+        graph.add(1, 3);
+        graph.add(3, 1);
+        // 5 is reached through both friends, 4 only through 3.
+        graph.add(3, 4);
+        graph.add(2, 5);
+        graph.add(3, 5);
+        graph.add(2, 6);
+        graph.add(2, 3);
+
+        assertArrayEquals(new int[]{5, 4, 6}, recommender.recommend(1, 10));
+        assertArrayEquals(new int[]{5}, recommender.recommend(1, 1));
+
+        graph.add(4, 3);
+
+        assertArrayEquals(new int[]{5, 4, 6}, recommender.recommend(1, 10));
+
+        recommender.invalidate(1);
+
+        assertArrayEquals(new int[]{4, 5, 6}, recommender.recommend(1, 10));
+        assertArrayEquals(new int[0], recommender.recommend(7, 10));
+    }
+
+    @Test
+    @DisplayName("should rerank users whose friends change their friendships")
+    void testFriendshipChanged() {
+        final FriendGraph graph = new FriendGraph(Mockito.mock(UserStorage.class), Integer.MAX_VALUE);
+        final FriendRecommender recommender = new FriendRecommender(graph, 100, 100);
+
+        // 1 and 2 are friends, and so are 2 and 4.
+        graph.add(1, 2);
+        graph.add(2, 1);
+        graph.add(2, 4);
+        graph.add(4, 2);
+
+        assertArrayEquals(new int[]{4}, recommender.recommend(1, 10));
+        assertArrayEquals(new int[0], recommender.recommend(3, 10));
+
+        // 2 asks 3, then 3 answers and draws level with 4.
+        graph.add(2, 3);
+        recommender.friendshipChanged(2, 3);
+
+        assertArrayEquals(new int[]{4, 3}, recommender.recommend(1, 10));
+
+        graph.add(3, 2);
+        recommender.friendshipChanged(3, 2);
+
+        assertArrayEquals(new int[]{3, 4}, recommender.recommend(1, 10));
+        assertArrayEquals(new int[]{1, 4}, recommender.recommend(3, 10));
+
+        graph.remove(2, 3);
+        recommender.friendshipChanged(2, 3);
+
+        assertArrayEquals(new int[]{4}, recommender.recommend(1, 10));
+    }
+
+    @Test
+    @DisplayName("should skip friends with more friends than the fan-out bound")
+    void testMaxFanOut() {
+        final FriendGraph graph = new FriendGraph(Mockito.mock(UserStorage.class), Integer.MAX_VALUE);
+
+        graph.add(1, 2);
+        graph.add(1, 3);
+        graph.add(3, 4);
+
+        for (int friendId = 10; friendId < 20; friendId++) {
+            graph.add(2, friendId);
+        }
+
+        assertArrayEquals(new int[]{4}, new FriendRecommender(graph, 100, 5).recommend(1, 10));
+        assertArrayEquals(new int[]{4, 10, 11}, new FriendRecommender(graph, 100, 10).recommend(1, 3));
+    }
+
+    @Test
+    @DisplayName("should rank high-degree users in parallel the same as by brute force")
+    void testAgainstBruteForce() {
+        final Random random = new Random(11);
+        final UserStorage userStorage = Mockito.mock(UserStorage.class);
+        final int users = 3_000;
+
+        // 400 friends each, so every user's friends lead to well over the parallel threshold of paths.
+        Mockito.doAnswer(invocation -> {
+            final UserStorage.FriendshipConsumer consumer = invocation.getArgument(0);
+
+            for (int userId = 1; userId <= users; userId++) {
+                final int user = userId;
+
+                random.ints(1, users + 1).distinct().limit(400).sorted()
+                        .forEach(friendId -> consumer.accept(user, friendId));
+            }
+
+            return null;
+        }).when(userStorage).forEachFriendship(any());
+
+        final FriendGraph graph = new FriendGraph(userStorage, Integer.MAX_VALUE);
+
+        graph.rebuild();
+
+        final FriendRecommender recommender = new FriendRecommender(graph, 100, users);
+
+        for (int userId = 1; userId <= 20; userId++) {
+            assertArrayEquals(bruteForce(graph, userId),
+                    recommender.recommend(userId, FriendRecommender.MAX_RECOMMENDATIONS));
+        }
+    }
+
+    private static int[] bruteForce(FriendGraph graph, int userId) {
+        final int[] friends = graph.friends(userId);
+        final Map<Integer, Integer> scores = new HashMap<>();
+
+        for (int friendId : friends) {
+            for (int candidateId : graph.friends(friendId)) {
+                if (candidateId != userId && Arrays.binarySearch(friends, candidateId) < 0) {
+                    final int score = (graph.contains(friendId, userId) ? 2 : 1)
+                            * (graph.contains(candidateId, friendId) ? 2 : 1);
+
+                    scores.merge(candidateId, score, Integer::sum);
+                }
+            }
+        }
+
+        return scores.keySet().stream()
+                .sorted(Comparator.<Integer>comparingInt(scores::get).reversed().thenComparing(Integer::intValue))
+                .limit(FriendRecommender.MAX_RECOMMENDATIONS)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
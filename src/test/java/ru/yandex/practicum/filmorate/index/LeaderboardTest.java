@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeaderboardTest {
+
+    @Test
+    @DisplayName("should rank ids by count and then by id")
+    void testTop() {
+        final Leaderboard leaderboard = new Leaderboard();
+
+        leaderboard.register(1);
+        leaderboard.add(2, 3);
+        leaderboard.add(3, 5);
+        leaderboard.add(4, 3);
+        leaderboard.add(3, -4);
+
+        assertEquals(List.of(2, 4, 3, 1), leaderboard.top(10));
+        assertEquals(List.of(2, 4), leaderboard.top(2));
+        assertEquals(1, leaderboard.count(3));
+    }
+
+    @Test
+    @DisplayName("should rank ids inside partitions and move them when partitions change")
+    void testPartitions() {
+        final Leaderboard leaderboard = new Leaderboard();
+
+        leaderboard.setPartitions(1, new long[]{10, 20});
+        leaderboard.setPartitions(2, new long[]{10});
+        leaderboard.setPartitions(3, new long[]{20});
+        leaderboard.add(1, 1);
+        leaderboard.add(2, 2);
+        leaderboard.add(3, 3);
+
+        assertEquals(List.of(2, 1), leaderboard.top(10, 10L));
+        assertEquals(List.of(3, 1), leaderboard.top(10, 20L));
+        assertEquals(List.of(1), leaderboard.top(10, 10L, 20L));
+        assertEquals(List.of(), leaderboard.top(10, 30L));
+
+        leaderboard.setPartitions(3, new long[]{10});
+        leaderboard.add(3, 1);
+
+        assertEquals(List.of(3, 2, 1), leaderboard.top(10, 10L));
+        assertEquals(List.of(1), leaderboard.top(10, 20L));
+    }
+
+    @Test
+    @DisplayName("should stay consistent while likes are hammered from many threads")
+    void testConcurrentUpdates() throws Exception {
+        final int films = 64;
+        final int writers = 8;
+        final int operations = 50_000;
+        final Leaderboard leaderboard = new Leaderboard();
+        final AtomicLongArray expected = new AtomicLongArray(films);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(writers);
+        final ExecutorService readers = Executors.newSingleThreadExecutor();
+
+        for (int id = 0; id < films; id++) {
+            leaderboard.register(id);
+        }
+
+        final Future<?> reader = readers.submit(() -> {
+            start.await();
+
+            while (running.get()) {
+                final List<Integer> top = leaderboard.top(10);
+
+                assertTrue(top.size() <= 10);
+                assertEquals(top.size(), top.stream().distinct().count());
+            }
+
+            return null;
+        });
+
+        for (int w = 0; w < writers; w++) {
+            executor.submit(() -> {
+                start.await();
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                for (int i = 0; i < operations; i++) {
+                    // Skew writes towards a few films to provoke contention on the same counter.
+                    final int id = random.nextInt(4) == 0 ? random.nextInt(films) : random.nextInt(3);
+                    final int delta = random.nextInt(4) == 0 ? -1 : 1;
+
+                    leaderboard.add(id, delta);
+                    expected.addAndGet(id, delta);
+                }
+
+                return null;
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        running.set(false);
+        reader.get();
+        readers.shutdown();
+
+        final List<Integer> ranking = leaderboard.top(films);
+
+        assertEquals(films, ranking.size());
+
+        for (int i = 1; i < ranking.size(); i++) {
+            assertTrue(expected.get(ranking.get(i - 1)) >= expected.get(ranking.get(i)));
+        }
+
+        for (int id = 0; id < films; id++) {
+            assertEquals(expected.get(id), leaderboard.count(id));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class SimilarFilmsIndexTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("should rank films by co-likes weighted by shared genres and MPA")
+    void testRanking() {
+        final FilmStorage filmStorage = storageWithFacets();
+        final LikeIndex likeIndex = new LikeIndex(filmStorage);
+        final SimilarFilmsIndex index = indexOf(filmStorage, likeIndex, new SimpleMeterRegistry());
+
+        // Film 1 shares two likers with 2 and one each with 3 and 4, but 3 has its genre and MPA.
+        like(likeIndex, 10, 1, 2, 3);
+        like(likeIndex, 11, 1, 2, 4);
+        like(likeIndex, 12, 5);
+        index.rebuild();
+
+        assertArrayEquals(new int[]{3, 2, 4}, index.similar(1, 10));
+        assertArrayEquals(new int[]{3}, index.similar(1, 1));
+        assertArrayEquals(new int[]{1, 3, 4}, index.similar(2, 10));
+        assertArrayEquals(new int[0], index.similar(5, 10));
+        assertArrayEquals(new int[0], index.similar(42, 10));
+
+        like(likeIndex, 12, 1);
+
+        assertArrayEquals(new int[0], index.similar(5, 10));
+
+        index.rebuild();
+
+        assertArrayEquals(new int[]{1}, index.similar(5, 10));
+    }
+
+    @Test
+    @DisplayName("should serve the last build after a restart without rebuilding")
+    void testRestart() {
+        final FilmStorage filmStorage = storageWithFacets();
+        final LikeIndex likeIndex = new LikeIndex(filmStorage);
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final SimilarFilmsIndex index = indexOf(filmStorage, likeIndex, meterRegistry);
+
+        index.start();
+
+        assertNull(index.age());
+        assertTrue(Double.isNaN(meterRegistry.get("index.age").tag("index", "similar-films").timeGauge()
+                .value()));
+
+        like(likeIndex, 10, 1, 2);
+        index.rebuild();
+
+        assertTrue(index.age().compareTo(Duration.ofMinutes(1)) < 0);
+        assertTrue(meterRegistry.get("index.age").timeGauge().value() >= 0);
+
+        final FilmStorage restartedStorage = Mockito.mock(FilmStorage.class);
+
+        Mockito.doReturn(new FilmStorage.CatalogFingerprint(5, 5, 0)).when(restartedStorage).catalogFingerprint();
+
+        final SimilarFilmsIndex restarted =
+                indexOf(restartedStorage, new LikeIndex(restartedStorage), new SimpleMeterRegistry());
+
+        restarted.start();
+
+        assertArrayEquals(new int[]{2}, restarted.similar(1, 10));
+        verify(restartedStorage, never()).forEachFilmFacets(any());
+    }
+
+    @Test
+    @DisplayName("should not serve an index built for other tables after a restart")
+    void testStaleFile() {
+        final FilmStorage filmStorage = storageWithFacets();
+        final LikeIndex likeIndex = new LikeIndex(filmStorage);
+
+        like(likeIndex, 10, 1, 2);
+        indexOf(filmStorage, likeIndex, new SimpleMeterRegistry()).rebuild();
+
+        // The schema was recreated: film ids start over and the likes are gone.
+        final FilmStorage recreatedStorage = Mockito.mock(FilmStorage.class);
+
+        Mockito.doReturn(new FilmStorage.CatalogFingerprint(2, 2, 0)).when(recreatedStorage).catalogFingerprint();
+
+        final SimilarFilmsIndex restarted =
+                indexOf(recreatedStorage, new LikeIndex(recreatedStorage), new SimpleMeterRegistry());
+
+        restarted.start();
+
+        assertNull(restarted.age());
+        assertArrayEquals(new int[0], restarted.similar(1, 10));
+    }
+
+    @Test
+    @DisplayName("should ignore a file that is not a complete index")
+    void testCorruptFile() throws IOException {
+        final FilmStorage filmStorage = storageWithFacets();
+
+        Files.write(directory.resolve("similar-films.idx"), new byte[]{1, 2, 3});
+
+        final SimilarFilmsIndex index = indexOf(filmStorage, new LikeIndex(filmStorage), new SimpleMeterRegistry());
+
+        index.start();
+
+        assertNull(index.age());
+        assertArrayEquals(new int[0], index.similar(1, 10));
+    }
+
+    @Test
+    @DisplayName("should build in the background when no index exists yet")
+    void testBackgroundBuild() throws InterruptedException {
+        final FilmStorage filmStorage = storageWithFacets();
+        final LikeIndex likeIndex = new LikeIndex(filmStorage);
+        final SimilarFilmsIndex index = new SimilarFilmsIndex(filmStorage, likeIndex, new SimpleMeterRegistry(),
+                directory.resolve("similar-films.idx"), Duration.ofHours(1), 20, 1000);
+
+        like(likeIndex, 10, 1, 2);
+        index.start();
+
+        for (int attempt = 0; attempt < 100 && index.age() == null; attempt++) {
+            Thread.sleep(10);
+        }
+
+        assertArrayEquals(new int[]{2}, index.similar(1, 10));
+        index.close();
+    }
+
+    /**
+     * Films 1 and 3 are dramas rated 1, film 2 a comedy rated 2, films 4 and 5 have neither.
+     */
+    private static FilmStorage storageWithFacets() {
+        final FilmStorage filmStorage = Mockito.mock(FilmStorage.class);
+
+        Mockito.doAnswer(invocation -> {
+            final FilmStorage.FacetsConsumer consumer = invocation.getArgument(0);
+
+            consumer.accept(1, 0, 1, 2000, new int[]{2});
+            consumer.accept(2, 0, 2, 2000, new int[]{1});
+            consumer.accept(3, 0, 1, 2000, new int[]{2});
+            consumer.accept(4, 0, 0, 2000, new int[0]);
+            consumer.accept(5, 0, 0, 2000, new int[0]);
+
+            return null;
+        }).when(filmStorage).forEachFilmFacets(any());
+        Mockito.doReturn(new FilmStorage.CatalogFingerprint(5, 5, 0)).when(filmStorage).catalogFingerprint();
+
+        return filmStorage;
+    }
+
+    private SimilarFilmsIndex indexOf(FilmStorage filmStorage, LikeIndex likeIndex,
+                                      SimpleMeterRegistry meterRegistry) {
+        return new SimilarFilmsIndex(filmStorage, likeIndex, meterRegistry, directory.resolve("similar-films.idx"),
+                Duration.ZERO, 20, 1000);
+    }
+
+    private static void like(LikeIndex likeIndex, int userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            likeIndex.like(filmId, userId);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SlidingWindowCounterTest {
+    private final Instant start = Instant.parse("2023-08-01T12:00:00Z");
+
+    @Test
+    @DisplayName("should rank films by likes inside the window")
+    void testTop() {
+        final SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofHours(1), 60, start);
+
+        counter.add(1, start, 1, start);
+        counter.add(2, start, 1, start);
+        counter.add(2, start, 1, start);
+
+        assertEquals(List.of(2, 1), counter.top(10, start));
+    }
+
+    @Test
+    @DisplayName("should expire buckets that slide out of the window")
+    void testExpiry() {
+        final SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofHours(1), 60, start);
+
+        counter.add(1, start, 1, start);
+        counter.add(2, start.plus(Duration.ofMinutes(30)), 1, start.plus(Duration.ofMinutes(30)));
+
+        assertEquals(1, counter.count(1, start.plus(Duration.ofMinutes(59))));
+        assertEquals(0, counter.count(1, start.plus(Duration.ofMinutes(60))));
+        assertEquals(List.of(2), counter.top(10, start.plus(Duration.ofMinutes(60))));
+        assertEquals(List.of(), counter.top(10, start.plus(Duration.ofDays(1))));
+    }
+
+    @Test
+    @DisplayName("should subtract unlikes from the bucket of the original like")
+    void testUnlike() {
+        final SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofHours(1), 60, start);
+        final Instant later = start.plus(Duration.ofMinutes(10));
+
+        counter.add(1, start, 1, start);
+        counter.add(1, start, -1, later);
+        counter.add(2, start.minus(Duration.ofHours(2)), -1, later);
+
+        assertEquals(0, counter.count(1, later));
+        assertEquals(0, counter.count(2, later));
+        assertEquals(List.of(), counter.top(10, later));
+    }
+}
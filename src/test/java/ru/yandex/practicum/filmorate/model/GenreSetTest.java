@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GenreSetTest {
+
+    @Test
+    @DisplayName("should keep genres unique by id and sorted by id")
+    public void testAdd() {
+        final GenreSet genres = new GenreSet();
+
+        assertTrue(genres.add(Genre.of(3, "Триллер")));
+        assertTrue(genres.add(Genre.of(1, "Комедия")));
+        assertFalse(genres.add(Genre.of(3)));
+
+        assertEquals(2, genres.size());
+        assertArrayEquals(new int[]{1, 3}, genres.ids());
+        assertTrue(genres.containsId(3));
+        assertFalse(genres.containsId(2));
+        assertTrue(genres.contains(Genre.of(1, "Комедия")));
+        assertFalse(genres.contains(Genre.of(1)));
+    }
+
+    @Test
+    @DisplayName("should read and write genres as a JSON array")
+    public void testJson() throws Exception {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final GenreSet genres = objectMapper.readValue("[{\"id\": 2}, {\"id\": 1}, {\"id\": 2}]", GenreSet.class);
+
+        assertEquals(List.of(Genre.of(1), Genre.of(2)), List.copyOf(genres));
+        assertEquals("[{\"id\":1,\"name\":null},{\"id\":2,\"name\":null}]", objectMapper.writeValueAsString(genres));
+    }
+}
@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.validation.Validation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ru.yandex.practicum.filmorate.index.FilmAutocompleteIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportResult;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.MpaStorage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class FilmImportServiceTest {
+    @Mock
+    private FilmStorage filmStorage;
+
+    @Mock
+    private GenreStorage genreStorage;
+
+    @Mock
+    private MpaStorage mpaStorage;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private PopularityIndex popularityIndex;
+
+    private FilmImportService filmImportService;
+
+    private int nextId;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        popularityIndex = new PopularityIndex(filmStorage);
+        filmImportService = new FilmImportService(filmStorage, genreStorage, mpaStorage, popularityIndex,
+                new FilmSearchIndex(filmStorage),
+                new FilmAutocompleteIndex(filmStorage, new LikeIndex(filmStorage), 100),
+                Validation.buildDefaultValidatorFactory().getValidator(), transactionTemplate, 2);
+        nextId = 1;
+
+        Mockito.doReturn(List.of(Mpa.of(1, "G"))).when(mpaStorage).findAll();
+        Mockito.doReturn(List.of(Genre.of(1, "Комедия"))).when(genreStorage).findAll();
+        Mockito.doAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null))
+                .when(transactionTemplate).execute(any());
+        Mockito.doAnswer(invocation -> {
+            final List<Film> films = invocation.getArgument(0);
+
+            return IntStream.range(0, films.size()).mapToObj(i -> nextId++).collect(Collectors.toList());
+        }).when(filmStorage).addAll(anyList());
+    }
+
+    @Test
+    @DisplayName("should import valid films in chunks and report invalid ones")
+    public void testImportFilms() {
+        final List<Film> films = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            films.add(film("film " + i, 1));
+        }
+        films.add(2, film("", 1));
+        films.add(4, film("unknown mpa", 9));
+
+        final FilmImportResult result = filmImportService.importFilms(films);
+
+        assertEquals(List.of(1, 2, 3, 4, 5), result.getCreatedIds());
+        assertEquals(2, result.getErrors().size());
+        assertEquals(2, result.getErrors().get(0).getIndex());
+        assertEquals(List.of("Film name should not be blank"), result.getErrors().get(0).getMessages());
+        assertEquals(4, result.getErrors().get(1).getIndex());
+        assertEquals(List.of("Mpa with id 9 not found"), result.getErrors().get(1).getMessages());
+        assertEquals(List.of(1, 2, 3), popularityIndex.top(3));
+        verify(filmStorage, times(3)).addAll(anyList());
+    }
+
+    @Test
+    @DisplayName("should report every film of a rolled back chunk")
+    public void testImportFilmsChunkFailure() {
+        Mockito.doThrow(new DataIntegrityViolationException("duplicate"))
+                .doAnswer(invocation -> List.of(7))
+                .when(filmStorage).addAll(anyList());
+
+        final FilmImportResult result = filmImportService.importFilms(
+                List.of(film("film 1", 1), film("film 2", 1), film("film 3", 1)));
+
+        assertEquals(List.of(7), result.getCreatedIds());
+        assertEquals(2, result.getErrors().size());
+        assertEquals(0, result.getErrors().get(0).getIndex());
+        assertEquals(1, result.getErrors().get(1).getIndex());
+    }
+
+    private static Film film(String name, int mpaId) {
+        final Film film = Film.builder()
+                .name(name)
+                .description("description")
+                .releaseDate(LocalDate.of(2023, 7, 1))
+                .duration(120)
+                .mpa(Mpa.of(mpaId))
+                .build();
+        film.addGenre(Genre.of(1));
+
+        return film;
+    }
+}
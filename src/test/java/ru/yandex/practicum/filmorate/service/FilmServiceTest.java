@@ -1,28 +1,45 @@
 package ru.yandex.practicum.filmorate.service;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
+import ru.yandex.practicum.filmorate.cache.FilmCache;
 import ru.yandex.practicum.filmorate.exception.NoSuchModelException;
+import ru.yandex.practicum.filmorate.index.FilmAutocompleteIndex;
+import ru.yandex.practicum.filmorate.index.FilmRecommender;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.index.SimilarFilmsIndex;
+import ru.yandex.practicum.filmorate.index.TrendingIndex;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -33,8 +50,18 @@ public class FilmServiceTest {
     @Mock
     private UserStorage userStorage;
 
-    @Mock
-    private GenreStorage genreStorage;
+    private PopularityIndex popularityIndex;
+
+    private LikeIndex likeIndex;
+
+    private SimilarFilmsIndex similarFilmsIndex;
+
+    private FilmSearchIndex filmSearchIndex;
+
+    @TempDir
+    Path directory;
+
+    private FilmCache filmCache;
 
     @MockBean
     private FilmService filmService;
@@ -42,7 +69,15 @@ public class FilmServiceTest {
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
-        filmService = new FilmService(filmStorage, userStorage, genreStorage);
+        popularityIndex = new PopularityIndex(filmStorage);
+        likeIndex = new LikeIndex(filmStorage);
+        filmSearchIndex = new FilmSearchIndex(filmStorage);
+        similarFilmsIndex = new SimilarFilmsIndex(filmStorage, likeIndex, new SimpleMeterRegistry(),
+                directory.resolve("similar-films.idx"), Duration.ZERO, 20, 1000);
+        filmCache = new FilmCache(filmStorage, new SimpleMeterRegistry(), 100);
+        filmService = new FilmService(filmStorage, userStorage, popularityIndex, new TrendingIndex(filmStorage),
+                likeIndex, new FilmRecommender(likeIndex, 100), similarFilmsIndex,
+                filmSearchIndex, new FilmAutocompleteIndex(filmStorage, likeIndex, 100), filmCache);
     }
 
     @Test
@@ -94,6 +129,33 @@ public class FilmServiceTest {
         verify(filmStorage, times(1)).findOneById(1);
     }
 
+    @Test
+    @DisplayName("should serve repeated reads from the cache until the film is updated")
+    public void testFindOneByIdCached() {
+        final Film film = Film.builder()
+                .id(1)
+                .name("name")
+                .description("description")
+                .releaseDate(LocalDate.of(2023, 7, 1))
+                .duration(120)
+                .build();
+
+        Mockito.doReturn(Optional.of(film)).when(filmStorage).findOneById(1);
+        Mockito.doReturn(film).when(filmStorage).update(any(Film.class));
+
+        filmService.findOneById(1).addGenre(Genre.of(1, "Genre"));
+
+        assertTrue(filmService.findOneById(1).getGenres().isEmpty());
+        verify(filmStorage, times(1)).findOneById(1);
+        assertEquals(1, filmCache.hitCount());
+        assertEquals(1, filmCache.missCount());
+
+        filmService.update(film);
+        filmService.findOneById(1);
+
+        verify(filmStorage, times(2)).findOneById(1);
+    }
+
     @Test
     @DisplayName("should throw error if film not found by id")
     public void testFindOneByIdFilmNotFound() {
@@ -147,135 +209,247 @@ public class FilmServiceTest {
     @Test
     @DisplayName("should add like")
     public void testAddLike() {
-        final Film film = Film.builder()
-                .id(1)
-                .name("name")
-                .description("description")
-                .releaseDate(LocalDate.of(2023, 7, 1))
-                .duration(120)
-                .build();
-
-        final User user = User.builder()
-                .id(1)
-                .email("email@adress.com")
-                .login("login")
-                .name("User Name")
-                .birthday(LocalDate.of(2000, 7, 1))
-                .build();
-
-        Mockito.doReturn(Optional.of(film)).when(filmStorage).findOneById(1);
-        Mockito.doReturn(Optional.of(user)).when(userStorage).findOneById(1);
+        Mockito.doReturn(true).when(filmStorage).existsById(1);
+        Mockito.doReturn(true).when(userStorage).existsById(1);
 
         assertDoesNotThrow(() -> filmService.addLike(1, 1));
 
-        verify(filmStorage, times(1)).findOneById(1);
-        verify(userStorage, times(1)).findOneById(1);
+        verify(filmStorage, times(1)).existsById(1);
+        verify(userStorage, times(1)).existsById(1);
+        verify(filmStorage, times(1)).addLike(eq(1), eq(1), any(Instant.class));
+        verify(filmStorage, never()).findOneById(anyInt());
+        verify(userStorage, never()).findOneById(anyInt());
     }
 
     @Test
     @DisplayName("should throw if user not found")
     public void testAddLikeUnknownUser() {
-        final Film film = Film.builder()
-                .id(1)
-                .name("name")
-                .description("description")
-                .releaseDate(LocalDate.of(2023, 7, 1))
-                .duration(120)
-                .build();
-
-        Mockito.doReturn(Optional.of(film)).when(filmStorage).findOneById(1);
-        Mockito.doReturn(Optional.empty()).when(userStorage).findOneById(1);
+        Mockito.doReturn(true).when(filmStorage).existsById(1);
+        Mockito.doReturn(false).when(userStorage).existsById(1);
 
         assertThrows(NoSuchModelException.class, () -> filmService.addLike(1, 1));
 
-        verify(filmStorage, times(1)).findOneById(1);
-        verify(userStorage, times(1)).findOneById(1);
+        verify(userStorage, times(1)).existsById(1);
+        verify(filmStorage, never()).addLike(anyInt(), anyInt(), any());
     }
 
     @Test
-    @DisplayName("should throw if user not found")
+    @DisplayName("should throw if film not found")
     public void testAddLikeUnknownFilm() {
-        final User user = User.builder()
-                .id(1)
-                .email("email@adress.com")
-                .login("login")
-                .name("User Name")
-                .birthday(LocalDate.of(2000, 7, 1))
-                .build();
-
-        Mockito.doReturn(Optional.empty()).when(filmStorage).findOneById(1);
-        Mockito.doReturn(Optional.of(user)).when(userStorage).findOneById(1);
+        Mockito.doReturn(false).when(filmStorage).existsById(1);
+        Mockito.doReturn(true).when(userStorage).existsById(1);
 
         assertThrows(NoSuchModelException.class, () -> filmService.addLike(1, 1));
 
-        verify(filmStorage, times(1)).findOneById(1);
-        verify(userStorage, times(1)).findOneById(1);
+        verify(filmStorage, times(1)).existsById(1);
+        verify(userStorage, times(1)).existsById(1);
+        verify(filmStorage, never()).addLike(anyInt(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("should ignore repeated likes and unlikes")
+    public void testIdempotentLikes() {
+        Mockito.doReturn(true).when(filmStorage).existsById(1);
+        Mockito.doReturn(true).when(userStorage).existsById(1);
+        Mockito.doReturn(Optional.of(Instant.now())).when(filmStorage).removeLike(1, 1);
+
+        filmService.addLike(1, 1);
+        filmService.addLike(1, 1);
+
+        assertTrue(filmService.isLiked(1, 1));
+        assertEquals(1, likeIndex.likes(1));
+        assertEquals(1, popularityIndex.likes(1));
+
+        filmService.removeLike(1, 1);
+        filmService.removeLike(1, 1);
+
+        assertFalse(filmService.isLiked(1, 1));
+        assertEquals(0, popularityIndex.likes(1));
+        verify(filmStorage, times(1)).addLike(eq(1), eq(1), any(Instant.class));
+        verify(filmStorage, times(1)).removeLike(1, 1);
     }
 
     @Test
     @DisplayName("should remove like")
     public void testRemoveLike() {
-        final Film film = Film.builder()
+        Mockito.doReturn(true).when(filmStorage).existsById(1);
+        Mockito.doReturn(true).when(userStorage).existsById(1);
+        Mockito.doReturn(Optional.empty()).when(filmStorage).removeLike(1, 1);
+        likeIndex.like(1, 1);
+
+        assertDoesNotThrow(() -> filmService.removeLike(1, 1));
+
+        verify(filmStorage, times(1)).existsById(1);
+        verify(userStorage, times(1)).existsById(1);
+        verify(filmStorage, times(1)).removeLike(1, 1);
+    }
+
+    @Test
+    @DisplayName("should throw if user not found")
+    public void testRemoveLikeUnknownUser() {
+        Mockito.doReturn(true).when(filmStorage).existsById(1);
+        Mockito.doReturn(false).when(userStorage).existsById(1);
+
+        assertThrows(NoSuchModelException.class, () -> filmService.removeLike(1, 1));
+
+        verify(userStorage, times(1)).existsById(1);
+        verify(filmStorage, never()).removeLike(anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("should throw if film not found")
+    public void testRemoveLikeUnknownFilm() {
+        Mockito.doReturn(false).when(filmStorage).existsById(1);
+        Mockito.doReturn(true).when(userStorage).existsById(1);
+
+        assertThrows(NoSuchModelException.class, () -> filmService.removeLike(1, 1));
+
+        verify(filmStorage, times(1)).existsById(1);
+        verify(userStorage, times(1)).existsById(1);
+        verify(filmStorage, never()).removeLike(anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("should return popular films in index order")
+    public void testGetPopularFilms() {
+        final Film film1 = Film.builder()
                 .id(1)
-                .name("name")
-                .description("description")
+                .name("name 1")
+                .description("description 1")
                 .releaseDate(LocalDate.of(2023, 7, 1))
                 .duration(120)
                 .build();
-        final User user = User.builder()
-                .id(1)
-                .email("email@adress.com")
-                .login("login")
-                .name("User Name")
-                .birthday(LocalDate.of(2000, 7, 1))
+        final Film film2 = Film.builder()
+                .id(2)
+                .name("name 2")
+                .description("description 2")
+                .releaseDate(LocalDate.of(2023, 8, 2))
+                .duration(110)
                 .build();
+        Mockito.doAnswer(invocation -> {
+            final FilmStorage.FacetsConsumer consumer = invocation.getArgument(0);
 
-        Mockito.doReturn(Optional.of(film)).when(filmStorage).findOneById(1);
-        Mockito.doReturn(Optional.of(user)).when(userStorage).findOneById(1);
+            consumer.accept(1, 1, 1, 2023, new int[0]);
+            consumer.accept(2, 1, 1, 2023, new int[0]);
+            consumer.accept(3, 0, 1, 2023, new int[0]);
 
-        assertDoesNotThrow(() -> filmService.removeLike(1, 1));
+            return null;
+        }).when(filmStorage).forEachFilmFacets(any());
+        Mockito.doReturn(true).when(filmStorage).existsById(2);
+        Mockito.doReturn(true).when(userStorage).existsById(1);
+        Mockito.doReturn(List.of(film1, film2)).when(filmStorage).findAllByIds(List.of(2, 1));
 
-        verify(filmStorage, times(1)).findOneById(1);
-        verify(userStorage, times(1)).findOneById(1);
+        popularityIndex.rebuild();
+        filmService.addLike(2, 1);
+
+        assertEquals(List.of(film2, film1), filmService.getPopularFilms(2));
+
+        verify(filmStorage, times(1)).findAllByIds(List.of(2, 1));
     }
 
     @Test
-    @DisplayName("should throw if user not found")
-    public void testRemoveLikeUnknownUser() {
+    @DisplayName("should recommend films liked by users with overlapping likes")
+    public void testGetRecommendedFilms() {
         final Film film = Film.builder()
-                .id(1)
-                .name("name")
-                .description("description")
+                .id(3)
+                .name("name 3")
+                .description("description 3")
                 .releaseDate(LocalDate.of(2023, 7, 1))
                 .duration(120)
                 .build();
 
-        Mockito.doReturn(Optional.of(film)).when(filmStorage).findOneById(1);
-        Mockito.doReturn(Optional.empty()).when(userStorage).findOneById(1);
+        Mockito.doReturn(true).when(filmStorage).existsById(anyInt());
+        Mockito.doReturn(true).when(userStorage).existsById(1);
+        Mockito.doReturn(true).when(userStorage).existsById(2);
+        Mockito.doReturn(List.of(film)).when(filmStorage).findAllByIds(List.of(3));
 
-        assertThrows(NoSuchModelException.class, () -> filmService.removeLike(1, 1));
+        filmService.addLike(1, 1);
+        filmService.addLike(1, 2);
+        filmService.addLike(3, 2);
 
-        verify(filmStorage, times(1)).findOneById(1);
-        verify(userStorage, times(1)).findOneById(1);
+        assertEquals(List.of(film), filmService.getRecommendedFilms(1, 10));
+
+        filmService.addLike(3, 1);
+        Mockito.doReturn(List.of()).when(filmStorage).findAllByIds(List.of());
+
+        assertEquals(List.of(), filmService.getRecommendedFilms(1, 10));
+        assertThrows(NoSuchModelException.class, () -> filmService.getRecommendedFilms(4, 10));
     }
 
     @Test
-    @DisplayName("should throw if user not found")
-    public void testRemoveLikeUnknownFilm() {
-        final User user = User.builder()
-                .id(1)
-                .email("email@adress.com")
-                .login("login")
-                .name("User Name")
-                .birthday(LocalDate.of(2000, 7, 1))
+    @DisplayName("should find similar films from the last index build")
+    public void testGetSimilarFilms() {
+        final Film film = Film.builder()
+                .id(2)
+                .name("name 2")
+                .description("description 2")
+                .releaseDate(LocalDate.of(2023, 7, 1))
+                .duration(120)
                 .build();
 
-        Mockito.doReturn(Optional.empty()).when(filmStorage).findOneById(1);
-        Mockito.doReturn(Optional.of(user)).when(userStorage).findOneById(1);
+        Mockito.doAnswer(invocation -> {
+            final FilmStorage.FacetsConsumer consumer = invocation.getArgument(0);
 
-        assertThrows(NoSuchModelException.class, () -> filmService.removeLike(1, 1));
+            consumer.accept(1, 1, 1, 2023, new int[0]);
+            consumer.accept(2, 1, 1, 2023, new int[0]);
 
-        verify(filmStorage, times(1)).findOneById(1);
-        verify(userStorage, times(1)).findOneById(1);
+            return null;
+        }).when(filmStorage).forEachFilmFacets(any());
+        Mockito.doReturn(true).when(filmStorage).existsById(1);
+        Mockito.doReturn(List.of(film)).when(filmStorage).findAllByIds(List.of(2));
+
+        likeIndex.like(1, 1);
+        likeIndex.like(2, 1);
+        similarFilmsIndex.rebuild();
+
+        assertEquals(List.of(film), filmService.getSimilarFilms(1, 10));
+        assertThrows(NoSuchModelException.class, () -> filmService.getSimilarFilms(3, 10));
+    }
+
+    @Test
+    @DisplayName("should search films through the index and indexed added films")
+    public void testSearch() {
+        final Film film = Film.builder()
+                .name("Солярис")
+                .description("Фильм Андрея Тарковского")
+                .releaseDate(LocalDate.of(1972, 3, 20))
+                .duration(167)
+                .build();
+        final Film addedFilm = film.toBuilder().id(1).build();
+
+        Mockito.doReturn(addedFilm).when(filmStorage).add(film);
+        Mockito.doReturn(List.of(addedFilm)).when(filmStorage).findAllByIds(List.of(1));
+
+        filmService.add(film);
+
+        assertEquals(List.of(addedFilm), filmService.search("тарковского", null, null, 10));
+    }
+
+    @Test
+    @DisplayName("should complete names of added films, most liked first")
+    public void testAutocomplete() {
+        final Film film = Film.builder()
+                .name("The Matrix")
+                .description("Wake up, Neo")
+                .releaseDate(LocalDate.of(1999, 3, 31))
+                .duration(136)
+                .build();
+        final Film matrix = film.toBuilder().id(1).build();
+        final Film reloaded = film.toBuilder().id(2).name("The Matrix Reloaded").build();
+
+        Mockito.doReturn(matrix, reloaded).when(filmStorage).add(any(Film.class));
+        Mockito.doReturn(true).when(filmStorage).existsById(anyInt());
+        Mockito.doReturn(true).when(userStorage).existsById(anyInt());
+        Mockito.doReturn(List.of(matrix, reloaded)).when(filmStorage).findAllByIds(List.of(1, 2));
+        Mockito.doReturn(List.of(matrix, reloaded)).when(filmStorage).findAllByIds(List.of(2, 1));
+
+        filmService.add(film);
+        filmService.add(film);
+
+        assertEquals(List.of(matrix, reloaded), filmService.autocomplete("matr", 10));
+
+        filmService.addLike(2, 7);
+
+        assertEquals(List.of(reloaded, matrix), filmService.autocomplete("the m", 10));
     }
 }
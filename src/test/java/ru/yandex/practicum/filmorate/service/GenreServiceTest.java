@@ -11,6 +11,7 @@ import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
+import ru.yandex.practicum.filmorate.cache.FilmCache;
 import ru.yandex.practicum.filmorate.exception.NoSuchModelException;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.GenreStorage;
@@ -26,13 +27,16 @@ class GenreServiceTest {
     @Mock
     private GenreStorage genreStorage;
 
+    @Mock
+    private FilmCache filmCache;
+
     @MockBean
     private GenreService genreService;
 
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
-        genreService = new GenreService(genreStorage);
+        genreService = new GenreService(genreStorage, filmCache);
     }
 
     @Test
@@ -102,5 +106,6 @@ class GenreServiceTest {
         assertEquals(genre, result);
 
         verify(genreStorage, times(1)).update(genre);
+        verify(filmCache, times(1)).invalidateGenre(1);
     }
 }
\ No newline at end of file
@@ -11,6 +11,7 @@ import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
+import ru.yandex.practicum.filmorate.cache.FilmCache;
 import ru.yandex.practicum.filmorate.exception.NoSuchModelException;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.MpaStorage;
@@ -26,13 +27,16 @@ class MpaServiceTest {
     @Mock
     private MpaStorage mpaStorage;
 
+    @Mock
+    private FilmCache filmCache;
+
     @MockBean
     private MpaService mpaService;
 
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
-        mpaService = new MpaService(mpaStorage);
+        mpaService = new MpaService(mpaStorage, filmCache);
     }
 
     @Test
@@ -102,5 +106,6 @@ class MpaServiceTest {
         assertEquals(mpa, result);
 
         verify(mpaStorage, times(1)).update(mpa);
+        verify(filmCache, times(1)).invalidateMpa(1);
     }
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import ru.yandex.practicum.filmorate.exception.NoSuchModelException;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.QueryCounter;
+import ru.yandex.practicum.filmorate.storage.impl.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.impl.UserDbStorage;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Number of SQL statements each like, friend and user listing call may issue.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase
+@Import(QueryCounter.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class StatementBudgetTest {
+    private final FilmService filmService;
+    private final UserService userService;
+    private final QueryCounter queryCounter;
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmDbStorage filmDbStorage;
+    private final UserDbStorage userDbStorage;
+    private final FriendGraph friendGraph;
+
+    private int filmId;
+    private int userId;
+    private int friendId;
+
+    @BeforeEach
+    void setUp() {
+        filmId = filmService.add(Film.builder()
+                .name("film")
+                .description("description")
+                .releaseDate(LocalDate.of(2023, 7, 1))
+                .duration(120)
+                .mpa(Mpa.of(1))
+                .build()).getId();
+        userId = userService.add(user("user")).getId();
+        friendId = userService.add(user("friend")).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM FAVORITE_FILMS");
+        jdbcTemplate.update("DELETE FROM FRIENDS");
+        jdbcTemplate.update("DELETE FROM FILM");
+        jdbcTemplate.update("DELETE FROM USERS");
+        filmDbStorage.loadIds();
+        userDbStorage.loadIds();
+        friendGraph.rebuild();
+    }
+
+    @Test
+    @DisplayName("like and unlike should only write")
+    void testLikeBudget() {
+        assertThat(statementsOf(() -> filmService.addLike(filmId, userId))).isEqualTo(2);
+        assertThat(statementsOf(() -> filmService.addLike(filmId, userId))).isEqualTo(0);
+        assertThat(statementsOf(() -> filmService.isLiked(filmId, userId))).isEqualTo(0);
+        assertThat(statementsOf(() -> filmService.removeLike(filmId, userId))).isEqualTo(2);
+        assertThat(statementsOf(() -> filmService.removeLike(filmId, userId))).isEqualTo(0);
+        assertThat(statementsOf(() -> assertThrows(NoSuchModelException.class,
+                () -> filmService.addLike(filmId + 1000, userId)))).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("friend calls should not load users or read friendships")
+    void testFriendBudget() {
+        assertThat(statementsOf(() -> userService.addFriend(userId, friendId))).isEqualTo(1);
+        assertThat(statementsOf(() -> userService.addFriend(friendId, userId))).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friends WHERE approved", Integer.class))
+                .isEqualTo(2);
+        assertThat(statementsOf(() -> userService.removeFriend(userId, friendId))).isEqualTo(2);
+        assertThat(statementsOf(() -> assertThrows(NoSuchModelException.class,
+                () -> userService.addFriend(userId, friendId + 1000)))).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("user reads should not issue a statement per user")
+    void testUserReadBudget() {
+        final int otherId = userService.add(user("other")).getId();
+
+        for (int id : new int[]{friendId, otherId}) {
+            userService.addFriend(userId, id);
+            userService.addFriend(id, userId);
+        }
+        userService.addFriend(friendId, otherId);
+
+        assertThat(statementsOf(userService::findAll)).isEqualTo(1);
+        assertThat(statementsOf(() -> userService.findAll(0, 10))).isEqualTo(1);
+        assertThat(statementsOf(() -> userService.findOneById(userId))).isEqualTo(1);
+        assertThat(statementsOf(() -> userService.findAllFriends(userId, false))).isEqualTo(1);
+        assertThat(statementsOf(() -> userService.findAllFriends(userId, 0, 1, true))).isEqualTo(1);
+        assertThat(statementsOf(() -> userService.findCommonFriends(userId, friendId))).isEqualTo(1);
+        assertThat(statementsOf(() -> assertThrows(NoSuchModelException.class,
+                () -> userService.findAllFriends(userId + 1000, false)))).isEqualTo(0);
+        assertThat(statementsOf(() -> userService.update(user("renamed").toBuilder().id(otherId).build())))
+                .isEqualTo(2);
+
+        assertThat(userService.findCommonFriends(userId, friendId).get(0).getId()).isEqualTo(otherId);
+
+        final User firstFriend = userService.findAllFriends(userId, 0, 1, true).get(0);
+        final List<User> nextFriends = userService.findAllFriends(userId, firstFriend.getId(), 10, true);
+
+        assertThat(firstFriend.getId()).isEqualTo(friendId);
+        assertThat(firstFriend.getMutualFriends()).isEqualTo(1);
+        assertThat(nextFriends.size()).isEqualTo(1);
+        assertThat(nextFriends.get(0).getId()).isEqualTo(otherId);
+        assertThat(nextFriends.get(0).getMutualFriends()).isEqualTo(0);
+        assertThat(userService.findAllFriends(userId, false).get(0).getMutualFriends()).isNull();
+    }
+
+    private int statementsOf(Runnable call) {
+        queryCounter.reset();
+        call.run();
+
+        return queryCounter.count();
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@adress.com")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(2000, 7, 1))
+                .build();
+    }
+}
@@ -3,7 +3,7 @@ package ru.yandex.practicum.filmorate.service;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -14,13 +14,19 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
 import ru.yandex.practicum.filmorate.exception.NoSuchModelException;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.FriendRecommender;
+import ru.yandex.practicum.filmorate.index.UserAutocompleteIndex;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -31,10 +37,14 @@ class UserServiceTest {
     @MockBean
     private UserService userService;
 
+    private FriendGraph friendGraph;
+
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
-        userService = new UserService(userStorage);
+        friendGraph = new FriendGraph(userStorage, 100);
+        userService = new UserService(userStorage, friendGraph, new FriendRecommender(friendGraph, 100, 10_000),
+                new UserAutocompleteIndex(userStorage, friendGraph, 100));
     }
 
     @Test
@@ -163,14 +173,15 @@ class UserServiceTest {
                 .name("User Name")
                 .birthday(LocalDate.of(2001, 8, 10))
                 .build();
-        user.getFriends().addAll(Set.of(friend1.getId(), friend2.getId()));
-        Mockito.doReturn(Optional.of(friend1)).when(userStorage).findOneById(friend1.getId());
-        Mockito.doReturn(Optional.of(friend2)).when(userStorage).findOneById(friend2.getId());
-        Mockito.doReturn(Optional.of(user)).when(userStorage).findOneById(user.getId());
+        friendGraph.add(user.getId(), friend2.getId());
+        friendGraph.add(user.getId(), friend1.getId());
+        Mockito.doReturn(true).when(userStorage).existsById(user.getId());
+        Mockito.doReturn(List.of(friend1, friend2)).when(userStorage).findAllByIds(aryEq(new int[]{10, 11}));
 
-        List<User> result = userService.findAllFriends(1);
+        List<User> result = userService.findAllFriends(1, false);
 
         assertTrue(result.containsAll(List.of(friend1, friend2)));
+        Mockito.verify(userStorage, Mockito.never()).findOneById(Mockito.anyInt());
     }
 
     @Test
@@ -192,12 +203,18 @@ class UserServiceTest {
                 .birthday(LocalDate.of(2001, 8, 10))
                 .build();
 
-        Mockito.doReturn(Optional.of(user1)).when(userStorage).findOneById(user1.getId());
-        Mockito.doReturn(Optional.of(user2)).when(userStorage).findOneById(user2.getId());
+        Mockito.doReturn(true).when(userStorage).existsById(user1.getId());
+        Mockito.doReturn(true).when(userStorage).existsById(user2.getId());
 
         userService.addFriend(10, 11);
 
-        verify(userStorage).addFriend(10, 11);
+        verify(userStorage).addFriend(10, 11, false);
+        assertFalse(friendGraph.isApproved(10, 11));
+
+        userService.addFriend(11, 10);
+
+        verify(userStorage).addFriend(11, 10, true);
+        assertTrue(friendGraph.isApproved(10, 11));
     }
 
     @Test
@@ -219,12 +236,15 @@ class UserServiceTest {
                 .birthday(LocalDate.of(2001, 8, 10))
                 .build();
 
-        Mockito.doReturn(Optional.of(user1)).when(userStorage).findOneById(user1.getId());
-        Mockito.doReturn(Optional.of(user2)).when(userStorage).findOneById(user2.getId());
+        Mockito.doReturn(true).when(userStorage).existsById(user1.getId());
+        Mockito.doReturn(true).when(userStorage).existsById(user2.getId());
+
+        friendGraph.add(10, 11);
 
         userService.removeFriend(10, 11);
 
         verify(userStorage).deleteFriend(10, 11);
+        assertFalse(friendGraph.contains(10, 11));
     }
 
     @Test
@@ -254,10 +274,101 @@ class UserServiceTest {
                 .birthday(LocalDate.of(2000, 3, 1))
                 .build();
 
-        Mockito.doReturn(List.of(user3)).when(userStorage).commonFriend(user1.getId(), user2.getId());
+        friendGraph.add(user1.getId(), user2.getId());
+        friendGraph.add(user1.getId(), user3.getId());
+        friendGraph.add(user2.getId(), user3.getId());
+        Mockito.doReturn(List.of(user3)).when(userStorage).findAllByIds(aryEq(new int[]{12}));
+
+        assertEquals(List.of(user3), userService.findCommonFriends(user1.getId(), user2.getId()));
+    }
+
+    @Test
+    @DisplayName("should find friends common to a group of users")
+    public void testFindGroupCommonFriends() {
+        final User friend = User.builder()
+                .id(20)
+                .email("email@yandex.ru")
+                .login("other")
+                .name("Name")
+                .birthday(LocalDate.of(2000, 3, 1))
+                .build();
+
+        for (int userId : new int[]{10, 11, 12}) {
+            Mockito.doReturn(true).when(userStorage).existsById(userId);
+            friendGraph.add(userId, 20);
+            friendGraph.add(userId, 20 + userId);
+        }
+        friendGraph.add(10, 21);
+        friendGraph.add(11, 21);
+        Mockito.doReturn(List.of(friend)).when(userStorage).findAllByIds(aryEq(new int[]{20}));
+
+        assertEquals(List.of(friend), userService.findCommonFriends(List.of(10, 11, 12)));
+        assertThrows(NoSuchModelException.class, () -> userService.findCommonFriends(List.of(10, 13)));
+    }
+
+    @Test
+    @DisplayName("should recommend friends of friends until the friend set changes")
+    public void testFindRecommendations() {
+        final User candidate = User.builder()
+                .id(30)
+                .email("email@yandex.ru")
+                .login("other")
+                .name("Name")
+                .birthday(LocalDate.of(2000, 3, 1))
+                .build();
+        final User other = candidate.toBuilder().id(31).login("another").build();
+
+        for (int userId : new int[]{10, 11, 30, 31}) {
+            Mockito.doReturn(true).when(userStorage).existsById(userId);
+        }
+        friendGraph.add(10, 20);
+        friendGraph.add(10, 21);
+        friendGraph.add(20, 30);
+        friendGraph.add(21, 30);
+        friendGraph.add(21, 31);
+        friendGraph.add(30, 20);
+        friendGraph.add(30, 21);
+        Mockito.doReturn(List.of(other, candidate)).when(userStorage).findAllByIds(aryEq(new int[]{30, 31}));
+
+        final List<User> recommendations = userService.findRecommendations(10, 10);
+
+        assertEquals(List.of(30, 31), recommendations.stream().map(User::getId).collect(Collectors.toList()));
+        assertEquals(2, recommendations.get(0).getMutualFriends());
+        assertEquals(0, recommendations.get(1).getMutualFriends());
+
+        Mockito.doReturn(List.of(other)).when(userStorage).findAllByIds(aryEq(new int[]{31}));
+        userService.addFriend(10, 30);
+
+        assertEquals(List.of(other), userService.findRecommendations(10, 10));
+        assertThrows(NoSuchModelException.class, () -> userService.findRecommendations(12, 10));
+    }
+
+    @Test
+    @DisplayName("should complete logins and names of added users, most friends first")
+    public void testAutocomplete() {
+        final User user = User.builder()
+                .email("email@yandex.ru")
+                .login("ivan")
+                .name("Иван Петров")
+                .birthday(LocalDate.of(2000, 3, 1))
+                .build();
+        final User ivan = user.toBuilder().id(10).build();
+        final User ivanko = user.toBuilder().id(11).login("ivanko").name("Ivan Sidorov").build();
+
+        Mockito.doReturn(ivan, ivanko).when(userStorage).add(any(User.class));
+        Mockito.doReturn(true).when(userStorage).existsById(anyInt());
+        Mockito.doReturn(List.of(ivan, ivanko)).when(userStorage).findAllByIds(aryEq(new int[]{10, 11}));
+        Mockito.doReturn(List.of(ivan, ivanko)).when(userStorage).findAllByIds(aryEq(new int[]{11, 10}));
+        Mockito.doReturn(List.of(ivan)).when(userStorage).findAllByIds(aryEq(new int[]{10}));
+
+        userService.add(user);
+        userService.add(user);
+
+        assertEquals(List.of(ivan, ivanko), userService.autocomplete("iva", 10));
+        assertEquals(List.of(ivan), userService.autocomplete("петр", 10));
 
-        userService.findCommonFriends(user1.getId(), user2.getId());
+        userService.addFriend(11, 10);
 
-        verify(userStorage).commonFriend(10, 11);
+        assertEquals(List.of(ivanko, ivan), userService.autocomplete("iva", 10));
     }
-}
\ No newline at end of file
+}
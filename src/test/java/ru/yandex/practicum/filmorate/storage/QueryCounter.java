@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * Counts JDBC statements prepared through the application {@link DataSource}.
+ * Import it into a Spring test and read {@link #count()} around the call under test.
+ */
+public class QueryCounter implements BeanPostProcessor {
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("prepareStatement", "createStatement", "prepareCall");
+
+    private final AtomicInteger statements = new AtomicInteger();
+
+    public void reset() {
+        statements.set(0);
+    }
+
+    public int count() {
+        return statements.get();
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource)) {
+            return bean;
+        }
+
+        return proxy(DataSource.class, bean, (target, method, args) -> {
+            final Object result = invoke(target, method, args);
+
+            return result instanceof Connection ? proxy(Connection.class, result, this::countStatements) : result;
+        });
+    }
+
+    private Object countStatements(Object connection, Method method, Object[] args) throws Throwable {
+        if (STATEMENT_FACTORIES.contains(method.getName())) {
+            statements.incrementAndGet();
+        }
+
+        return invoke(connection, method, args);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, Object target, TargetHandler handler) {
+        final InvocationHandler invocationHandler = (proxy, method, args) -> handler.invoke(target, method, args);
+
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, invocationHandler));
+    }
+
+    @FunctionalInterface
+    private interface TargetHandler {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+}
@@ -1,9 +1,15 @@
 package ru.yandex.practicum.filmorate.storage.impl;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.AfterEach;
@@ -14,15 +20,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
 
+import ru.yandex.practicum.filmorate.exception.NoSuchModelException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
+@ActiveProfiles("test")
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class FilmDbStorageTest {
@@ -40,10 +52,13 @@ class FilmDbStorageTest {
     @AfterEach
     void tearDown() {
         jdbcTemplate.update("DELETE FROM FAVORITE_FILMS");
+        jdbcTemplate.update("DELETE FROM FILM_GENRE");
         jdbcTemplate.update("DELETE FROM FILM");
         jdbcTemplate.update("ALTER TABLE FILM ALTER COLUMN ID RESTART WITH 1");
         jdbcTemplate.update("DELETE FROM USERS");
         jdbcTemplate.update("ALTER TABLE USERS ALTER COLUMN ID RESTART WITH 1");
+        filmDbStorage.loadIds();
+        userDbStorage.loadIds();
     }
 
     @Test
@@ -148,9 +163,9 @@ class FilmDbStorageTest {
         filmDbStorage.add(film);
         userDbStorage.add(user);
 
-        filmDbStorage.addLike(film.getId(), user.getId());
+        filmDbStorage.addLike(film.getId(), user.getId(), Instant.now());
 
-        List<Integer> likes = filmDbStorage.fetchLikes(film.getId());
+        List<Integer> likes = fetchLikes(film.getId());
 
         assertThat(likes).isNotNull();
         assertThat(likes.contains(user.getId())).isTrue();
@@ -174,19 +189,21 @@ class FilmDbStorageTest {
                 .name("User Name")
                 .birthday(LocalDate.of(2000, 7, 1))
                 .build();
+        final Instant likedAt = Instant.parse("2023-07-01T12:00:00Z");
         filmDbStorage.add(film);
         userDbStorage.add(user);
 
-        filmDbStorage.addLike(film.getId(), user.getId());
+        filmDbStorage.addLike(film.getId(), user.getId(), likedAt);
 
-        List<Integer> likes = filmDbStorage.fetchLikes(film.getId());
+        List<Integer> likes = fetchLikes(film.getId());
 
         assertThat(likes).isNotNull();
         assertThat(likes.contains(user.getId())).isTrue();
 
-        filmDbStorage.removeLike(film.getId(), user.getId());
+        assertThat(filmDbStorage.removeLike(film.getId(), user.getId())).isEqualTo(Optional.of(likedAt));
+        assertThat(filmDbStorage.removeLike(film.getId(), user.getId())).isEmpty();
 
-        List<Integer> likesAfter = filmDbStorage.fetchLikes(film.getId());
+        List<Integer> likesAfter = fetchLikes(film.getId());
 
         assertThat(likesAfter).isNotNull();
         assertThat(likesAfter.contains(user.getId())).isFalse();
@@ -233,9 +250,9 @@ class FilmDbStorageTest {
                 .name("Name 2")
                 .birthday(LocalDate.of(2000, 7, 2))
                 .build());
-        filmDbStorage.addLike(3, 1);
-        filmDbStorage.addLike(3, 2);
-        filmDbStorage.addLike(1, 1);
+        filmDbStorage.addLike(3, 1, Instant.now());
+        filmDbStorage.addLike(3, 2, Instant.now());
+        filmDbStorage.addLike(1, 1, Instant.now());
 
         List<Film> popularFilms = filmDbStorage.getPopularFilms(10);
 
@@ -243,5 +260,265 @@ class FilmDbStorageTest {
         assertThat(popularFilms.get(0).getName()).isEqualTo("film 3");
         assertThat(popularFilms.get(1).getName()).isEqualTo("film 1");
         assertThat(popularFilms.get(2).getName()).isEqualTo("film 2");
+        assertThat(filmDbStorage.catalogFingerprint()).isEqualTo(new FilmStorage.CatalogFingerprint(3, 3, 3));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("should keep like counters in sync and rebuild them from favorite films")
+    void rebuildLikeCounters() {
+        filmDbStorage.add(Film.builder()
+                .id(1)
+                .name("film 1")
+                .description("description")
+                .releaseDate(LocalDate.of(2023, 7, 1))
+                .duration(120)
+                .mpa(Mpa.of(1))
+                .build());
+        for (int i = 1; i <= 5; i++) {
+            userDbStorage.add(User.builder()
+                    .id(i)
+                    .email("email" + i + "@adress.com")
+                    .login("login" + i)
+                    .name("Name " + i)
+                    .birthday(LocalDate.of(2000, 7, i))
+                    .build());
+            filmDbStorage.addLike(1, i, Instant.now());
+        }
+        filmDbStorage.removeLike(1, 2);
+        filmDbStorage.removeLike(1, 2);
+
+        assertThat(countLikes(1)).isEqualTo(4);
+
+        jdbcTemplate.update("UPDATE FILM_LIKE_COUNTER SET like_count = 100");
+        filmDbStorage.rebuildLikeCounters();
+
+        assertThat(countLikes(1)).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("should fetch films by ids and facets of all films")
+    void findAllByIdsAndLikeCounts() {
+        for (int i = 1; i <= 3; i++) {
+            filmDbStorage.add(Film.builder()
+                    .id(i)
+                    .name("film " + i)
+                    .description("description")
+                    .releaseDate(LocalDate.of(2023, 7, i))
+                    .duration(120)
+                    .mpa(Mpa.of(i))
+                    .build());
+        }
+        userDbStorage.add(User.builder()
+                .id(1)
+                .email("email1@adress.com")
+                .login("login1")
+                .name("Name 1")
+                .birthday(LocalDate.of(2000, 7, 1))
+                .build());
+        filmDbStorage.addLike(3, 1, Instant.now());
+
+        List<Film> films = filmDbStorage.findAllByIds(List.of(3, 1, 3, 100));
+
+        assertThat(films.size()).isEqualTo(2);
+        final Map<Integer, Long> likes = new HashMap<>();
+        final Map<Integer, Integer> mpas = new HashMap<>();
+
+        filmDbStorage.forEachFilmFacets((filmId, likeCount, mpaId, year, genreIds) -> {
+            likes.put(filmId, likeCount);
+            mpas.put(filmId, mpaId);
+            assertThat(year).isEqualTo(2023);
+        });
+
+        assertThat(likes).isEqualTo(Map.of(1, 0L, 2, 0L, 3, 1L));
+        assertThat(mpas).isEqualTo(Map.of(1, 1, 2, 2, 3, 3));
+    }
+
+    @Test
+    @DisplayName("should hydrate films with mpa and genres")
+    void findFilmsWithGenres() {
+        final Film film = Film.builder()
+                .id(1)
+                .name("film 1")
+                .description("description")
+                .releaseDate(LocalDate.of(2023, 7, 1))
+                .duration(120)
+                .mpa(Mpa.of(1))
+                .build();
+        film.addGenre(Genre.of(1));
+        film.addGenre(Genre.of(3));
+        filmDbStorage.add(film);
+        filmDbStorage.add(Film.builder()
+                .id(2)
+                .name("film 2")
+                .description("description")
+                .releaseDate(LocalDate.of(2023, 7, 2))
+                .duration(120)
+                .mpa(Mpa.of(2))
+                .build());
+
+        final Film found = filmDbStorage.findOneById(1).orElseThrow();
+
+        assertThat(found.getMpa().getName()).isNotNull();
+        assertThat(found.getGenres().stream().map(Genre::getId).sorted().collect(Collectors.toList()))
+                .isEqualTo(List.of(1, 3));
+        assertThat(found.getGenres().stream().allMatch(genre -> genre.getName() != null)).isTrue();
+        assertThat(filmDbStorage.findOneById(2).orElseThrow().getGenres().isEmpty()).isTrue();
+        assertThat(filmDbStorage.getPopularFilms(1).get(0).getGenres()).isEqualTo(found.getGenres());
+    }
+
+    @Test
+    @DisplayName("should fetch films page after given id")
+    void findAllAfter() {
+        for (int i = 1; i <= 5; i++) {
+            filmDbStorage.add(Film.builder()
+                    .id(i)
+                    .name("film " + i)
+                    .description("description")
+                    .releaseDate(LocalDate.of(2023, 7, i))
+                    .duration(120)
+                    .mpa(Mpa.of(1))
+                    .build());
+        }
+
+        assertThat(filmDbStorage.findAllAfter(0, 2).stream().map(Film::getId).collect(Collectors.toList()))
+                .isEqualTo(List.of(1, 2));
+        assertThat(filmDbStorage.findAllAfter(2, 2).stream().map(Film::getId).collect(Collectors.toList()))
+                .isEqualTo(List.of(3, 4));
+        assertThat(filmDbStorage.findAllAfter(4, 2).stream().map(Film::getId).collect(Collectors.toList()))
+                .isEqualTo(List.of(5));
+    }
+
+    @Test
+    @DisplayName("should stream all films with genres in id order")
+    void forEachFilm() {
+        for (int i = 1; i <= 3; i++) {
+            final Film film = Film.builder()
+                    .id(i)
+                    .name("film " + i)
+                    .description("description")
+                    .releaseDate(LocalDate.of(2023, 7, i))
+                    .duration(120)
+                    .mpa(Mpa.of(1))
+                    .build();
+            film.addGenre(Genre.of(i));
+            filmDbStorage.add(film);
+        }
+        final List<Film> films = new ArrayList<>();
+
+        filmDbStorage.forEachFilm(films::add);
+
+        assertThat(films.stream().map(Film::getId).collect(Collectors.toList())).isEqualTo(List.of(1, 2, 3));
+        assertThat(films.get(2).getGenres().iterator().next().getId()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should add films in bulk with genres and like counters")
+    void addAll() {
+        final List<Film> films = new ArrayList<>();
+
+        for (int i = 1; i <= 250; i++) {
+            final Film film = Film.builder()
+                    .name("film " + i)
+                    .description("description")
+                    .releaseDate(LocalDate.of(2023, 7, 1))
+                    .duration(120)
+                    .mpa(Mpa.of(1 + i % 5))
+                    .build();
+            film.addGenre(Genre.of(1 + i % 6));
+            films.add(film);
+        }
+
+        final List<Integer> ids = filmDbStorage.addAll(films);
+
+        assertThat(ids.size()).isEqualTo(250);
+        final Film last = filmDbStorage.findOneById(ids.get(249)).orElseThrow();
+
+        assertThat(last.getName()).isEqualTo("film 250");
+        assertThat(last.getMpa().getId()).isEqualTo(1);
+        assertThat(last.getGenres().iterator().next().getId()).isEqualTo(5);
+        assertThat(countLikes(ids.get(0))).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("should write buffered like changes in one batch")
+    void applyLikeChanges() {
+        filmDbStorage.add(Film.builder()
+                .id(1)
+                .name("film 1")
+                .description("description")
+                .releaseDate(LocalDate.of(2023, 7, 1))
+                .duration(120)
+                .mpa(Mpa.of(1))
+                .build());
+        for (int i = 1; i <= 3; i++) {
+            userDbStorage.add(User.builder()
+                    .id(i)
+                    .email("email" + i + "@adress.com")
+                    .login("login" + i)
+                    .name("Name " + i)
+                    .birthday(LocalDate.of(2000, 7, i))
+                    .build());
+        }
+        filmDbStorage.addLike(1, 1, Instant.now());
+
+        try (LikeWriteBuffer buffer = new LikeWriteBuffer(100, 100, Duration.ofHours(1),
+                filmDbStorage::findLikedAt, filmDbStorage::applyLikeChanges)) {
+            buffer.like(1, 2, Instant.now());
+            buffer.like(1, 3, Instant.now());
+            buffer.unlike(1, 3);
+            buffer.unlike(1, 1);
+
+            assertThat(fetchLikes(1)).isEqualTo(List.of(1));
+            assertThat(buffer.flush()).isTrue();
+        }
+
+        assertThat(fetchLikes(1)).isEqualTo(List.of(2));
+        assertThat(countLikes(1)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should probe film ids without reading rows")
+    void existsById() {
+        final Film film = filmDbStorage.add(Film.builder()
+                .name("film 1")
+                .description("description")
+                .releaseDate(LocalDate.of(2023, 7, 1))
+                .duration(120)
+                .mpa(Mpa.of(1))
+                .build());
+
+        assertThat(filmDbStorage.existsById(film.getId())).isTrue();
+        assertThat(filmDbStorage.existsById(film.getId() + 1)).isFalse();
+        assertThat(filmDbStorage.existsAll(List.of(film.getId()))).isTrue();
+        assertThat(filmDbStorage.existsAll(List.of(film.getId(), film.getId() + 1))).isFalse();
+    }
+
+    @Test
+    @DisplayName("should reject unknown MPA and genre ids before writing")
+    void rejectUnknownReferences() {
+        final Film.FilmBuilder film = Film.builder()
+                .name("film 1")
+                .description("description")
+                .releaseDate(LocalDate.of(2023, 7, 1))
+                .duration(120);
+
+        assertThrows(NoSuchModelException.class, () -> filmDbStorage.add(film.mpa(Mpa.of(100)).build()));
+
+        final Film withUnknownGenre = film.mpa(Mpa.of(1)).build();
+
+        withUnknownGenre.addGenre(Genre.of(100));
+
+        assertThrows(NoSuchModelException.class, () -> filmDbStorage.add(withUnknownGenre));
+        assertThat(filmDbStorage.findAll().size()).isEqualTo(0);
+    }
+
+    private int countLikes(int filmId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT like_count FROM FILM_LIKE_COUNTER WHERE film_id = ?", Integer.class, filmId);
+    }
+
+    private List<Integer> fetchLikes(int filmId) {
+        return jdbcTemplate.queryForList(
+                "SELECT user_id FROM FAVORITE_FILMS WHERE film_id = ? ORDER BY user_id", Integer.class, filmId);
+    }
+}
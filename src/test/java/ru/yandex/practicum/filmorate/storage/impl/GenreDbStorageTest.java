@@ -8,9 +8,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
+import ru.yandex.practicum.filmorate.exception.NoSuchModelException;
 import ru.yandex.practicum.filmorate.model.Genre;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
 @ActiveProfiles("test")
@@ -37,4 +39,26 @@ class GenreDbStorageTest {
         assertThat(genreOpt.get())
                 .isEqualTo(Genre.of(1, "Комедия"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void addUpdateDelete() {
+        final Genre added = genreDbStorage.add(Genre.of(0, "Вестерн"));
+
+        assertThat(genreDbStorage.findOneById(added.getId())).isEqualTo(Optional.of(added));
+        assertThat(genreDbStorage.findAll().size()).isEqualTo(7);
+
+        genreDbStorage.update(Genre.of(added.getId(), "Нуар"));
+
+        assertThat(genreDbStorage.findOneById(added.getId()).get().getName()).isEqualTo("Нуар");
+
+        genreDbStorage.deleteOneById(added.getId());
+
+        assertThat(genreDbStorage.findOneById(added.getId())).isEmpty();
+        assertThat(genreDbStorage.findAll().size()).isEqualTo(6);
+    }
+
+    @Test
+    void updateUnknownGenre() {
+        assertThrows(NoSuchModelException.class, () -> genreDbStorage.update(Genre.of(100, "Нуар")));
+    }
+}
@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LikeWriteBufferTest {
+    private final Map<Long, Instant> database = new ConcurrentHashMap<>();
+    private final List<Integer> writes = new CopyOnWriteArrayList<>();
+    private LikeWriteBuffer buffer;
+
+    @AfterEach
+    void tearDown() {
+        buffer.close();
+    }
+
+    @Test
+    @DisplayName("should merge likes and unlikes of the same pair before writing")
+    void testMerge() {
+        buffer = newBuffer(100, 100, Duration.ofHours(1));
+        database.put(key(1, 2), Instant.EPOCH);
+
+        buffer.like(1, 1, Instant.now());
+        assertEquals(Optional.empty(), buffer.unlike(1, 3));
+        assertTrue(buffer.unlike(1, 1).isPresent());
+        assertEquals(Optional.of(Instant.EPOCH), buffer.unlike(1, 2));
+        assertThrows(DuplicateKeyException.class, () -> {
+            buffer.like(2, 1, Instant.now());
+            buffer.like(2, 1, Instant.now());
+        });
+
+        assertEquals(2, buffer.pendingCount());
+        assertTrue(buffer.flush());
+        assertEquals(List.of(2), writes);
+        assertEquals(Map.of(key(2, 1), database.get(key(2, 1))), database);
+        assertEquals(0, buffer.pendingCount());
+    }
+
+    @Test
+    @DisplayName("should flush once the batch size is reached")
+    void testSizeTrigger() throws InterruptedException {
+        buffer = newBuffer(100, 3, Duration.ofHours(1));
+
+        for (int userId = 1; userId <= 3; userId++) {
+            buffer.like(1, userId, Instant.now());
+        }
+
+        awaitWrites(1);
+        assertEquals(List.of(3), writes);
+    }
+
+    @Test
+    @DisplayName("should flush after the max delay")
+    void testTimeTrigger() throws InterruptedException {
+        buffer = newBuffer(100, 100, Duration.ofMillis(20));
+
+        buffer.like(1, 1, Instant.now());
+
+        awaitWrites(1);
+        assertEquals(1, database.size());
+    }
+
+    @Test
+    @DisplayName("should drain pending likes on close")
+    void testDrainOnClose() {
+        buffer = newBuffer(100, 100, Duration.ofHours(1));
+
+        for (int userId = 1; userId <= 10; userId++) {
+            buffer.like(userId, userId, Instant.now());
+        }
+        buffer.close();
+
+        assertEquals(10, database.size());
+    }
+
+    @Test
+    @DisplayName("should keep failed writes as base state and retry them")
+    void testRetry() {
+        final boolean[] failing = {true};
+
+        buffer = new LikeWriteBuffer(100, 100, Duration.ofHours(1), this::lookup, changes -> {
+            if (failing[0]) {
+                throw new IllegalStateException("database is down");
+            }
+            write(changes);
+        });
+
+        buffer.like(1, 1, Instant.now());
+        assertTrue(!buffer.flush());
+        assertThrows(DuplicateKeyException.class, () -> buffer.like(1, 1, Instant.now()));
+
+        failing[0] = false;
+        assertTrue(buffer.flush());
+        assertEquals(1, database.size());
+    }
+
+    private LikeWriteBuffer newBuffer(int capacity, int batchSize, Duration maxDelay) {
+        return new LikeWriteBuffer(capacity, batchSize, maxDelay, this::lookup, this::write);
+    }
+
+    private Optional<Instant> lookup(int filmId, int userId) {
+        return Optional.ofNullable(database.get(key(filmId, userId)));
+    }
+
+    private void write(Collection<LikeWriteBuffer.Change> changes) {
+        final List<LikeWriteBuffer.Change> batch = new ArrayList<>(changes);
+
+        for (LikeWriteBuffer.Change change : batch) {
+            if (change.isLiked()) {
+                database.put(key(change.getFilmId(), change.getUserId()), change.getLikedAt());
+            } else {
+                database.remove(key(change.getFilmId(), change.getUserId()));
+            }
+        }
+
+        writes.add(batch.size());
+    }
+
+    private void awaitWrites(int count) throws InterruptedException {
+        for (int i = 0; i < 500 && writes.size() < count; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static long key(int filmId, int userId) {
+        return ((long) filmId << 32) | userId;
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdBitmapTest {
+    @Test
+    @DisplayName("should track ids across pages")
+    void testAddContainsRemove() {
+        final IdBitmap bitmap = new IdBitmap();
+
+        for (int id : List.of(0, 1, 63, 64, 65535, 65536, Integer.MAX_VALUE)) {
+            assertFalse(bitmap.contains(id));
+            bitmap.add(id);
+            assertTrue(bitmap.contains(id));
+        }
+
+        assertFalse(bitmap.contains(2));
+        assertFalse(bitmap.contains(65537));
+        assertTrue(bitmap.containsAll(List.of(1, 64, 65536)));
+        assertFalse(bitmap.containsAll(List.of(1, 2)));
+
+        bitmap.remove(64);
+
+        assertFalse(bitmap.contains(64));
+        assertTrue(bitmap.contains(63));
+
+        bitmap.clear();
+
+        assertFalse(bitmap.contains(1));
+    }
+}
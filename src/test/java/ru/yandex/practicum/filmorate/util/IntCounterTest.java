@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IntCounterTest {
+    @Test
+    @DisplayName("should count like a map of ints")
+    void testAgainstHashMap() {
+        final Random random = new Random(7);
+        final IntCounter counter = new IntCounter();
+        final IntCounter other = new IntCounter(1_000);
+        final Map<Integer, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            final int key = random.nextInt(20_000) - 10_000;
+            final int delta = 1 + random.nextInt(3);
+
+            if (key == 0) {
+                continue;
+            }
+
+            (random.nextBoolean() ? counter : other).add(key, delta);
+            expected.merge(key, delta, Integer::sum);
+        }
+
+        counter.addAll(other);
+
+        final Map<Integer, Integer> counted = new HashMap<>();
+
+        counter.forEach(counted::put);
+
+        assertEquals(expected, counted);
+        assertEquals(expected.size(), counter.size());
+        assertEquals(expected.get(1), counter.get(1));
+        assertEquals(0, counter.get(0));
+        assertEquals(0, counter.get(Integer.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("should reject key 0")
+    void testZeroKey() {
+        assertThrows(IllegalArgumentException.class, () -> new IntCounter().add(0, 1));
+    }
+}
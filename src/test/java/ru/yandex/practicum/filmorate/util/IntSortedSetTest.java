@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntSortedSetTest {
+    private static final int USERS = 10_000;
+    private static final int FRIENDS_PER_USER = 100;
+
+    @Test
+    @DisplayName("should behave like a sorted set of ints")
+    void testAgainstTreeSet() {
+        final Random random = new Random(42);
+        final IntSortedSet set = new IntSortedSet();
+        final TreeSet<Integer> expected = new TreeSet<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            final int value = random.nextInt(5_000);
+
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), set.toArray());
+        assertEquals(IntSortedSet.of(set.toArray()), set);
+        assertArrayEquals(new int[]{1, 2, 5}, IntSortedSet.of(5, 1, 2, 5, 1).toArray());
+    }
+
+    @Test
+    @DisplayName("should intersect sets of similar and of very different sizes")
+    void testIntersection() {
+        final Random random = new Random(7);
+
+        for (int[] sizes : new int[][]{{0, 10}, {200, 300}, {5, 20_000}, {20_000, 40}}) {
+            final int[] left = random.ints(sizes[0], 0, 50_000).toArray();
+            final int[] right = random.ints(sizes[1], 0, 50_000).toArray();
+            final TreeSet<Integer> expected = new TreeSet<>();
+
+            for (int value : left) {
+                expected.add(value);
+            }
+            expected.retainAll(boxed(right));
+
+            final IntSortedSet intersection = IntSortedSet.of(left).intersection(IntSortedSet.of(right));
+
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), intersection.toArray());
+            assertEquals(expected.size(), IntSortedSet.of(right).intersectionSize(IntSortedSet.of(left)));
+        }
+    }
+
+    @Test
+    @DisplayName("should hold a 1M-edge friend graph in about four bytes per edge")
+    void testMemoryFootprint() {
+        final int[][] graph = friendGraph();
+
+        final long primitive = allocatedBy(() -> {
+            final List<IntSortedSet> sets = new ArrayList<>(USERS);
+
+            for (int[] friends : graph) {
+                sets.add(IntSortedSet.of(friends));
+            }
+
+            return sets;
+        });
+        final long boxed = allocatedBy(() -> {
+            final List<Set<Integer>> sets = new ArrayList<>(USERS);
+
+            for (int[] friends : graph) {
+                final Set<Integer> set = new HashSet<>();
+
+                for (int friend : friends) {
+                    set.add(friend);
+                }
+                sets.add(set);
+            }
+
+            return sets;
+        });
+        final int edges = USERS * FRIENDS_PER_USER;
+
+        assertTrue(primitive < 5L * edges, () -> "IntSortedSet took " + primitive / edges + " bytes per edge");
+        assertTrue(boxed > 5 * primitive, () -> "HashSet<Integer> took " + boxed / edges + " bytes per edge");
+    }
+
+    private static int[][] friendGraph() {
+        final Random random = new Random(1);
+        final int[][] graph = new int[USERS][];
+
+        for (int user = 0; user < USERS; user++) {
+            graph[user] = random.ints(0, 1_000_000).distinct().limit(FRIENDS_PER_USER).toArray();
+        }
+
+        return graph;
+    }
+
+    private static long allocatedBy(Supplier<Object> build) {
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long thread = Thread.currentThread().getId();
+        final long before = threads.getThreadAllocatedBytes(thread);
+        final Object built = build.get();
+        final long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertNotNull(built);
+
+        return allocated;
+    }
+
+    private static Set<Integer> boxed(int[] values) {
+        final Set<Integer> set = new HashSet<>();
+
+        for (int value : values) {
+            set.add(value);
+        }
+
+        return set;
+    }
+}
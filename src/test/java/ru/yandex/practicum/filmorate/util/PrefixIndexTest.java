@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrefixIndexTest {
+    private final PrefixIndex index = new PrefixIndex("test", Integer.MAX_VALUE);
+
+    @AfterEach
+    void close() {
+        index.close();
+    }
+
+    @Test
+    @DisplayName("should complete any word of a text, heaviest first")
+    void testComplete() {
+        index.rebuild(loader -> {
+            loader.add(1, 5, "The Matrix");
+            loader.add(2, 9, "The Matrix Reloaded");
+            loader.add(3, 7, "Матрица");
+            loader.add(4, 0, "Amélie", "amelie_fan");
+        });
+
+        assertArrayEquals(new int[]{2, 1}, index.complete("mat", 10));
+        assertArrayEquals(new int[]{2, 1}, index.complete("The M", 10));
+        assertArrayEquals(new int[]{2}, index.complete("reload", 10));
+        assertArrayEquals(new int[]{3}, index.complete("МАТ", 10));
+        assertArrayEquals(new int[]{4}, index.complete("Ame", 10));
+        assertArrayEquals(new int[]{2}, index.complete("matrix", 1));
+        assertArrayEquals(new int[0], index.complete("matrixx", 10));
+        assertArrayEquals(new int[0], index.complete(" ,", 10));
+        assertEquals(9, index.size());
+    }
+
+    @Test
+    @DisplayName("should replace the keys of a put id and keep its weight")
+    void testPut() {
+        index.rebuild(loader -> {
+            loader.add(1, 3, "alpha");
+            loader.add(2, 1, "alpine");
+        });
+
+        index.put(1, "beta");
+        index.put(3, "alps");
+
+        assertArrayEquals(new int[]{2, 3}, index.complete("al", 10));
+        assertArrayEquals(new int[]{1}, index.complete("b", 10));
+
+        index.put(3, "gamma");
+        index.compact();
+
+        assertEquals(0, index.pendingKeys());
+        assertArrayEquals(new int[]{2}, index.complete("al", 10));
+        assertArrayEquals(new int[]{1}, index.complete("b", 10));
+        assertArrayEquals(new int[]{3}, index.complete("g", 10));
+    }
+
+    @Test
+    @DisplayName("should reorder completions when a weight changes")
+    void testSetWeight() {
+        index.put(1, "star wars");
+        index.put(2, "star trek");
+        index.compact();
+        index.put(3, "stargate");
+
+        assertArrayEquals(new int[]{2, 1, 3}, index.complete("star", 10));
+
+        index.setWeight(1, () -> 2);
+        index.setWeight(3, () -> 1);
+
+        assertArrayEquals(new int[]{1, 3, 2}, index.complete("star", 10));
+    }
+
+    @Test
+    @DisplayName("should match a brute force ranking through a rebuild, puts, weight changes and compactions")
+    void testAgainstBruteForce() {
+        final String[] words = {"a", "ab", "abc", "b", "ba", "bab", "c", "ca", "cab", "abba"};
+        final Random random = new Random(3);
+        final Map<Integer, String> texts = new HashMap<>();
+        final Map<Integer, Integer> weights = new HashMap<>();
+
+        for (int id = 1; id <= 150; id++) {
+            texts.put(id, words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]);
+            weights.put(id, random.nextInt(5));
+        }
+
+        index.rebuild(loader -> texts.forEach((id, text) -> loader.add(id, weights.get(id), text)));
+
+        for (int step = 0; step < 3_000; step++) {
+            final int id = 1 + random.nextInt(200);
+            final int operation = random.nextInt(10);
+
+            if (operation < 5) {
+                final String text = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+
+                texts.put(id, text);
+                index.put(id, text);
+            } else if (operation < 9) {
+                final int weight = random.nextInt(20);
+
+                weights.put(id, weight);
+                index.setWeight(id, () -> weight);
+            } else {
+                index.compact();
+            }
+
+            final String word = words[random.nextInt(words.length)];
+            final String prefix = word.substring(0, 1 + random.nextInt(word.length()));
+            final int limit = 1 + random.nextInt(12);
+
+            assertArrayEquals(expected(texts, weights, prefix, limit), index.complete(prefix, limit),
+                    "step " + step + ", prefix " + prefix);
+        }
+    }
+
+    private static int[] expected(Map<Integer, String> texts, Map<Integer, Integer> weights, String prefix,
+                                  int limit) {
+        final List<String[]> matches = new ArrayList<>();
+
+        texts.forEach((id, text) -> {
+            final String second = text.substring(text.indexOf(' ') + 1);
+            final String key = !second.startsWith(prefix) || text.startsWith(prefix) && text.compareTo(second) < 0
+                    ? text.startsWith(prefix) ? text : null
+                    : second;
+
+            if (key != null) {
+                matches.add(new String[]{String.valueOf(weights.getOrDefault(id, 0)), key, String.valueOf(id)});
+            }
+        });
+
+        return matches.stream()
+                .sorted(Comparator.<String[]>comparingInt(match -> -Integer.parseInt(match[0]))
+                        .thenComparing(match -> match[1])
+                        .thenComparingInt(match -> Integer.parseInt(match[2])))
+                .limit(limit)
+                .mapToInt(match -> Integer.parseInt(match[2]))
+                .toArray();
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoaringSetTest {
+    @Test
+    @DisplayName("should behave like a sorted set of ints")
+    void testAgainstTreeSet() {
+        final Random random = new Random(42);
+        final RoaringSet set = new RoaringSet();
+        final TreeSet<Integer> expected = new TreeSet<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            // Mostly one dense chunk plus a sparse tail, so both chunk kinds and conversions are exercised.
+            final int value = random.nextInt(10) < 8 ? random.nextInt(12_000) : random.nextInt(Integer.MAX_VALUE);
+
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), set.toArray());
+    }
+
+    @Test
+    @DisplayName("should convert chunks between array and bitmap forms")
+    void testChunkConversion() {
+        final RoaringSet set = new RoaringSet();
+
+        for (int value = 0; value <= RoaringSet.ARRAY_LIMIT; value++) {
+            assertTrue(set.add(value * 2));
+        }
+
+        assertTrue(set.contains(RoaringSet.ARRAY_LIMIT * 2));
+        assertFalse(set.contains(1));
+
+        for (int value = 0; value <= RoaringSet.ARRAY_LIMIT; value += 2) {
+            assertTrue(set.remove(value * 2));
+        }
+
+        assertEquals(RoaringSet.ARRAY_LIMIT / 2, set.size());
+        assertTrue(set.contains(2));
+        assertFalse(set.contains(0));
+        assertFalse(set.remove(0));
+    }
+
+    @Test
+    @DisplayName("should visit the values present when the visit started")
+    void testForEachSnapshot() {
+        final RoaringSet set = new RoaringSet();
+
+        for (int value = 0; value < RoaringSet.ARRAY_LIMIT * 2; value++) {
+            set.add(value);
+        }
+
+        final int[] before = set.toArray();
+        final int[] visited = new int[before.length];
+        final int[] position = {0};
+
+        // Every visit shrinks the bitmap chunk back to an array and grows a second chunk.
+        set.forEach(value -> {
+            visited[position[0]++] = value;
+            set.remove(value);
+            set.add(value + (1 << 16));
+        });
+
+        assertArrayEquals(before, visited);
+        assertEquals(before.length, set.size());
+        assertFalse(set.contains(0));
+        assertTrue(set.contains(1 << 16));
+    }
+}
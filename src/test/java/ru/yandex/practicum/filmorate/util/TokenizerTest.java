@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TokenizerTest {
+    @Test
+    @DisplayName("should split on anything but letters and digits")
+    void testTokens() {
+        assertEquals(List.of("the", "matrix", "1999", "sci", "fi"), Tokenizer.tokens("The Matrix (1999): sci-fi!"));
+        assertEquals(List.of(), Tokenizer.tokens("  ... "));
+        assertEquals(List.of(), Tokenizer.tokens(null));
+    }
+
+    @Test
+    @DisplayName("should fold case and diacritics in Latin and Cyrillic")
+    void testFolding() {
+        assertEquals(List.of("amelie", "lodz", "strasse"), Tokenizer.tokens("Amélie ŁÓDŹ Straße"));
+        assertEquals(List.of("елка", "и", "ежик"), Tokenizer.tokens("Ёлка и Ёжик"));
+        assertEquals(List.of("мой", "герой"), Tokenizer.tokens("МОЙ Герой"));
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class TopKTest {
+    @Test
+    @DisplayName("should keep the highest scores, lower keys first on ties")
+    void testAgainstSorting() {
+        final Random random = new Random(17);
+        final int[] scores = random.ints(10_000, 0, 500).toArray();
+
+        for (int k : new int[]{0, 1, 10, 100, 20_000}) {
+            final TopK top = new TopK(k);
+
+            for (int key = 1; key < scores.length; key++) {
+                top.offer(key, scores[key]);
+            }
+
+            final int[] expected = IntStream.range(1, scores.length).boxed()
+                    .sorted(Comparator.<Integer>comparingInt(key -> scores[key]).reversed()
+                            .thenComparing(Integer::intValue))
+                    .limit(k)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+
+            assertArrayEquals(expected, top.keys());
+        }
+    }
+
+    @Test
+    @DisplayName("should order non-negative float scores by their bits")
+    void testFloatScores() {
+        final TopK top = new TopK(3);
+
+        top.offer(1, Float.floatToIntBits(0.5f));
+        top.offer(2, Float.floatToIntBits(2.25f));
+        top.offer(3, Float.floatToIntBits(0f));
+        top.offer(4, Float.floatToIntBits(1.75f));
+
+        assertArrayEquals(new int[]{2, 4, 1}, top.keys());
+    }
+}